@@ -0,0 +1,84 @@
+package com.bookswap.benchmark;
+
+import com.bookswap.datagen.DataGenerationConfig;
+import com.bookswap.datagen.SyntheticDataGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Синтетический набор данных для бенчмарков
+ * Заполняет пустую базу через SyntheticDataGenerator и загружает идентификаторы
+ * и поисковые термы, по которым бенчмарки выбирают входные данные
+ */
+final class BenchmarkDataset {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SyntheticDataGenerator generator;
+    private final int userCount;
+    private final int bookCount;
+    private final long seed;
+
+    private List<Long> userIds = List.of();
+    private List<String> usernames = List.of();
+    private List<long[]> availableBooks = List.of();
+
+    BenchmarkDataset(JdbcTemplate jdbcTemplate, SyntheticDataGenerator generator,
+                     int userCount, int bookCount, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.generator = generator;
+        this.userCount = userCount;
+        this.bookCount = bookCount;
+        this.seed = seed;
+    }
+
+    /**
+     * Заполняет базу, если в ней меньше книг, чем требуется; возвращает true, если данные добавлялись
+     */
+    boolean seedIfNeeded() {
+        Long existingBooks = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM books", Long.class);
+        long missingBooks = bookCount - (existingBooks != null ? existingBooks : 0);
+        if (missingBooks <= 0) {
+            return false;
+        }
+
+        generator.generate(new DataGenerationConfig(userCount, (int) missingBooks,
+                Math.max(100, bookCount / 10), bookCount * 2, seed));
+        return true;
+    }
+
+    void load() {
+        userIds = jdbcTemplate.queryForList("SELECT id FROM users ORDER BY id", Long.class);
+        usernames = jdbcTemplate.queryForList("SELECT username FROM users ORDER BY id", String.class);
+        availableBooks = jdbcTemplate.query(
+                "SELECT id, owner_id FROM books WHERE exchange_status = 'AVAILABLE' ORDER BY id",
+                (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)});
+    }
+
+    List<Long> userIds() {
+        return userIds;
+    }
+
+    List<String> usernames() {
+        return usernames;
+    }
+
+    /**
+     * Доступные книги как пары {id книги, id владельца}
+     */
+    List<long[]> availableBooks() {
+        return availableBooks;
+    }
+
+    static String[] titleWords() {
+        return SyntheticDataGenerator.titleWords();
+    }
+
+    static String[] authorLastNames() {
+        return SyntheticDataGenerator.authorLastNames();
+    }
+
+    static String[] genreNames() {
+        return SyntheticDataGenerator.genreNames();
+    }
+}
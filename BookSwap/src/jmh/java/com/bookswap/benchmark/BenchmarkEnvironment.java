@@ -0,0 +1,102 @@
+package com.bookswap.benchmark;
+
+import com.bookswap.BookSwapApplication;
+import com.bookswap.datagen.SyntheticDataGenerator;
+import com.bookswap.search.BookSearchIndex;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Контекст приложения и база данных для бенчмарков, один на JVM (форк JMH)
+ * База: локальный PostgreSQL из bookswap.bench.jdbc-url или встроенный PostgreSQL во временном каталоге
+ */
+final class BenchmarkEnvironment {
+
+    private static BenchmarkEnvironment instance;
+
+    private final EmbeddedPostgres embeddedPostgres;
+    private final ConfigurableApplicationContext context;
+    private final BenchmarkDataset dataset;
+
+    private BenchmarkEnvironment(int users, int books, long seed) throws IOException {
+        String jdbcUrl = System.getProperty("bookswap.bench.jdbc-url");
+        String username = System.getProperty("bookswap.bench.username", "bookswap_user");
+        String password = System.getProperty("bookswap.bench.password", "bookswap_password");
+
+        if (jdbcUrl == null) {
+            embeddedPostgres = EmbeddedPostgres.builder().start();
+            jdbcUrl = embeddedPostgres.getJdbcUrl("postgres", "postgres");
+            username = "postgres";
+            password = "postgres";
+        } else {
+            embeddedPostgres = null;
+        }
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put("spring.datasource.url", jdbcUrl);
+        properties.put("spring.datasource.username", username);
+        properties.put("spring.datasource.password", password);
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.devtools.restart.enabled", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.bookswap", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.springframework.security", "WARN");
+        properties.put("logging.file.name", "target/benchmark.log");
+        // Бенчмарки не должны обращаться к внешним API
+        properties.put("isbn-enrichment.enabled", "false");
+        // Фоновые задания не должны менять набор данных во время измерений
+        properties.put("exchange.expiry.enabled", "false");
+        properties.put("external-api.currency.preload-bases", "");
+
+        // Передаются как аргументы командной строки, чтобы перекрыть application.yml
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+
+        context = new SpringApplicationBuilder(BookSwapApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run(args);
+
+        dataset = new BenchmarkDataset(context.getBean(JdbcTemplate.class),
+                context.getBean(SyntheticDataGenerator.class), users, books, seed);
+        if (dataset.seedIfNeeded()) {
+            context.getBean(BookSearchIndex.class).rebuild();
+        }
+        dataset.load();
+    }
+
+    static synchronized BenchmarkEnvironment start(int users, int books, long seed) throws IOException {
+        if (instance == null) {
+            instance = new BenchmarkEnvironment(users, books, seed);
+        }
+        return instance;
+    }
+
+    static synchronized void stop() throws IOException {
+        if (instance != null) {
+            instance.context.close();
+            if (instance.embeddedPostgres != null) {
+                instance.embeddedPostgres.close();
+            }
+            instance = null;
+        }
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    BenchmarkDataset dataset() {
+        return dataset;
+    }
+}
@@ -0,0 +1,44 @@
+package com.bookswap.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+
+/**
+ * Общее состояние бенчмарков: размер синтетического набора данных задаётся параметрами JMH
+ * (например, -p books=100000 -p users=5000)
+ */
+@State(Scope.Benchmark)
+public abstract class BenchmarkState {
+
+    @Param("1000")
+    public int users;
+
+    @Param("20000")
+    public int books;
+
+    @Param("42")
+    public long seed;
+
+    protected BenchmarkEnvironment environment;
+
+    @Setup
+    public void startEnvironment() throws IOException {
+        environment = BenchmarkEnvironment.start(users, books, seed);
+        prepare();
+    }
+
+    @TearDown
+    public void stopEnvironment() throws IOException {
+        BenchmarkEnvironment.stop();
+    }
+
+    /**
+     * Подготовка бинов и входных данных конкретного бенчмарка
+     */
+    protected abstract void prepare();
+}
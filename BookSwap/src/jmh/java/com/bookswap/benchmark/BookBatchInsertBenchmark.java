@@ -0,0 +1,108 @@
+package com.bookswap.benchmark;
+
+import com.bookswap.entity.Book;
+import com.bookswap.entity.BookCondition;
+import com.bookswap.entity.User;
+import com.bookswap.search.BookSearchIndex;
+import com.bookswap.service.BookService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетное создание книг с состоянием (каскад Book + BookCondition) через BookService.createBooks
+ * jdbcBatchSize=1 воспроизводит построчные INSERT, как при идентификаторах IDENTITY; размер пакета
+ * задаётся для сессии Hibernate, остальная конфигурация совпадает. Результат - книг в секунду.
+ * Созданные книги удаляются после каждой итерации
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookBatchInsertBenchmark extends BenchmarkState {
+
+    private static final int BOOKS_PER_TRANSACTION = 200;
+
+    @Param({"1", "50"})
+    public int jdbcBatchSize;
+
+    private BookService bookService;
+    private EntityManagerFactory entityManagerFactory;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private List<Long> userIds;
+    private long bookIdBaseline;
+    private long conditionIdBaseline;
+
+    @Override
+    protected void prepare() {
+        bookService = environment.bean(BookService.class);
+        entityManagerFactory = environment.bean(EntityManagerFactory.class);
+        transactionTemplate = new TransactionTemplate(environment.bean(PlatformTransactionManager.class));
+        jdbcTemplate = environment.bean(JdbcTemplate.class);
+        userIds = environment.dataset().userIds();
+    }
+
+    @Setup(Level.Iteration)
+    public void markIteration() {
+        bookIdBaseline = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM books", Long.class);
+        conditionIdBaseline = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM book_conditions", Long.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeCreatedBooks() {
+        jdbcTemplate.update("DELETE FROM books WHERE id > ?", bookIdBaseline);
+        jdbcTemplate.update("DELETE FROM book_conditions WHERE id > ?", conditionIdBaseline);
+        environment.bean(BookSearchIndex.class).rebuild();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BOOKS_PER_TRANSACTION)
+    public List<Book> createBooksWithConditions() {
+        return transactionTemplate.execute(status -> {
+            EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<Book> books = new ArrayList<>(BOOKS_PER_TRANSACTION);
+            for (int i = 0; i < BOOKS_PER_TRANSACTION; i++) {
+                BookCondition condition = new BookCondition();
+                condition.setRating(1 + random.nextInt(5));
+
+                Book book = new Book();
+                book.setTitle(BenchmarkDataset.titleWords()[random.nextInt(BenchmarkDataset.titleWords().length)]
+                        + " " + random.nextInt(100000));
+                book.setPublicationYear(1950 + random.nextInt(75));
+                book.setPageCount(100 + random.nextInt(600));
+                book.setEstimatedPrice(BigDecimal.valueOf(100 + random.nextInt(2000)));
+                book.setOwner(entityManager.getReference(User.class, userIds.get(random.nextInt(userIds.size()))));
+                book.setCondition(condition);
+                books.add(book);
+            }
+            return bookService.createBooks(books);
+        });
+    }
+}
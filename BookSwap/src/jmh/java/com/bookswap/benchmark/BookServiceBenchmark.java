@@ -0,0 +1,65 @@
+package com.bookswap.benchmark;
+
+import com.bookswap.entity.Book;
+import com.bookswap.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск книг и выборка доступных книг пользователя
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BookServiceBenchmark extends BenchmarkState {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by("createdAt").descending());
+
+    private BookService bookService;
+    private List<Long> userIds;
+
+    @Override
+    protected void prepare() {
+        bookService = environment.bean(BookService.class);
+        userIds = environment.dataset().userIds();
+    }
+
+    @Benchmark
+    public Page<Book> searchByTitle() {
+        return bookService.searchBooks(random(BenchmarkDataset.titleWords()), null, null, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Page<Book> searchByAuthor() {
+        return bookService.searchBooks(null, random(BenchmarkDataset.authorLastNames()), null, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Page<Book> searchByGenre() {
+        return bookService.searchBooks(null, null, random(BenchmarkDataset.genreNames()), FIRST_PAGE);
+    }
+
+    @Benchmark
+    public List<Book> findAvailableBooksForUser() {
+        return bookService.findAvailableBooksForUser(userIds.get(ThreadLocalRandom.current().nextInt(userIds.size())));
+    }
+
+    private static String random(String[] values) {
+        return values[ThreadLocalRandom.current().nextInt(values.length)];
+    }
+}
@@ -0,0 +1,134 @@
+package com.bookswap.benchmark;
+
+import com.bookswap.entity.BookExchange;
+import com.bookswap.exception.BookSwapException;
+import com.bookswap.service.ExchangeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Конкурентное резервирование небольшого набора популярных книг
+ * Потоки одновременно запрашивают обмен одних и тех же книг в собственных транзакциях;
+ * выигравший поток проверяет, что открытый обмен по книге ровно один, и сразу отклоняет его
+ * от имени владельца, возвращая книгу в оборот. Нарушение проверки завершает итерацию ошибкой,
+ * созданные обмены удаляются после каждой итерации
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class ExchangeReservationBenchmark extends BenchmarkState {
+
+    private static final String OPEN_EXCHANGES_SQL =
+            "SELECT COUNT(*) FROM book_exchanges WHERE book_id = ? AND status IN ('PENDING', 'ACCEPTED')";
+
+    @Param("8")
+    public int hotBooks;
+
+    private ExchangeService exchangeService;
+    private JdbcTemplate jdbcTemplate;
+    private List<Long> userIds;
+    private List<String> usernames;
+    private long[][] books;
+    private String[] ownerUsernames;
+    private String hotBookIds;
+    private long exchangeIdBaseline;
+
+    private final AtomicLong violations = new AtomicLong();
+
+    @Override
+    protected void prepare() {
+        exchangeService = environment.bean(ExchangeService.class);
+        jdbcTemplate = environment.bean(JdbcTemplate.class);
+        userIds = environment.dataset().userIds();
+        usernames = environment.dataset().usernames();
+
+        Map<Long, String> usernameById = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            usernameById.put(userIds.get(i), usernames.get(i));
+        }
+
+        List<long[]> availableBooks = environment.dataset().availableBooks();
+        int count = Math.min(hotBooks, availableBooks.size());
+        books = new long[count][];
+        ownerUsernames = new String[count];
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            books[i] = availableBooks.get(i);
+            ownerUsernames[i] = usernameById.get(books[i][1]);
+            ids.append(i > 0 ? "," : "").append(books[i][0]);
+        }
+        hotBookIds = ids.toString();
+    }
+
+    @Setup(Level.Iteration)
+    public void markIteration() {
+        exchangeIdBaseline = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM book_exchanges", Long.class);
+        violations.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void verifyAndReset() {
+        jdbcTemplate.update("DELETE FROM exchange_inbox WHERE exchange_id > ? AND book_id IN (" + hotBookIds + ")",
+                exchangeIdBaseline);
+        jdbcTemplate.update("DELETE FROM book_exchanges WHERE id > ? AND book_id IN (" + hotBookIds + ")",
+                exchangeIdBaseline);
+        jdbcTemplate.update("UPDATE books SET exchange_status = 'AVAILABLE' WHERE id IN (" + hotBookIds + ")");
+
+        if (violations.get() > 0) {
+            throw new IllegalStateException("Обнаружено резервирований с несколькими открытыми обменами: "
+                    + violations.get());
+        }
+    }
+
+    @Benchmark
+    public boolean reserveContended() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int index = random.nextInt(books.length);
+        long bookId = books[index][0];
+
+        int requester = random.nextInt(usernames.size());
+        if (userIds.get(requester) == books[index][1]) {
+            requester = (requester + 1) % usernames.size();
+        }
+
+        BookExchange exchange;
+        try {
+            exchange = exchangeService.createExchangeRequest(bookId, usernames.get(requester));
+        } catch (BookSwapException e) {
+            if (!"BOOK_NOT_AVAILABLE".equals(e.getErrorCode())) {
+                throw e;
+            }
+            return false;
+        }
+
+        // Пока книга зарезервирована этим потоком, другого открытого обмена по ней быть не может
+        Integer openExchanges = jdbcTemplate.queryForObject(OPEN_EXCHANGES_SQL, Integer.class, bookId);
+        if (openExchanges == null || openExchanges != 1) {
+            violations.incrementAndGet();
+        }
+
+        exchangeService.rejectExchange(exchange.getId(), ownerUsernames[index], null);
+        return true;
+    }
+}
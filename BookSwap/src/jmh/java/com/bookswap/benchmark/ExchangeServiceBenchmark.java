@@ -0,0 +1,61 @@
+package com.bookswap.benchmark;
+
+import com.bookswap.entity.BookExchange;
+import com.bookswap.service.ExchangeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Создание запроса на обмен
+ * Каждый вызов выполняется в транзакции с откатом, поэтому набор данных не меняется между итерациями
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExchangeServiceBenchmark extends BenchmarkState {
+
+    private ExchangeService exchangeService;
+    private TransactionTemplate rollbackTransaction;
+    private List<Long> userIds;
+    private List<String> usernames;
+    private List<long[]> availableBooks;
+
+    @Override
+    protected void prepare() {
+        exchangeService = environment.bean(ExchangeService.class);
+        rollbackTransaction = new TransactionTemplate(environment.bean(PlatformTransactionManager.class));
+        userIds = environment.dataset().userIds();
+        usernames = environment.dataset().usernames();
+        availableBooks = environment.dataset().availableBooks();
+    }
+
+    @Benchmark
+    public BookExchange createExchangeRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] book = availableBooks.get(random.nextInt(availableBooks.size()));
+
+        int requester = random.nextInt(usernames.size());
+        if (userIds.get(requester) == book[1]) {
+            requester = (requester + 1) % usernames.size();
+        }
+        String requesterUsername = usernames.get(requester);
+
+        return rollbackTransaction.execute(status -> {
+            status.setRollbackOnly();
+            return exchangeService.createExchangeRequest(book[0], requesterUsername);
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.bookswap.benchmark;
+
+import com.bookswap.dto.BookCard;
+import com.bookswap.dto.BookDetail;
+import com.bookswap.service.BookReadService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация ответов BookApiController в JSON тем же ObjectMapper, что использует Spring MVC
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ResponseSerializationBenchmark extends BenchmarkState {
+
+    private ObjectMapper objectMapper;
+    private Map<String, Object> listResponse;
+    private Map<String, Object> detailResponse;
+
+    @Override
+    protected void prepare() {
+        objectMapper = environment.bean(ObjectMapper.class);
+        BookReadService bookReadService = environment.bean(BookReadService.class);
+
+        // Те же структуры ответа, что формируют GET /api/books и GET /api/books/{id}
+        Page<BookCard> page = bookReadService.findCards(PageRequest.of(0, 20, Sort.by("createdAt").descending()));
+        listResponse = new HashMap<>();
+        listResponse.put("books", page.getContent());
+        listResponse.put("currentPage", page.getNumber());
+        listResponse.put("totalItems", page.getTotalElements());
+        listResponse.put("totalPages", page.getTotalPages());
+        listResponse.put("hasNext", page.hasNext());
+        listResponse.put("hasPrevious", page.hasPrevious());
+
+        long bookId = environment.dataset().availableBooks().get(0)[0];
+        BookDetail detail = bookReadService.findDetail(bookId).orElseThrow();
+        detailResponse = new HashMap<>();
+        detailResponse.put("book", detail);
+    }
+
+    @Benchmark
+    public byte[] serializeBookList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(listResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeBookDetail() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(detailResponse);
+    }
+}
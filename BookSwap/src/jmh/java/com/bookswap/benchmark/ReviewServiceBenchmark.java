@@ -0,0 +1,62 @@
+package com.bookswap.benchmark;
+
+import com.bookswap.entity.Review;
+import com.bookswap.service.ReviewService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Создание отзыва вместе с обновлением агрегатов рейтинга книги
+ * Каждый вызов выполняется в транзакции с откатом, поэтому набор данных не меняется между итерациями
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReviewServiceBenchmark extends BenchmarkState {
+
+    private ReviewService reviewService;
+    private TransactionTemplate rollbackTransaction;
+    private List<Long> userIds;
+    private List<String> usernames;
+    private List<long[]> availableBooks;
+
+    @Override
+    protected void prepare() {
+        reviewService = environment.bean(ReviewService.class);
+        rollbackTransaction = new TransactionTemplate(environment.bean(PlatformTransactionManager.class));
+        userIds = environment.dataset().userIds();
+        usernames = environment.dataset().usernames();
+        availableBooks = environment.dataset().availableBooks();
+    }
+
+    @Benchmark
+    public Review createReview() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] book = availableBooks.get(random.nextInt(availableBooks.size()));
+
+        int reviewer = random.nextInt(usernames.size());
+        if (userIds.get(reviewer) == book[1]) {
+            reviewer = (reviewer + 1) % usernames.size();
+        }
+        String reviewerUsername = usernames.get(reviewer);
+        int rating = 1 + random.nextInt(5);
+
+        return rollbackTransaction.execute(status -> {
+            status.setRollbackOnly();
+            return reviewService.createReview(book[0], reviewerUsername, rating, "Отзыв для бенчмарка, оценка " + rating);
+        });
+    }
+}
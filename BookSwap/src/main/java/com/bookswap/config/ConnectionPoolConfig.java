@@ -0,0 +1,94 @@
+package com.bookswap.config;
+
+import com.bookswap.datasource.BulkConnectionPool;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * Размер пулов соединений HikariCP
+ * По умолчанию размер выводится из числа ядер сервера БД (ядра * 2 + 1: пока одно соединение ждёт
+ * диск или сеть, ядро обслуживает другое) и ограничивается ёмкостью базы: max_connections за вычетом
+ * резерва, делённые на число экземпляров приложения, без соединений пула выгрузки и импорта.
+ * Явный db-pool.max-size отменяет расчёт. Применяется ко всем пулам Hikari - единственному или
+ * к основному и реплике (datasource-routing)
+ */
+@Configuration
+public class ConnectionPoolConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolConfig.class);
+
+    private static final int MIN_POOL_SIZE = 2;
+
+    /**
+     * Статический метод: постпроцессор создаётся раньше остальных бинов и видит пулы до их запуска
+     */
+    @Bean
+    public static BeanPostProcessor hikariPoolSizing(Environment environment) {
+        int fixedSize = environment.getProperty("db-pool.max-size", Integer.class, 0);
+        int databaseCores = environment.getProperty("db-pool.database-cores", Integer.class, 0);
+        int databaseMaxConnections = environment.getProperty("db-pool.database-max-connections", Integer.class, 100);
+        int reservedConnections = environment.getProperty("db-pool.reserved-connections", Integer.class, 10);
+        int appInstances = environment.getProperty("db-pool.app-instances", Integer.class, 1);
+        int bulkSize = environment.getProperty("db-pool.bulk-size", Integer.class, 3);
+
+        // Ядра машины приложения ничего не говорят о сервере БД: без явного значения размер не рассчитать
+        if (fixedSize <= 0 && databaseCores <= 0) {
+            throw new IllegalStateException("Не задано число ядер сервера БД: укажите db-pool.database-cores "
+                    + "(DB_POOL_DATABASE_CORES) или размер пула db-pool.max-size (DB_POOL_MAX_SIZE)");
+        }
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    int size = fixedSize > 0 ? fixedSize : poolSize(databaseCores, databaseMaxConnections,
+                            reservedConnections, appInstances, bulkSize);
+                    dataSource.setMaximumPoolSize(size);
+                    logger.info("Пул соединений {}: до {} соединений, минимум простаивающих {}", beanName, size,
+                            dataSource.getMinimumIdle() >= 0 ? dataSource.getMinimumIdle() : size);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Пул выгрузки и импорта каталога: основная база, настройки spring.datasource.hikari, свой размер,
+     * без простаивающих соединений и без поиска утечек
+     */
+    @Bean
+    public BulkConnectionPool bulkConnectionPool(DataSourceProperties properties, Environment environment,
+                                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                                 @Value("${db-pool.bulk-size:3}") int bulkSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName("bulk");
+        dataSource.setMaximumPoolSize(Math.max(1, bulkSize));
+        dataSource.setMinimumIdle(0);
+        dataSource.setLeakDetectionThreshold(0);
+        // Пул не бин DataSource, поэтому метрики hikaricp.connections.* (pool=bulk) подключаются здесь
+        meterRegistry.ifAvailable(registry ->
+                dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+        logger.info("Пул соединений выгрузки и импорта: до {} соединений", dataSource.getMaximumPoolSize());
+        return new BulkConnectionPool(dataSource);
+    }
+
+    static int poolSize(int databaseCores, int databaseMaxConnections, int reservedConnections, int appInstances,
+                        int bulkSize) {
+        int byCores = databaseCores * 2 + 1;
+        int byCapacity = (databaseMaxConnections - reservedConnections) / Math.max(1, appInstances) - bulkSize;
+        return Math.max(MIN_POOL_SIZE, Math.min(byCores, byCapacity));
+    }
+}
@@ -0,0 +1,76 @@
+package com.bookswap.config;
+
+import com.bookswap.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Раздельные пулы соединений для основной базы и реплики
+ * Включается параметром datasource-routing.enabled; без него приложение работает с одним пулом
+ * spring.datasource, как раньше. Пул основной базы настраивается теми же spring.datasource.*,
+ * пул реплики - datasource-routing.replica.*
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource-routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    /**
+     * Основная база: запись, работа вне транзакций и миграции Flyway
+     */
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Реплика только для чтения; параметры пула (размер, таймауты) - datasource-routing.replica.hikari.*
+     */
+    @Bean
+    @ConfigurationProperties("datasource-routing.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${datasource-routing.replica.url}") String url,
+                                              @Value("${datasource-routing.replica.username}") String username,
+                                              @Value("${datasource-routing.replica.password}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${datasource-routing.max-lag-ms:2000}") long maxLagMs,
+            @Value("${datasource-routing.lag-check-interval-ms:1000}") long lagCheckIntervalMs) {
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, maxLagMs, lagCheckIntervalMs);
+    }
+
+    /**
+     * Источник для JPA, JdbcTemplate и транзакций. Физическое соединение берётся при первом запросе,
+     * когда признак readOnly транзакции уже известен маршрутизатору
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
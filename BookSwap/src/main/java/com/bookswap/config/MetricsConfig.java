@@ -0,0 +1,23 @@
+package com.bookswap.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Метрики сервисного слоя
+ * Классы сервисов помечены @Timed(SERVICE_TIMER): каждый публичный метод, вызванный через прокси,
+ * попадает в таймер с тегами class, method и exception. Гистограмма включается аннотацией,
+ * её границы задаются management.metrics.distribution.* в application.yml
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String SERVICE_TIMER = "bookswap.service";
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
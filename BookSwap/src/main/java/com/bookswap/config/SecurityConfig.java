@@ -1,11 +1,17 @@
 package com.bookswap.config;
 
 import com.bookswap.service.UserService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManagers;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -14,6 +20,7 @@ import org.springframework.security.config.annotation.web.configurers.AbstractHt
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
 import org.springframework.security.web.header.writers.ReferrerPolicyHeaderWriter;
@@ -26,11 +33,16 @@ public class SecurityConfig {
     
     private final UserService userService;
     private final PasswordEncoder passwordEncoder;
+    // Порт Actuator (management.server.port); -1 - Actuator на порту приложения
+    private final int managementPort;
     
     @Autowired
-    public SecurityConfig(UserService userService, PasswordEncoder passwordEncoder) {
+    public SecurityConfig(UserService userService, PasswordEncoder passwordEncoder,
+                          @Value("${server.port:8080}") int serverPort,
+                          @Value("${management.server.port:-1}") int managementPort) {
         this.userService = userService;
         this.passwordEncoder = passwordEncoder;
+        this.managementPort = managementPort > 0 && managementPort != serverPort ? managementPort : -1;
     }
     
     @Bean
@@ -54,11 +66,24 @@ public class SecurityConfig {
         return handler;
     }
     
+    /**
+     * На порту Actuator нет входа через форму, а слушает он только внутренний адрес (management.server.address),
+     * поэтому сборщик Prometheus и запросы /actuator/metrics пускаются туда без входа. Адрес клиента для этого
+     * не годится: за nginx на той же машине все запросы приходят с 127.0.0.1
+     */
+    private AuthorizationManager<RequestAuthorizationContext> managementPortAccess() {
+        return (authentication, context) -> new AuthorizationDecision(
+                managementPort > 0 && context.getRequest().getLocalPort() == managementPort);
+    }
+    
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
             // Настройка авторизации
             .authorizeHttpRequests(authz -> authz
+                // Асинхронные диспетчеризации (завершение потоков SSE) уже прошли авторизацию
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                
                 // Публичные страницы
                 .requestMatchers("/", "/home", "/books", "/books/search", "/books/*/view").permitAll()
                 .requestMatchers("/register", "/login", "/forgot-password").permitAll()
@@ -75,6 +100,8 @@ public class SecurityConfig {
                 // Административные страницы
                 .requestMatchers("/admin/**").hasRole("ADMIN")
                 .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                .requestMatchers("/actuator/**").access(AuthorizationManagers.anyOf(
+                        managementPortAccess(), AuthorityAuthorizationManager.hasRole("ADMIN")))
                 
                 // Модераторские страницы
                 .requestMatchers("/moderate/**").hasAnyRole("ADMIN", "MODERATOR")
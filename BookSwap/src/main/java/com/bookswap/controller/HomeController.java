@@ -1,7 +1,9 @@
 package com.bookswap.controller;
 
-import com.bookswap.entity.Book;
-import com.bookswap.service.BookService;
+import com.bookswap.dto.BookCard;
+import com.bookswap.dto.HomePageSnapshot;
+import com.bookswap.service.BookReadService;
+import com.bookswap.service.HomePageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,8 +16,6 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import java.util.List;
-
 /**
  * Контроллер для главных страниц приложения
  * Отвечает только за обработку HTTP запросов и передачу управления сервисам
@@ -25,29 +25,24 @@ public class HomeController {
     
     private static final Logger logger = LoggerFactory.getLogger(HomeController.class);
     
-    private final BookService bookService;
+    private final BookReadService bookReadService;
+    private final HomePageService homePageService;
     
     @Autowired
-    public HomeController(BookService bookService) {
-        this.bookService = bookService;
+    public HomeController(BookReadService bookReadService, HomePageService homePageService) {
+        this.bookReadService = bookReadService;
+        this.homePageService = homePageService;
     }
     
     @GetMapping("/")
     public String home(Model model) {
-        // Получаем последние добавленные книги
-        Pageable pageable = PageRequest.of(0, 8, Sort.by("createdAt").descending());
-        Page<Book> recentBooks = bookService.findAll(pageable);
-        
-        // Получаем популярные книги (с высоким рейтингом)
-        List<Book> popularBooks = bookService.findBooksWithHighRating(4.0);
-        
-        // Получаем доступные для обмена книги
-        List<Book> availableBooks = bookService.findBooksByStatus(Book.ExchangeStatus.AVAILABLE);
+        // Секции главной страницы берутся из снимка в памяти, без запросов к БД
+        HomePageSnapshot snapshot = homePageService.getSnapshot();
         
-        model.addAttribute("recentBooks", recentBooks.getContent());
-        model.addAttribute("popularBooks", popularBooks.subList(0, Math.min(6, popularBooks.size())));
-        model.addAttribute("availableBooks", availableBooks.subList(0, Math.min(12, availableBooks.size())));
-        model.addAttribute("totalBooks", bookService.countBooksByStatus(Book.ExchangeStatus.AVAILABLE));
+        model.addAttribute("recentBooks", snapshot.getRecentBooks());
+        model.addAttribute("popularBooks", snapshot.getPopularBooks());
+        model.addAttribute("availableBooks", snapshot.getAvailableBooks());
+        model.addAttribute("totalBooks", snapshot.getTotalBooks());
         
         return "home";
     }
@@ -67,13 +62,13 @@ public class HomeController {
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
         
-        Page<Book> booksPage;
+        Page<BookCard> booksPage;
         
         // Если есть параметры поиска, используем поиск
         if (title != null || author != null || genre != null) {
-            booksPage = bookService.searchBooks(title, author, genre, pageable);
+            booksPage = bookReadService.searchCards(title, author, genre, pageable);
         } else {
-            booksPage = bookService.findAll(pageable);
+            booksPage = bookReadService.findCards(pageable);
         }
         
         model.addAttribute("books", booksPage);
@@ -101,7 +96,7 @@ public class HomeController {
         }
         
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Book> searchResults = bookService.searchBooksByTitle(q.trim(), pageable);
+        Page<BookCard> searchResults = bookReadService.fullTextSearchCards(q.trim(), pageable);
         
         model.addAttribute("books", searchResults);
         model.addAttribute("searchQuery", q);
@@ -0,0 +1,156 @@
+package com.bookswap.controller.api;
+
+import com.bookswap.datasource.ReadWriteRoutingDataSource;
+import com.bookswap.entity.Book;
+import com.bookswap.entity.Genre;
+import com.bookswap.exception.BookSwapException;
+import com.bookswap.exporter.BookExportService;
+import com.bookswap.exporter.BookExportWriter;
+import com.bookswap.matching.SwapMatchingEngine;
+import com.bookswap.notification.ExchangeNotificationHub;
+import com.bookswap.search.BookSearchIndex;
+import com.bookswap.service.CacheStatisticsService;
+import com.bookswap.service.ExchangeExpiryService;
+import com.bookswap.service.ReviewService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * REST API для администрирования: служебная статистика приложения и выгрузка каталога
+ */
+@RestController
+@RequestMapping("/api/admin")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Administration", description = "Служебное API администратора")
+public class AdminApiController {
+
+    private final CacheStatisticsService cacheStatisticsService;
+    private final ExchangeExpiryService exchangeExpiryService;
+    private final SwapMatchingEngine swapMatchingEngine;
+    private final ExchangeNotificationHub notificationHub;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookExportService bookExportService;
+    private final ReviewService reviewService;
+    private final ObjectProvider<ReadWriteRoutingDataSource> routingDataSource;
+
+    @Autowired
+    public AdminApiController(CacheStatisticsService cacheStatisticsService,
+                              ExchangeExpiryService exchangeExpiryService,
+                              SwapMatchingEngine swapMatchingEngine,
+                              ExchangeNotificationHub notificationHub,
+                              BookSearchIndex bookSearchIndex,
+                              BookExportService bookExportService,
+                              ReviewService reviewService,
+                              ObjectProvider<ReadWriteRoutingDataSource> routingDataSource) {
+        this.cacheStatisticsService = cacheStatisticsService;
+        this.exchangeExpiryService = exchangeExpiryService;
+        this.swapMatchingEngine = swapMatchingEngine;
+        this.notificationHub = notificationHub;
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookExportService = bookExportService;
+        this.reviewService = reviewService;
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Operation(summary = "Статистика кэша второго уровня", description = "Попадания, промахи и доля попаданий по регионам")
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(cacheStatisticsService.getSecondLevelCacheStats());
+    }
+
+    @Operation(summary = "Статистика отмены просроченных обменов", description = "Отменённые обмены, освобождённые книги, пропуски из-за работы другого узла")
+    @GetMapping("/exchange-expiry/stats")
+    public ResponseEntity<Map<String, Object>> getExchangeExpiryStats() {
+        return ResponseEntity.ok(exchangeExpiryService.getStats());
+    }
+
+    @Operation(summary = "Статистика подбора обменов", description = "Размер графа запросов, найденные и активные предложения обмена по кругу")
+    @GetMapping("/swap-matching/stats")
+    public ResponseEntity<Map<String, Object>> getSwapMatchingStats() {
+        return ResponseEntity.ok(swapMatchingEngine.getStats());
+    }
+
+    @Operation(summary = "Статистика потоков уведомлений", description = "Открытые SSE-соединения, отправленные события, отключения из-за переполнения и запросы resync")
+    @GetMapping("/notifications/stats")
+    public ResponseEntity<Map<String, Object>> getNotificationStats() {
+        return ResponseEntity.ok(notificationHub.getStats());
+    }
+
+    @Operation(summary = "Статистика поискового индекса", description = "Число книг в индексе и поиски, в которых префикс раскрылся не во все подходящие термины")
+    @GetMapping("/search-index/stats")
+    public ResponseEntity<Map<String, Object>> getSearchIndexStats() {
+        return ResponseEntity.ok(bookSearchIndex.getStats());
+    }
+
+    @Operation(summary = "Статистика чтения с реплики", description = "Доступность и отставание реплики, чтения с реплики и из основной базы (datasource-routing)")
+    @GetMapping("/datasource-routing/stats")
+    public ResponseEntity<Map<String, Object>> getDataSourceRoutingStats() {
+        ReadWriteRoutingDataSource routing = routingDataSource.getIfAvailable();
+        return ResponseEntity.ok(routing != null ? routing.getStats() : Map.of("enabled", false));
+    }
+
+    @Operation(summary = "Модерация отзыва", description = "Одобрение или снятие одобрения отзыва; в рейтинге книги учитываются только одобренные отзывы")
+    @PutMapping("/reviews/{reviewId}/approval")
+    public ResponseEntity<Map<String, Object>> moderateReview(
+            @Parameter(description = "ID отзыва") @PathVariable Long reviewId,
+            @Parameter(description = "Одобрить (true) или снять одобрение (false)") @RequestParam boolean approved) {
+        reviewService.moderateReview(reviewId, approved);
+        return ResponseEntity.ok(Map.of("reviewId", reviewId, "approved", approved));
+    }
+
+    @Operation(summary = "Выгрузка каталога", description = "Все книги каталога потоком в NDJSON или CSV, с фильтрами по статусу, языку и жанру и необязательным сжатием gzip")
+    @GetMapping("/books/export")
+    public void exportBooks(
+            @Parameter(description = "Формат: ndjson или csv") @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "Статус обмена книги") @RequestParam(required = false) Book.ExchangeStatus status,
+            @Parameter(description = "Язык книги") @RequestParam(required = false) String language,
+            @Parameter(description = "Название жанра") @RequestParam(required = false) String genre,
+            @Parameter(description = "Сжать выгрузку gzip") @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+
+        BookExportWriter.Format exportFormat;
+        try {
+            exportFormat = BookExportWriter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new BookSwapException("UNSUPPORTED_EXPORT_FORMAT",
+                    "Unsupported export format: " + format, HttpStatus.BAD_REQUEST);
+        }
+
+        Genre genreFilter = null;
+        if (genre != null && !genre.isBlank()) {
+            genreFilter = bookExportService.findGenre(genre.trim())
+                    .orElseThrow(() -> new BookSwapException("GENRE_NOT_FOUND",
+                            "Genre " + genre + " not found", HttpStatus.BAD_REQUEST));
+        }
+        String languageFilter = language != null && !language.isBlank() ? language.trim() : null;
+
+        // Фильтры проверены до первого байта: дальше статус ответа уже не изменить, и ответ пишется
+        // напрямую в поток сервлета без буферизации всей выгрузки
+        String fileName = "books." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : exportFormat.getContentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+
+        try (BookExportWriter writer = BookExportWriter.open(exportFormat, response.getOutputStream(), gzip)) {
+            bookExportService.export(status, languageFilter, genreFilter, writer);
+        }
+    }
+}
@@ -1,8 +1,18 @@
 package com.bookswap.controller.api;
 
+import com.bookswap.dto.BookCard;
+import com.bookswap.dto.CachedPrincipal;
+import com.bookswap.dto.BookCursor;
+import com.bookswap.dto.BookDetail;
+import com.bookswap.dto.KeysetPage;
 import com.bookswap.entity.Book;
 import com.bookswap.entity.User;
+import com.bookswap.exception.BookSwapException;
+import com.bookswap.importer.BookImportReader;
+import com.bookswap.importer.BookImportService;
+import com.bookswap.service.BookReadService;
 import com.bookswap.service.BookService;
+import com.bookswap.service.ExternalApiService;
 import com.bookswap.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -23,6 +33,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,14 +46,23 @@ import java.util.Optional;
 public class BookApiController {
     
     private static final Logger logger = LoggerFactory.getLogger(BookApiController.class);
-    
+
+    private static final int MAX_KEYSET_PAGE_SIZE = 100;
+
     private final BookService bookService;
+    private final BookReadService bookReadService;
     private final UserService userService;
+    private final ExternalApiService externalApiService;
+    private final BookImportService bookImportService;
     
     @Autowired
-    public BookApiController(BookService bookService, UserService userService) {
+    public BookApiController(BookService bookService, BookReadService bookReadService, UserService userService,
+                             ExternalApiService externalApiService, BookImportService bookImportService) {
         this.bookService = bookService;
+        this.bookReadService = bookReadService;
         this.userService = userService;
+        this.externalApiService = externalApiService;
+        this.bookImportService = bookImportService;
     }
     
     @Operation(summary = "Получить все книги", description = "Возвращает постраничный список всех книг")
@@ -61,7 +82,7 @@ public class BookApiController {
                     Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
             Pageable pageable = PageRequest.of(page, size, sort);
             
-            Page<Book> booksPage = bookService.findAll(pageable);
+            Page<BookCard> booksPage = bookReadService.findCards(pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("books", booksPage.getContent());
@@ -92,7 +113,7 @@ public class BookApiController {
             @Parameter(description = "ID книги") @PathVariable Long id) {
         
         try {
-            Optional<Book> bookOpt = bookService.findById(id);
+            Optional<BookDetail> bookOpt = bookReadService.findDetail(id);
             
             if (bookOpt.isPresent()) {
                 Map<String, Object> response = new HashMap<>();
@@ -128,7 +149,7 @@ public class BookApiController {
         
         try {
             // Получаем текущего пользователя
-            Optional<User> userOpt = userService.findByUsername(authentication.getName());
+            Optional<User> userOpt = userService.findReferenceByUsername(authentication.getName());
             if (userOpt.isEmpty()) {
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("error", "Пользователь не найден");
@@ -139,7 +160,7 @@ public class BookApiController {
             Book savedBook = bookService.createBook(book);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("book", savedBook);
+            response.put("book", bookReadService.findDetail(savedBook.getId()).orElse(null));
             response.put("message", "Книга успешно создана");
             
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -153,6 +174,47 @@ public class BookApiController {
         }
     }
     
+    @Operation(summary = "Импортировать книги",
+               description = "Создаёт книги текущего пользователя из CSV (text/csv, первая строка - заголовок) " +
+                             "или NDJSON (application/x-ndjson, объект на строку). Поля: title, isbn, authors, " +
+                             "genres, publisher, publication_year, page_count, language, estimated_price, " +
+                             "description; авторы и жанры в CSV перечисляются через ';'. " +
+                             "Возвращает результат по каждой строке файла")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Файл обработан, ошибки строк перечислены в отчёте"),
+        @ApiResponse(responseCode = "401", description = "Пользователь не аутентифицирован"),
+        @ApiResponse(responseCode = "415", description = "Неподдерживаемый формат файла")
+    })
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<Map<String, Object>> importBooks(
+            @RequestHeader("Content-Type") String contentType,
+            InputStream body,
+            Authentication authentication) {
+        
+        Optional<CachedPrincipal> principalOpt = userService.findPrincipal(authentication.getName());
+        if (principalOpt.isEmpty()) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Пользователь не найден");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(errorResponse);
+        }
+        
+        BookImportReader.Format format = contentType.toLowerCase().startsWith("text/csv")
+                ? BookImportReader.Format.CSV : BookImportReader.Format.NDJSON;
+        // Тело запроса читается потоком по мере записи порций, без загрузки файла целиком
+        try (BookImportReader reader = BookImportReader.open(format, body)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("report", bookImportService.importBooks(principalOpt.get().getId(), reader));
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            logger.error("Ошибка при импорте книг", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Ошибка при импорте книг");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
+    }
+    
     @Operation(summary = "Обновить книгу", description = "Обновляет информацию о книге")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Книга успешно обновлена"),
@@ -178,10 +240,10 @@ public class BookApiController {
             Book existingBook = existingBookOpt.get();
             
             // Проверяем, что пользователь является владельцем книги или администратором
-            Optional<User> userOpt = userService.findByUsername(authentication.getName());
-            if (userOpt.isEmpty() || 
-                (!existingBook.getOwner().getId().equals(userOpt.get().getId()) && 
-                 !userOpt.get().getRole().equals(User.Role.ADMIN))) {
+            Optional<CachedPrincipal> principalOpt = userService.findPrincipal(authentication.getName());
+            if (principalOpt.isEmpty() || 
+                (!existingBook.getOwner().getId().equals(principalOpt.get().getId()) && 
+                 !principalOpt.get().getRole().equals(User.Role.ADMIN))) {
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("error", "Нет прав для редактирования этой книги");
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
@@ -192,7 +254,7 @@ public class BookApiController {
             Book updatedBook = bookService.updateBook(book);
             
             Map<String, Object> response = new HashMap<>();
-            response.put("book", updatedBook);
+            response.put("book", bookReadService.findDetail(updatedBook.getId()).orElse(null));
             response.put("message", "Книга успешно обновлена");
             
             return ResponseEntity.ok(response);
@@ -229,10 +291,10 @@ public class BookApiController {
             Book book = bookOpt.get();
             
             // Проверяем права доступа
-            Optional<User> userOpt = userService.findByUsername(authentication.getName());
-            if (userOpt.isEmpty() || 
-                (!book.getOwner().getId().equals(userOpt.get().getId()) && 
-                 !userOpt.get().getRole().equals(User.Role.ADMIN))) {
+            Optional<CachedPrincipal> principalOpt = userService.findPrincipal(authentication.getName());
+            if (principalOpt.isEmpty() || 
+                (!book.getOwner().getId().equals(principalOpt.get().getId()) && 
+                 !principalOpt.get().getRole().equals(User.Role.ADMIN))) {
                 Map<String, Object> errorResponse = new HashMap<>();
                 errorResponse.put("error", "Нет прав для удаления этой книги");
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
@@ -265,7 +327,7 @@ public class BookApiController {
         
         try {
             Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-            Page<Book> searchResults = bookService.searchBooks(title, author, genre, pageable);
+            Page<BookCard> searchResults = bookReadService.searchCards(title, author, genre, pageable);
             
             Map<String, Object> response = new HashMap<>();
             response.put("books", searchResults.getContent());
@@ -289,35 +351,36 @@ public class BookApiController {
         }
     }
     
-    @Operation(summary = "Получить доступные книги", description = "Возвращает список книг, доступных для обмена")
+    @Operation(summary = "Получить доступные книги",
+               description = "Возвращает список книг, доступных для обмена, с курсорной пагинацией")
     @GetMapping("/available")
     public ResponseEntity<Map<String, Object>> getAvailableBooks(
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Курсор следующей страницы из предыдущего ответа")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы") @RequestParam(defaultValue = "10") int size,
             Authentication authentication) {
-        
+
         try {
-            Optional<User> userOpt = userService.findByUsername(authentication.getName());
-            Long userId = userOpt.map(User::getId).orElse(null);
-            
-            List<Book> availableBooks = userId != null ? 
-                    bookService.findAvailableBooksForUser(userId) :
-                    bookService.findBooksByStatus(Book.ExchangeStatus.AVAILABLE);
-            
-            // Простая пагинация для списка
-            int start = page * size;
-            int end = Math.min(start + size, availableBooks.size());
-            List<Book> pageContent = start < availableBooks.size() ? 
-                    availableBooks.subList(start, end) : List.of();
-            
+            Optional<CachedPrincipal> principalOpt = userService.findPrincipal(authentication.getName());
+            Long userId = principalOpt.map(CachedPrincipal::getId).orElse(null);
+
+            int pageSize = Math.max(1, Math.min(size, MAX_KEYSET_PAGE_SIZE));
+            KeysetPage<BookCard> availableBooks = bookReadService.findAvailableCards(
+                    userId, BookCursor.decode(cursor), pageSize);
+
             Map<String, Object> response = new HashMap<>();
-            response.put("books", pageContent);
-            response.put("currentPage", page);
-            response.put("totalItems", availableBooks.size());
-            response.put("totalPages", (int) Math.ceil((double) availableBooks.size() / size));
-            
+            response.put("books", availableBooks.getContent());
+            response.put("size", pageSize);
+            response.put("hasNext", availableBooks.hasNext());
+            response.put("nextCursor", availableBooks.getNextCursor());
+
             return ResponseEntity.ok(response);
-            
+
+        } catch (BookSwapException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getErrorCode());
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(e.getStatus()).body(errorResponse);
         } catch (Exception e) {
             logger.error("Ошибка при получении доступных книг", e);
             Map<String, Object> errorResponse = new HashMap<>();
@@ -326,4 +389,44 @@ public class BookApiController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
-} 
\ No newline at end of file
+
+    @Operation(summary = "Найти информацию о книге по ISBN",
+               description = "Возвращает данные книги из внешнего каталога для заполнения карточки; результаты кэшируются")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Информация о книге найдена"),
+        @ApiResponse(responseCode = "404", description = "Книга с таким ISBN не найдена")
+    })
+    @GetMapping("/isbn/{isbn}")
+    public ResponseEntity<Map<String, Object>> lookupByIsbn(
+            @Parameter(description = "ISBN-10 или ISBN-13") @PathVariable String isbn) {
+
+        try {
+            ExternalApiService.BookInfo bookInfo = externalApiService.searchBookInfo(isbn);
+
+            if (bookInfo != null) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("bookInfo", bookInfo);
+                return ResponseEntity.ok(response);
+            } else {
+                Map<String, Object> errorResponse = new HashMap<>();
+                errorResponse.put("error", "Книга не найдена");
+                errorResponse.put("message", "Информация о книге с ISBN " + isbn + " не найдена");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+            }
+
+        } catch (Exception e) {
+            logger.error("Ошибка при поиске книги по ISBN: " + isbn, e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Ошибка при поиске книги по ISBN");
+            errorResponse.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    @Operation(summary = "Статистика кэша ISBN", description = "Попадания, промахи и размер кэша поиска по ISBN")
+    @GetMapping("/isbn-cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getIsbnCacheStats() {
+        return ResponseEntity.ok(externalApiService.getBookInfoCacheStats());
+    }
+}
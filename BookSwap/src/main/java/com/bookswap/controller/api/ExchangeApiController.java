@@ -1,7 +1,15 @@
 package com.bookswap.controller.api;
 
+import com.bookswap.dto.CachedPrincipal;
+import com.bookswap.dto.ExchangeInboxCursor;
+import com.bookswap.dto.KeysetPage;
 import com.bookswap.entity.BookExchange;
+import com.bookswap.entity.ExchangeInboxEntry;
+import com.bookswap.exception.BookSwapException;
+import com.bookswap.matching.SwapProposal;
+import com.bookswap.notification.ExchangeNotificationHub;
 import com.bookswap.service.ExchangeService;
+import com.bookswap.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,14 +19,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * REST API контроллер для управления обменами книг
@@ -31,11 +42,20 @@ public class ExchangeApiController {
 
     private static final Logger logger = LoggerFactory.getLogger(ExchangeApiController.class);
 
+    private static final int MAX_BULK_SIZE = 500;
+    private static final int MAX_INBOX_PAGE_SIZE = 100;
+
     private final ExchangeService exchangeService;
+    private final ExchangeNotificationHub notificationHub;
+    private final UserService userService;
 
     @Autowired
-    public ExchangeApiController(ExchangeService exchangeService) {
+    public ExchangeApiController(ExchangeService exchangeService,
+                                 ExchangeNotificationHub notificationHub,
+                                 UserService userService) {
         this.exchangeService = exchangeService;
+        this.notificationHub = notificationHub;
+        this.userService = userService;
     }
 
     /**
@@ -170,12 +190,119 @@ public class ExchangeApiController {
         }
     }
 
+    /**
+     * Массовое одобрение входящих запросов
+     */
+    @PutMapping("/bulk/approve")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(summary = "Одобрить несколько запросов", description = "Одобряет входящие запросы на обмен одной операцией")
+    public ResponseEntity<Map<String, Object>> approveExchanges(
+            @Parameter(description = "ID обменов") @RequestParam List<Long> exchangeIds,
+            Authentication authentication) {
+
+        try {
+            String username = authentication.getName();
+            int approved = exchangeService.approveExchanges(checkBulkSize(exchangeIds), username);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("requested", exchangeIds.size());
+            response.put("approved", approved);
+
+            logger.info("{} exchanges approved by user {}", approved, username);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Error approving exchanges {}: {}", exchangeIds, e.getMessage());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Массовое отклонение входящих запросов
+     */
+    @PutMapping("/bulk/reject")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(summary = "Отклонить несколько запросов", description = "Отклоняет входящие запросы на обмен одной операцией")
+    public ResponseEntity<Map<String, Object>> rejectExchanges(
+            @Parameter(description = "ID обменов") @RequestParam List<Long> exchangeIds,
+            @Parameter(description = "Причина отклонения") @RequestParam(required = false) String reason,
+            Authentication authentication) {
+
+        try {
+            String username = authentication.getName();
+            int rejected = exchangeService.rejectExchanges(checkBulkSize(exchangeIds), username, reason);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("requested", exchangeIds.size());
+            response.put("rejected", rejected);
+
+            logger.info("{} exchanges rejected by user {}", rejected, username);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Error rejecting exchanges {}: {}", exchangeIds, e.getMessage());
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Обмены пользователя из проекции exchange_inbox с курсорной пагинацией
+     */
+    @GetMapping("/inbox")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(summary = "Получить мои обмены",
+               description = "Входящие и исходящие обмены текущего пользователя с названием книги и вторым участником, от недавно изменённых")
+    public ResponseEntity<Map<String, Object>> getInbox(
+            @Parameter(description = "Курсор следующей страницы из предыдущего ответа")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы") @RequestParam(defaultValue = "20") int size,
+            Authentication authentication) {
+
+        try {
+            int pageSize = Math.max(1, Math.min(size, MAX_INBOX_PAGE_SIZE));
+            KeysetPage<ExchangeInboxEntry> inbox = exchangeService.getInbox(
+                    authentication.getName(), ExchangeInboxCursor.decode(cursor), pageSize);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("exchanges", inbox.getContent());
+            response.put("size", pageSize);
+            response.put("hasNext", inbox.hasNext());
+            response.put("nextCursor", inbox.getNextCursor());
+
+            return ResponseEntity.ok(response);
+
+        } catch (BookSwapException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(e.getStatus()).body(response);
+        } catch (Exception e) {
+            logger.error("Error retrieving exchange inbox: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Получение обменов пользователя
+     * Устарело: OR по двум внешним ключам и полные сущности; используйте /inbox
      */
+    @Deprecated
     @GetMapping("/my")
     @PreAuthorize("hasRole('USER')")
-    @Operation(summary = "Получить мои обмены", description = "Возвращает все обмены текущего пользователя")
+    @Operation(summary = "Получить мои обмены (устарело)", description = "Возвращает все обмены текущего пользователя; заменено на /inbox",
+               deprecated = true)
     public ResponseEntity<Page<BookExchange>> getUserExchanges(
             Authentication authentication,
             Pageable pageable) {
@@ -235,6 +362,54 @@ public class ExchangeApiController {
         }
     }
 
+    /**
+     * Поток уведомлений об изменениях обменов пользователя (Server-Sent Events)
+     * Заменяет опрос /incoming и /outgoing; после переподключения браузер передаёт Last-Event-ID
+     * и получает пропущенные события, а при событии resync клиент перечитывает списки
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER')")
+    @Operation(summary = "Поток уведомлений об обменах",
+               description = "Server-Sent Events: создание запросов и смена статусов обменов, где пользователь владелец или запросивший")
+    public ResponseEntity<SseEmitter> streamExchangeEvents(
+            @Parameter(description = "ID последнего полученного события")
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            Authentication authentication) {
+
+        Optional<CachedPrincipal> principalOpt = userService.findPrincipal(authentication.getName());
+        if (principalOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        logger.debug("Opening exchange event stream for user {}", authentication.getName());
+        return ResponseEntity.ok()
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(notificationHub.subscribe(principalOpt.get().getId(), lastEventId));
+    }
+
+    /**
+     * Предложения обмена по кругу
+     */
+    @GetMapping("/swap-proposals")
+    @PreAuthorize("hasRole('USER')")
+    @Operation(summary = "Получить предложения обмена по кругу",
+               description = "Возвращает найденные цепочки обменов книга на книгу, в которых участвует пользователь")
+    public ResponseEntity<List<SwapProposal>> getSwapProposals(Authentication authentication) {
+
+        try {
+            String username = authentication.getName();
+            List<SwapProposal> proposals = exchangeService.getSwapProposals(username);
+
+            logger.debug("Retrieved {} swap proposals for user {}", proposals.size(), username);
+            return ResponseEntity.ok(proposals);
+
+        } catch (Exception e) {
+            logger.error("Error retrieving swap proposals: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Получение конкретного обмена
      */
@@ -258,4 +433,11 @@ public class ExchangeApiController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-} 
\ No newline at end of file
+
+    private static List<Long> checkBulkSize(List<Long> exchangeIds) {
+        if (exchangeIds.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("Too many exchanges in one request: maximum is " + MAX_BULK_SIZE);
+        }
+        return exchangeIds;
+    }
+}
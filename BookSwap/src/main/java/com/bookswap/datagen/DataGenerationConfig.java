@@ -0,0 +1,46 @@
+package com.bookswap.datagen;
+
+/**
+ * Размер и зерно синтетического набора данных
+ * Одинаковые параметры на пустой базе дают одинаковые данные
+ */
+public final class DataGenerationConfig {
+
+    private final int users;
+    private final int books;
+    private final int authors;
+    private final int reviews;
+    private final long seed;
+
+    public DataGenerationConfig(int users, int books, int authors, int reviews, long seed) {
+        if (users < 2 || books < 1 || authors < 1 || reviews < 0) {
+            throw new IllegalArgumentException("Нужно не менее 2 пользователей, 1 книги и 1 автора");
+        }
+        this.users = users;
+        this.books = books;
+        this.authors = authors;
+        this.reviews = reviews;
+        this.seed = seed;
+    }
+
+    public int getUsers() { return users; }
+
+    public int getBooks() { return books; }
+
+    public int getAuthors() { return authors; }
+
+    public int getReviews() { return reviews; }
+
+    public long getSeed() { return seed; }
+
+    @Override
+    public String toString() {
+        return "DataGenerationConfig{" +
+                "users=" + users +
+                ", books=" + books +
+                ", authors=" + authors +
+                ", reviews=" + reviews +
+                ", seed=" + seed +
+                '}';
+    }
+}
@@ -0,0 +1,50 @@
+package com.bookswap.datagen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Запуск генерации данных при старте с профилем datagen; после записи приложение завершается
+ * mvn spring-boot:run -Dspring-boot.run.profiles=datagen -Dspring-boot.run.arguments=--datagen.books=1000000
+ */
+@Component
+@Profile("datagen")
+public class DataGeneratorRunner implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataGeneratorRunner.class);
+
+    private final SyntheticDataGenerator generator;
+    private final ConfigurableApplicationContext context;
+    private final DataGenerationConfig config;
+
+    @Autowired
+    public DataGeneratorRunner(SyntheticDataGenerator generator,
+                               ConfigurableApplicationContext context,
+                               @Value("${datagen.users:100000}") int users,
+                               @Value("${datagen.books:1000000}") int books,
+                               @Value("${datagen.authors:50000}") int authors,
+                               @Value("${datagen.reviews:2000000}") int reviews,
+                               @Value("${datagen.seed:42}") long seed) {
+        this.generator = generator;
+        this.context = context;
+        this.config = new DataGenerationConfig(users, books, authors, reviews, seed);
+    }
+
+    @Override
+    public void run(String... args) {
+        try {
+            generator.generate(config);
+        } catch (RuntimeException e) {
+            logger.error("Генерация синтетических данных завершилась ошибкой", e);
+            System.exit(SpringApplication.exit(context, () -> 1));
+        }
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,484 @@
+package com.bookswap.datagen;
+
+import com.bookswap.service.ExchangeService;
+import com.bookswap.service.ReviewService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Генератор больших синтетических наборов данных для нагрузочных тестов и бенчмарков
+ * Строки пишутся потоково через COPY в одной транзакции, идентификаторы назначаются явно
+ * начиная с текущего максимума, после чего сдвигаются последовательности.
+ * Распределения приближены к реальным: небольшая доля пользователей владеет большинством книг,
+ * популярные жанры, авторы и книги встречаются заметно чаще остальных.
+ * Каждая сущность получает собственный генератор случайных чисел от (seed, номер),
+ * поэтому связанные таблицы согласованы между проходами, а результат воспроизводим
+ */
+@Component
+public class SyntheticDataGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    // BCrypt-хэш пароля "password", как в data.sql
+    private static final String PASSWORD_HASH = "$2a$10$YQDQbWGGqRwEa0TlECX.veSEP4fjw6GW0XqG6EZU1XhFQsM.YJUvm";
+
+    private static final String[] TITLE_WORDS = {
+        "Тайна", "Война", "Мир", "Дом", "Сад", "Ночь", "Город", "Море", "Дорога", "Память",
+        "Песнь", "Остров", "Звезда", "Зима", "Лето", "Сердце", "Время", "Тень", "Свет", "Река"
+    };
+    private static final String[] TITLE_TAILS = {
+        "над пропастью", "в тумане", "без конца", "на краю света", "из прошлого",
+        "и пепел", "у моря", "среди звёзд", "и надежда", "навсегда"
+    };
+    private static final String[] FIRST_NAMES = {
+        "Александр", "Мария", "Иван", "Анна", "Сергей", "Ольга", "Дмитрий", "Елена", "Михаил", "Наталья"
+    };
+    private static final String[] LAST_NAMES = {
+        "Иванов", "Смирнова", "Кузнецов", "Попова", "Соколов", "Лебедева", "Козлов", "Новикова",
+        "Морозов", "Петрова", "Волков", "Соловьёва", "Васильев", "Зайцева", "Павлов", "Семёнова"
+    };
+    // В порядке убывания популярности
+    private static final String[] GENRES = {
+        "Роман", "Фантастика", "Фэнтези", "Детектив", "Триллер", "Ужасы", "Поэзия", "Драма",
+        "Историческая проза", "Приключения", "Биография", "Научпоп", "Философия", "Психология",
+        "Классика", "Детская литература", "Юмор", "Мистика", "Антиутопия", "Публицистика"
+    };
+    private static final String[] CITIES = {
+        "Москва", "Санкт-Петербург", "Новосибирск", "Екатеринбург", "Казань", "Нижний Новгород",
+        "Самара", "Ростов-на-Дону", "Краснодар", "Пермь"
+    };
+    private static final String[] PUBLISHERS = {"АСТ", "Эксмо", "Азбука", "МИФ", "Альпина", "Питер"};
+    private static final String[] REVIEW_TITLES = {
+        "Отличная книга", "Рекомендую", "Неплохо", "На один раз", "Разочарование",
+        "Перечитаю ещё", "Сильный финал", "Затянуто"
+    };
+    private static final String[] CONDITIONS = {"EXCELLENT", "GOOD", "FAIR", "POOR"};
+    private static final String[] MEETING_PLACES = {
+        "Библиотека", "Кофейня у метро", "Книжный магазин", "Парк", "Торговый центр"
+    };
+
+    // Соли разделяют последовательности случайных чисел разных таблиц
+    private static final long USER_SALT = 1;
+    private static final long AUTHOR_SALT = 2;
+    private static final long BOOK_SALT = 3;
+    private static final long REVIEW_SALT = 4;
+
+    private static final int HISTORY_DAYS = 3 * 365;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReviewService reviewService;
+    private final ExchangeService exchangeService;
+
+    @Autowired
+    public SyntheticDataGenerator(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                  ReviewService reviewService, ExchangeService exchangeService) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.reviewService = reviewService;
+        this.exchangeService = exchangeService;
+    }
+
+    /**
+     * Добавляет в базу набор данных заданного размера; возвращает число записанных строк по таблицам
+     * При ошибке транзакция откатывается целиком
+     */
+    public Map<String, Long> generate(DataGenerationConfig config) {
+        logger.info("Генерация синтетических данных: {}", config);
+        long started = System.nanoTime();
+
+        Map<String, Long> rows;
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                rows = new Generation(connection, config).run();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Ошибка при генерации синтетических данных: " + e.getMessage(), e);
+        }
+
+        reviewService.recalculateRatingAggregates();
+        exchangeService.backfillInbox();
+        // Свежая статистика планировщика, иначе первые запросы к новым данным строятся по пустым таблицам
+        jdbcTemplate.execute("ANALYZE users, authors, genres, book_conditions, books, " +
+                "book_authors, book_genres, book_exchanges, exchange_inbox, reviews");
+
+        logger.info("Синтетические данные записаны за {} с: {}",
+                (System.nanoTime() - started) / 1_000_000_000, rows);
+        return rows;
+    }
+
+    public static String[] titleWords() {
+        return TITLE_WORDS.clone();
+    }
+
+    public static String[] authorLastNames() {
+        return LAST_NAMES.clone();
+    }
+
+    public static String[] genreNames() {
+        return GENRES.clone();
+    }
+
+    /**
+     * Один запуск генерации: базовые идентификаторы и справочники фиксируются в начале
+     */
+    private static final class Generation {
+
+        private final Connection connection;
+        private final DataGenerationConfig config;
+        private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        private final LocalDateTime historyStart = now.minusDays(HISTORY_DAYS);
+        private final Map<String, Long> rows = new LinkedHashMap<>();
+
+        private long userBase;
+        private long authorBase;
+        private long conditionBase;
+        private long bookBase;
+        private long exchangeBase;
+        private long reviewBase;
+        private long[] genreIds;
+
+        private Generation(Connection connection, DataGenerationConfig config) {
+            this.connection = connection;
+            this.config = config;
+        }
+
+        private Map<String, Long> run() throws SQLException {
+            genreIds = ensureGenres();
+            userBase = maxId("users");
+            authorBase = maxId("authors");
+            conditionBase = maxId("book_conditions");
+            bookBase = maxId("books");
+            exchangeBase = maxId("book_exchanges");
+            reviewBase = maxId("reviews");
+
+            writeUsers();
+            writeAuthors();
+            writeConditions();
+            writeBooks();
+            writeBookLinks();
+            writeExchanges();
+            writeReviews();
+
+            for (String table : List.of("users", "authors", "book_conditions", "books", "book_exchanges", "reviews")) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT setval(pg_get_serial_sequence('" + table + "', 'id'), " +
+                            "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + table + "), false)");
+                }
+            }
+            return rows;
+        }
+
+        private long[] ensureGenres() throws SQLException {
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO genres (name, created_at) VALUES (?, ?) ON CONFLICT (name) DO NOTHING")) {
+                for (String genre : GENRES) {
+                    insert.setString(1, genre);
+                    insert.setTimestamp(2, Timestamp.valueOf(now));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+
+            Map<String, Long> idsByName = new HashMap<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT id, name FROM genres")) {
+                while (resultSet.next()) {
+                    idsByName.put(resultSet.getString(2), resultSet.getLong(1));
+                }
+            }
+
+            long[] ids = new long[GENRES.length];
+            for (int i = 0; i < GENRES.length; i++) {
+                ids[i] = idsByName.get(GENRES[i]);
+            }
+            return ids;
+        }
+
+        private long maxId(String table) throws SQLException {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+
+        private void writeUsers() throws SQLException {
+            try (CopyWriter writer = copy("users", "id, username, email, password, first_name, last_name, city, " +
+                    "role, is_enabled, is_account_non_expired, is_account_non_locked, is_credentials_non_expired, " +
+                    "created_at, updated_at")) {
+                for (int i = 0; i < config.getUsers(); i++) {
+                    long id = userBase + 1 + i;
+                    SplittableRandom random = random(USER_SALT, i);
+                    String username = String.format("gen_user_%08d", id);
+                    LocalDateTime createdAt = historyStart.plusMinutes(random.nextLong(HISTORY_DAYS * 24L * 60));
+                    writer.row(id, username, username + "@datagen.bookswap", PASSWORD_HASH,
+                            pick(random, FIRST_NAMES), pick(random, LAST_NAMES),
+                            CITIES[skewed(random, CITIES.length, 2)],
+                            random.nextInt(1000) == 0 ? "MODERATOR" : "USER",
+                            random.nextInt(200) != 0, true, true, true, createdAt, createdAt);
+                }
+                finish("users", writer);
+            }
+        }
+
+        private void writeAuthors() throws SQLException {
+            try (CopyWriter writer = copy("authors", "id, first_name, last_name, created_at")) {
+                for (int i = 0; i < config.getAuthors(); i++) {
+                    SplittableRandom random = random(AUTHOR_SALT, i);
+                    writer.row(authorBase + 1 + i, pick(random, FIRST_NAMES), pick(random, LAST_NAMES), now);
+                }
+                finish("authors", writer);
+            }
+        }
+
+        private void writeConditions() throws SQLException {
+            try (CopyWriter writer = copy("book_conditions", "id, rating, has_damage, is_complete, " +
+                    "has_highlighting, has_notes, cover_condition, pages_condition, created_at, updated_at")) {
+                for (int i = 0; i < config.getBooks(); i++) {
+                    BookPlan plan = plan(i);
+                    int wear = Math.min(5 - plan.conditionRating, 3);
+                    writer.row(conditionBase + 1 + i, plan.conditionRating, plan.conditionRating <= 2, true,
+                            plan.conditionRating <= 3, plan.conditionRating <= 2,
+                            CONDITIONS[wear], CONDITIONS[wear],
+                            plan.createdAt, plan.createdAt);
+                }
+                finish("book_conditions", writer);
+            }
+        }
+
+        private void writeBooks() throws SQLException {
+            try (CopyWriter writer = copy("books", "id, title, isbn, publisher, publication_year, page_count, " +
+                    "language, exchange_status, estimated_price, owner_id, condition_id, created_at, updated_at")) {
+                for (int i = 0; i < config.getBooks(); i++) {
+                    BookPlan plan = plan(i);
+                    long id = bookBase + 1 + i;
+                    writer.row(id, plan.title, String.format("979%010d", id), plan.publisher,
+                            plan.publicationYear, plan.pageCount, "Русский", plan.bookStatus, plan.estimatedPrice,
+                            userBase + 1 + plan.ownerIndex, conditionBase + 1 + i,
+                            plan.createdAt, plan.updatedAt);
+                }
+                finish("books", writer);
+            }
+        }
+
+        private void writeBookLinks() throws SQLException {
+            try (CopyWriter writer = copy("book_authors", "book_id, author_id")) {
+                for (int i = 0; i < config.getBooks(); i++) {
+                    for (int authorIndex : plan(i).authorIndexes) {
+                        writer.row(bookBase + 1 + i, authorBase + 1 + authorIndex);
+                    }
+                }
+                finish("book_authors", writer);
+            }
+            try (CopyWriter writer = copy("book_genres", "book_id, genre_id")) {
+                for (int i = 0; i < config.getBooks(); i++) {
+                    for (int genreIndex : plan(i).genreIndexes) {
+                        writer.row(bookBase + 1 + i, genreIds[genreIndex]);
+                    }
+                }
+                finish("book_genres", writer);
+            }
+        }
+
+        private void writeExchanges() throws SQLException {
+            try (CopyWriter writer = copy("book_exchanges", "id, book_id, owner_id, requester_id, status, " +
+                    "exchange_type, message, offered_price, owner_response, exchange_date, meeting_location, " +
+                    "meeting_date, is_completed, accepted_at, created_at, updated_at")) {
+                long exchangeId = exchangeBase;
+                for (int i = 0; i < config.getBooks(); i++) {
+                    BookPlan plan = plan(i);
+                    if (plan.exchangeStatus == null) {
+                        continue;
+                    }
+                    boolean completed = "COMPLETED".equals(plan.exchangeStatus);
+                    boolean answered = !"PENDING".equals(plan.exchangeStatus) && !"CANCELLED".equals(plan.exchangeStatus);
+                    boolean accepted = "ACCEPTED".equals(plan.exchangeStatus) || completed;
+                    writer.row(++exchangeId, bookBase + 1 + i,
+                            userBase + 1 + plan.ownerIndex, userBase + 1 + plan.requesterIndex,
+                            plan.exchangeStatus, plan.exchangeType, "Здравствуйте! Интересует ваша книга.",
+                            "BOOK_FOR_MONEY".equals(plan.exchangeType) ? plan.estimatedPrice : null,
+                            answered ? ("REJECTED".equals(plan.exchangeStatus) ? "Извините, уже обещал другому" : "Давайте встретимся") : null,
+                            completed ? plan.updatedAt : null,
+                            answered ? plan.meetingLocation : null,
+                            answered ? plan.updatedAt : null,
+                            completed, accepted ? plan.updatedAt : null, plan.exchangeCreatedAt, plan.updatedAt);
+                }
+                finish("book_exchanges", writer);
+            }
+        }
+
+        private void writeReviews() throws SQLException {
+            try (CopyWriter writer = copy("reviews", "id, rating, title, content, is_approved, user_id, book_id, " +
+                    "created_at, updated_at")) {
+                for (int i = 0; i < config.getReviews(); i++) {
+                    SplittableRandom random = random(REVIEW_SALT, i);
+                    // Отзывы сосредоточены на небольшой доле популярных книг
+                    int bookIndex = skewed(random, config.getBooks(), 4);
+                    int rating = reviewRating(random);
+                    LocalDateTime createdAt = plan(bookIndex).createdAt
+                            .plusMinutes(random.nextLong(24L * 60 * 30));
+                    writer.row(reviewBase + 1 + i, rating, REVIEW_TITLES[(5 - rating) + random.nextInt(4)],
+                            "Оценка " + rating + " из 5. " + pick(random, TITLE_WORDS) + " " + pick(random, TITLE_TAILS),
+                            random.nextInt(10) != 0, userBase + 1 + random.nextInt(config.getUsers()),
+                            bookBase + 1 + bookIndex, createdAt, createdAt);
+                }
+                finish("reviews", writer);
+            }
+        }
+
+        /**
+         * Все свойства книги выводятся из (seed, номер книги), поэтому проходы по books,
+         * book_conditions, связям и обменам видят одну и ту же книгу
+         */
+        private BookPlan plan(int index) {
+            SplittableRandom random = random(BOOK_SALT, index);
+            BookPlan plan = new BookPlan();
+
+            plan.title = pick(random, TITLE_WORDS) + " " + pick(random, TITLE_TAILS);
+            plan.publisher = pick(random, PUBLISHERS);
+            plan.publicationYear = 1950 + random.nextInt(75);
+            plan.pageCount = 100 + random.nextInt(700);
+            // Оценка 1-5, большинство книг в хорошем состоянии
+            plan.conditionRating = 1 + Math.min(4, (int) (5 * Math.sqrt(random.nextDouble())));
+            plan.estimatedPrice = BigDecimal.valueOf(100 + random.nextInt(1900));
+            // Степенное распределение: небольшая доля пользователей владеет большинством книг
+            plan.ownerIndex = skewed(random, config.getUsers(), 3);
+
+            int authorCount = random.nextInt(10) < 8 ? 1 : 2 + random.nextInt(2);
+            plan.authorIndexes = distinct(random, config.getAuthors(), Math.min(authorCount, config.getAuthors()), 2);
+            int genreCount = random.nextInt(10) < 6 ? 1 : 2;
+            plan.genreIndexes = distinct(random, GENRES.length, genreCount, 2);
+
+            plan.createdAt = historyStart.plusMinutes(random.nextLong((HISTORY_DAYS - 30) * 24L * 60));
+            plan.updatedAt = plan.createdAt;
+
+            // Статус книги согласован со статусом обмена по ней
+            double outcome = random.nextDouble();
+            if (outcome < 0.65) {
+                plan.bookStatus = "AVAILABLE";
+                if (outcome < 0.10) {
+                    plan.exchangeStatus = outcome < 0.06 ? "REJECTED" : "CANCELLED";
+                }
+            } else if (outcome < 0.75) {
+                plan.bookStatus = "RESERVED";
+                plan.exchangeStatus = "PENDING";
+            } else if (outcome < 0.80) {
+                plan.bookStatus = "RESERVED";
+                plan.exchangeStatus = "ACCEPTED";
+            } else if (outcome < 0.95) {
+                plan.bookStatus = "EXCHANGED";
+                plan.exchangeStatus = "COMPLETED";
+            } else {
+                plan.bookStatus = "NOT_AVAILABLE";
+            }
+
+            if (plan.exchangeStatus != null) {
+                plan.requesterIndex = random.nextInt(config.getUsers());
+                if (plan.requesterIndex == plan.ownerIndex) {
+                    plan.requesterIndex = (plan.requesterIndex + 1) % config.getUsers();
+                }
+                int type = random.nextInt(10);
+                plan.exchangeType = type < 6 ? "BOOK_FOR_BOOK" : type < 9 ? "BOOK_FOR_MONEY" : "FREE_GIFT";
+                plan.meetingLocation = pick(random, MEETING_PLACES);
+                plan.exchangeCreatedAt = plan.createdAt.plusMinutes(random.nextLong(20L * 24 * 60));
+                plan.updatedAt = plan.exchangeCreatedAt.plusMinutes(random.nextLong(7L * 24 * 60));
+            }
+            return plan;
+        }
+
+        private SplittableRandom random(long salt, long index) {
+            return new SplittableRandom(config.getSeed() * 0x9E3779B97F4A7C15L + (salt << 48) + index);
+        }
+
+        private CopyWriter copy(String table, String columns) throws SQLException {
+            return new CopyWriter(connection, table, columns);
+        }
+
+        private void finish(String table, CopyWriter writer) throws SQLException {
+            long count = writer.finish();
+            rows.put(table, count);
+            logger.info("Записано строк в {}: {}", table, count);
+        }
+    }
+
+    private static final class BookPlan {
+        private String title;
+        private String publisher;
+        private int publicationYear;
+        private int pageCount;
+        private int conditionRating;
+        private BigDecimal estimatedPrice;
+        private int ownerIndex;
+        private int[] authorIndexes;
+        private int[] genreIndexes;
+        private String bookStatus;
+        private String exchangeStatus;
+        private String exchangeType;
+        private int requesterIndex;
+        private String meetingLocation;
+        private LocalDateTime createdAt;
+        private LocalDateTime updatedAt;
+        private LocalDateTime exchangeCreatedAt;
+    }
+
+    /**
+     * Индекс в [0, size) со смещением к началу: чем больше exponent, тем сильнее перекос
+     */
+    private static int skewed(SplittableRandom random, int size, double exponent) {
+        return Math.min(size - 1, (int) (size * Math.pow(random.nextDouble(), exponent)));
+    }
+
+    private static int[] distinct(SplittableRandom random, int size, int count, double exponent) {
+        List<Integer> picked = new ArrayList<>(count);
+        while (picked.size() < count) {
+            int candidate = skewed(random, size, exponent);
+            if (!picked.contains(candidate)) {
+                picked.add(candidate);
+            }
+        }
+        return picked.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Оценки смещены к высоким, как в большинстве каталогов
+    private static int reviewRating(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        if (roll < 35) return 5;
+        if (roll < 65) return 4;
+        if (roll < 85) return 3;
+        if (roll < 95) return 2;
+        return 1;
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,41 @@
+package com.bookswap.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Отдельный пул соединений для выгрузки и импорта каталога
+ * Выгрузка держит соединение с открытым курсором всё время передачи ответа, импорт пишет порции,
+ * пока клиент присылает файл. В общем пуле они занимали бы соединения обычных запросов, а выгрузка
+ * дольше порога утечки попадала бы в лог как утечка. Пул ходит в основную базу с настройками
+ * spring.datasource.hikari, но со своим размером и без поиска утечек (ConnectionPoolConfig).
+ * Пул намеренно не бин DataSource: иначе Spring Boot не создал бы основной пул и менеджер транзакций JPA
+ */
+public class BulkConnectionPool implements DisposableBean {
+
+    private final HikariDataSource dataSource;
+    private final DataSourceTransactionManager transactionManager;
+
+    public BulkConnectionPool(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    // Транзакции только на соединениях этого пула; синхронизации после фиксации работают как обычно
+    public PlatformTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    @Override
+    public void destroy() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,230 @@
+package com.bookswap.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Маршрутизация соединений между основной базой и репликой
+ * Транзакции readOnly = true читают с реплики, всё остальное (запись, работа вне транзакции,
+ * миграции) идёт в основную базу. Решение принимается при получении физического соединения,
+ * поэтому источник оборачивается в LazyConnectionDataSourceProxy: к этому моменту признак
+ * readOnly транзакции уже выставлен.
+ *
+ * Отставание реплики учитывается двумя способами:
+ * - после собственной записи пользователь читает из основной базы в течение окна, покрывающего
+ *   допустимое отставание (read-your-writes);
+ * - фоновая проверка измеряет отставание; если оно больше допустимого или реплика недоступна,
+ *   все чтения уходят в основную базу до восстановления.
+ * Проверка выполняется в собственном потоке, а не в общем планировщике @Scheduled: задержка других
+ * задач не оставляет маршрутизацию с устаревшим замером. Замер старше трёх интервалов тоже
+ * считается отказом реплики
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    // Отставание воспроизведения WAL в миллисекундах. Реплика, догнавшая полученный WAL, отстаёт на 0,
+    // даже если основная база давно не писала; база не в режиме восстановления (локальная замена реплики) - тоже 0
+    private static final String REPLICA_LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(CAST(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 AS bigint), 0) END";
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final long maxLagMs;
+    private final long lagCheckIntervalMs;
+    private final long stickyWindowNanos;
+    private final long lagStaleNanos;
+    private final ScheduledExecutorService lagProbe;
+
+    // Время последней зафиксированной записи пользователя (System.nanoTime) по имени пользователя
+    private final Map<String, Long> lastWriteByUser = new ConcurrentHashMap<>();
+
+    // До первой успешной проверки реплика считается недоступной
+    private volatile boolean replicaAvailable;
+    private volatile long replicaLagMs = -1;
+    private volatile long lastLagCheckNanos;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder stickyReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaFailures = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long maxLagMs, long lagCheckIntervalMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+        this.replicaJdbcTemplate.setQueryTimeout(1);
+        this.maxLagMs = maxLagMs;
+        this.lagCheckIntervalMs = lagCheckIntervalMs;
+        // Отставание видно с задержкой до одного интервала проверки, окно покрывает и её
+        this.stickyWindowNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMs + lagCheckIntervalMs);
+        this.lagStaleNanos = TimeUnit.MILLISECONDS.toNanos(3 * lagCheckIntervalMs);
+        this.lagProbe = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        lagProbe.scheduleWithFixedDelay(this::checkReplicaLag, 0, lagCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        lagProbe.shutdownNow();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            registerWrite(user);
+            return Target.PRIMARY;
+        }
+
+        if (!replicaAvailable || System.nanoTime() - lastLagCheckNanos > lagStaleNanos) {
+            fallbackReads.increment();
+            return Target.PRIMARY;
+        }
+        if (user != null && recentlyWrote(user)) {
+            stickyReads.increment();
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+
+    /**
+     * Отмечает запись текущего пользователя в транзакции, которая идёт в основную базу мимо маршрутизатора
+     * (пул выгрузки и импорта): после фиксации его чтения так же остаются на основной базе
+     */
+    public void recordWrite() {
+        registerWrite(currentUser());
+    }
+
+    private void registerWrite(String user) {
+        if (user != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    lastWriteByUser.put(user, System.nanoTime());
+                }
+            });
+        }
+    }
+
+    /**
+     * Ошибка соединения с репликой не роняет чтение: оно уходит в основную базу,
+     * а реплика исключается до следующей успешной проверки
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Target.REPLICA) {
+            try {
+                Connection connection = replica.getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replicaFailures.increment();
+                fallbackReads.increment();
+                markReplicaUnavailable(e.getMessage());
+            }
+        }
+        primaryConnections.increment();
+        return primary.getConnection();
+    }
+
+    public void checkReplicaLag() {
+        try {
+            Long lag = replicaJdbcTemplate.queryForObject(REPLICA_LAG_SQL, Long.class);
+            replicaLagMs = lag != null ? lag : 0;
+            lastLagCheckNanos = System.nanoTime();
+            if (replicaLagMs > maxLagMs) {
+                markReplicaUnavailable("отставание " + replicaLagMs + " мс больше допустимого " + maxLagMs + " мс");
+            } else if (!replicaAvailable) {
+                replicaAvailable = true;
+                logger.info("Реплика доступна (отставание {} мс), чтение readOnly-транзакций идёт с реплики", replicaLagMs);
+            }
+        } catch (RuntimeException e) {
+            // Исключение остановило бы периодическую проверку в исполнителе
+            replicaLagMs = -1;
+            markReplicaUnavailable(e.getMessage());
+        }
+
+        long now = System.nanoTime();
+        lastWriteByUser.values().removeIf(writtenAt -> now - writtenAt >= stickyWindowNanos);
+    }
+
+    private void markReplicaUnavailable(String reason) {
+        if (replicaAvailable) {
+            replicaAvailable = false;
+            logger.warn("Реплика исключена из чтения, запросы идут в основную базу: {}", reason);
+        }
+    }
+
+    private boolean recentlyWrote(String user) {
+        Long writtenAt = lastWriteByUser.get(user);
+        return writtenAt != null && System.nanoTime() - writtenAt < stickyWindowNanos;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("replicaAvailable", replicaAvailable);
+        stats.put("replicaLagMs", replicaLagMs);
+        stats.put("maxLagMs", maxLagMs);
+        stats.put("stickyWindowMs", TimeUnit.NANOSECONDS.toMillis(stickyWindowNanos));
+        stats.put("stickyUsers", lastWriteByUser.size());
+        stats.put("replicaReads", replicaReads.sum());
+        stats.put("stickyReads", stickyReads.sum());
+        stats.put("fallbackReads", fallbackReads.sum());
+        stats.put("replicaFailures", replicaFailures.sum());
+        stats.put("primaryConnections", primaryConnections.sum());
+        return stats;
+    }
+}
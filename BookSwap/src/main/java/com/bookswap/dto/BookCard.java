@@ -0,0 +1,96 @@
+package com.bookswap.dto;
+
+import com.bookswap.entity.Book;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Неизменяемая карточка книги для списков (главная страница, каталог, REST-списки)
+ * Содержит только поля, необходимые для отображения, без ленивых связей сущности
+ */
+public final class BookCard {
+
+    private final Long id;
+    private final String title;
+    private final String coverImageUrl;
+    private final Book.ExchangeStatus exchangeStatus;
+    private final String language;
+    private final Integer publicationYear;
+    private final double averageRating;
+    private final int ratingCount;
+    private final LocalDateTime createdAt;
+    private final List<String> authors;
+    private final List<String> genres;
+
+    public BookCard(Long id, String title, String coverImageUrl, Book.ExchangeStatus exchangeStatus,
+                    String language, Integer publicationYear, Double averageRating, Integer ratingCount,
+                    LocalDateTime createdAt, List<String> authors, List<String> genres) {
+        this.id = id;
+        this.title = title;
+        this.coverImageUrl = coverImageUrl;
+        this.exchangeStatus = exchangeStatus;
+        this.language = language;
+        this.publicationYear = publicationYear;
+        this.averageRating = averageRating != null ? averageRating : 0.0;
+        this.ratingCount = ratingCount != null ? ratingCount : 0;
+        this.createdAt = createdAt;
+        this.authors = List.copyOf(authors);
+        this.genres = List.copyOf(genres);
+    }
+
+    /**
+     * Конструктор для JPQL constructor expression: авторы и жанры догружаются
+     * отдельными пакетными запросами через withNames
+     */
+    public BookCard(Long id, String title, String coverImageUrl, Book.ExchangeStatus exchangeStatus,
+                    String language, Integer publicationYear, Double averageRating, Integer ratingCount,
+                    LocalDateTime createdAt) {
+        this(id, title, coverImageUrl, exchangeStatus, language, publicationYear, averageRating, ratingCount,
+                createdAt, List.of(), List.of());
+    }
+
+    public BookCard withNames(List<String> authors, List<String> genres) {
+        return new BookCard(id, title, coverImageUrl, exchangeStatus, language, publicationYear,
+                averageRating, ratingCount, createdAt, authors, genres);
+    }
+
+    public Long getId() { return id; }
+
+    public String getTitle() { return title; }
+
+    public String getCoverImageUrl() { return coverImageUrl; }
+
+    public Book.ExchangeStatus getExchangeStatus() { return exchangeStatus; }
+
+    public String getLanguage() { return language; }
+
+    public Integer getPublicationYear() { return publicationYear; }
+
+    public double getAverageRating() { return averageRating; }
+
+    public int getRatingCount() { return ratingCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public List<String> getAuthors() { return authors; }
+
+    public List<String> getGenres() { return genres; }
+
+    public String getAuthorsAsString() {
+        return authors.isEmpty() ? "Автор неизвестен" : String.join(", ", authors);
+    }
+
+    public String getGenresAsString() {
+        return genres.isEmpty() ? "Жанр не указан" : String.join(", ", genres);
+    }
+
+    @Override
+    public String toString() {
+        return "BookCard{" +
+                "id=" + id +
+                ", title='" + title + '\'' +
+                ", exchangeStatus=" + exchangeStatus +
+                '}';
+    }
+}
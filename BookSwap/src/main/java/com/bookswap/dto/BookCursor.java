@@ -0,0 +1,67 @@
+package com.bookswap.dto;
+
+import com.bookswap.entity.Book;
+import com.bookswap.exception.BookSwapException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Курсор для keyset-пагинации книг по (createdAt, id)
+ * Передаётся клиенту в виде непрозрачной base64-строки
+ */
+public class BookCursor {
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    public BookCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = Objects.requireNonNull(createdAt);
+        this.id = Objects.requireNonNull(id);
+    }
+
+    public static BookCursor of(Book book) {
+        return new BookCursor(book.getCreatedAt(), book.getId());
+    }
+
+    /**
+     * Разбор курсора, полученного от клиента; null или пустая строка означают первую страницу
+     */
+    public static BookCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new BookCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BookSwapException("INVALID_CURSOR",
+                    "Invalid pagination cursor",
+                    HttpStatus.BAD_REQUEST, e);
+        }
+    }
+
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public Long getId() { return id; }
+
+    @Override
+    public String toString() {
+        return "BookCursor{" +
+                "createdAt=" + createdAt +
+                ", id=" + id +
+                '}';
+    }
+}
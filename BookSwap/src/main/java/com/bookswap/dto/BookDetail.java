@@ -0,0 +1,185 @@
+package com.bookswap.dto;
+
+import com.bookswap.entity.Book;
+import com.bookswap.entity.BookCondition;
+import com.bookswap.entity.User;
+import com.bookswap.search.SearchDocument;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Неизменяемое представление книги для страницы книги и REST-ответов
+ * Собирается из сущности, загруженной вместе с владельцем, состоянием,
+ * авторами и жанрами одним запросом (entity graph)
+ */
+public final class BookDetail {
+
+    private final Long id;
+    private final String title;
+    private final String isbn;
+    private final String description;
+    private final String coverImageUrl;
+    private final Integer publicationYear;
+    private final String publisher;
+    private final Integer pageCount;
+    private final String language;
+    private final Book.ExchangeStatus exchangeStatus;
+    private final BigDecimal estimatedPrice;
+    private final double averageRating;
+    private final int ratingCount;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final Owner owner;
+    private final Condition condition;
+    private final List<Reference> authors;
+    private final List<Reference> genres;
+
+    private BookDetail(Book book) {
+        this.id = book.getId();
+        this.title = book.getTitle();
+        this.isbn = book.getIsbn();
+        this.description = book.getDescription();
+        this.coverImageUrl = book.getCoverImageUrl();
+        this.publicationYear = book.getPublicationYear();
+        this.publisher = book.getPublisher();
+        this.pageCount = book.getPageCount();
+        this.language = book.getLanguage();
+        this.exchangeStatus = book.getExchangeStatus();
+        this.estimatedPrice = book.getEstimatedPrice();
+        this.averageRating = book.getAverageRating();
+        this.ratingCount = book.getRatingCount() != null ? book.getRatingCount() : 0;
+        this.createdAt = book.getCreatedAt();
+        this.updatedAt = book.getUpdatedAt();
+        this.owner = book.getOwner() != null ? new Owner(book.getOwner()) : null;
+        this.condition = book.getCondition() != null ? new Condition(book.getCondition()) : null;
+        this.authors = book.getAuthors().stream()
+                .map(author -> new Reference(author.getId(),
+                        SearchDocument.fullName(author.getFirstName(), author.getMiddleName(), author.getLastName())))
+                .toList();
+        this.genres = book.getGenres().stream()
+                .map(genre -> new Reference(genre.getId(), genre.getName()))
+                .toList();
+    }
+
+    /**
+     * Вызывается внутри транзакции, пока связи сущности доступны
+     */
+    public static BookDetail of(Book book) {
+        return new BookDetail(book);
+    }
+
+    public Long getId() { return id; }
+
+    public String getTitle() { return title; }
+
+    public String getIsbn() { return isbn; }
+
+    public String getDescription() { return description; }
+
+    public String getCoverImageUrl() { return coverImageUrl; }
+
+    public Integer getPublicationYear() { return publicationYear; }
+
+    public String getPublisher() { return publisher; }
+
+    public Integer getPageCount() { return pageCount; }
+
+    public String getLanguage() { return language; }
+
+    public Book.ExchangeStatus getExchangeStatus() { return exchangeStatus; }
+
+    public BigDecimal getEstimatedPrice() { return estimatedPrice; }
+
+    public double getAverageRating() { return averageRating; }
+
+    public int getRatingCount() { return ratingCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    public Owner getOwner() { return owner; }
+
+    public Condition getCondition() { return condition; }
+
+    public List<Reference> getAuthors() { return authors; }
+
+    public List<Reference> getGenres() { return genres; }
+
+    /**
+     * Публичные данные владельца книги (без учётных данных)
+     */
+    public static final class Owner {
+        private final Long id;
+        private final String username;
+        private final String city;
+
+        private Owner(User user) {
+            this.id = user.getId();
+            this.username = user.getUsername();
+            this.city = user.getCity();
+        }
+
+        public Long getId() { return id; }
+
+        public String getUsername() { return username; }
+
+        public String getCity() { return city; }
+    }
+
+    /**
+     * Состояние экземпляра книги
+     */
+    public static final class Condition {
+        private final Integer rating;
+        private final String overallCondition;
+        private final String description;
+        private final Boolean hasDamage;
+        private final String damageDescription;
+        private final BookCondition.CoverCondition coverCondition;
+        private final BookCondition.PagesCondition pagesCondition;
+
+        private Condition(BookCondition condition) {
+            this.rating = condition.getRating();
+            this.overallCondition = condition.getOverallCondition();
+            this.description = condition.getDescription();
+            this.hasDamage = condition.getHasDamage();
+            this.damageDescription = condition.getDamageDescription();
+            this.coverCondition = condition.getCoverCondition();
+            this.pagesCondition = condition.getPagesCondition();
+        }
+
+        public Integer getRating() { return rating; }
+
+        public String getOverallCondition() { return overallCondition; }
+
+        public String getDescription() { return description; }
+
+        public Boolean getHasDamage() { return hasDamage; }
+
+        public String getDamageDescription() { return damageDescription; }
+
+        public BookCondition.CoverCondition getCoverCondition() { return coverCondition; }
+
+        public BookCondition.PagesCondition getPagesCondition() { return pagesCondition; }
+    }
+
+    /**
+     * Ссылка на связанную сущность (автор, жанр)
+     */
+    public static final class Reference {
+        private final Long id;
+        private final String name;
+
+        private Reference(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() { return id; }
+
+        public String getName() { return name; }
+    }
+}
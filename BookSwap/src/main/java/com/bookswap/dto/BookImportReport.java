@@ -0,0 +1,79 @@
+package com.bookswap.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Итог импорта книг: счётчики и результат каждой строки файла
+ * Строка либо получила ID созданной книги, либо список ошибок. Если чтение файла прервано
+ * (повреждённый поток, превышен лимит строк), abortReason содержит причину, а строки до неё
+ * уже сохранены
+ */
+public class BookImportReport {
+
+    private int totalRows;
+    private int importedRows;
+    private int failedRows;
+    private String abortReason;
+    private long durationMs;
+    private final List<RowResult> rows = new ArrayList<>();
+
+    public void imported(long lineNumber, long bookId) {
+        totalRows++;
+        importedRows++;
+        rows.add(new RowResult(lineNumber, bookId, null));
+    }
+
+    public void failed(long lineNumber, List<String> errors) {
+        totalRows++;
+        failedRows++;
+        rows.add(new RowResult(lineNumber, null, List.copyOf(errors)));
+    }
+
+    public void abort(String reason) {
+        this.abortReason = reason;
+    }
+
+    /**
+     * Строки с ошибками проверки попадают в отчёт раньше записанных порций; итог упорядочивается по файлу
+     */
+    public void complete(long durationMs) {
+        this.durationMs = durationMs;
+        rows.sort(Comparator.comparingLong(RowResult::getLine));
+    }
+
+    public int getTotalRows() { return totalRows; }
+
+    public int getImportedRows() { return importedRows; }
+
+    public int getFailedRows() { return failedRows; }
+
+    public String getAbortReason() { return abortReason; }
+
+    public long getDurationMs() { return durationMs; }
+
+    public List<RowResult> getRows() { return rows; }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class RowResult {
+
+        private final long line;
+        private final Long bookId;
+        private final List<String> errors;
+
+        public RowResult(long line, Long bookId, List<String> errors) {
+            this.line = line;
+            this.bookId = bookId;
+            this.errors = errors;
+        }
+
+        public long getLine() { return line; }
+
+        public Long getBookId() { return bookId; }
+
+        public List<String> getErrors() { return errors; }
+    }
+}
@@ -0,0 +1,90 @@
+package com.bookswap.dto;
+
+import com.bookswap.entity.User;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+
+/**
+ * Неизменяемый снимок учётных данных пользователя для кэша аутентификации
+ * Не содержит ленивых связей сущности и безопасно разделяется между потоками
+ */
+public final class CachedPrincipal {
+
+    private final Long id;
+    private final String username;
+    private final String firstName;
+    private final String passwordHash;
+    private final User.Role role;
+    private final boolean enabled;
+    private final boolean accountNonExpired;
+    private final boolean accountNonLocked;
+    private final boolean credentialsNonExpired;
+
+    private CachedPrincipal(User user) {
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.firstName = user.getFirstName();
+        this.passwordHash = user.getPassword();
+        this.role = user.getRole();
+        this.enabled = user.isEnabled();
+        this.accountNonExpired = user.isAccountNonExpired();
+        this.accountNonLocked = user.isAccountNonLocked();
+        this.credentialsNonExpired = user.isCredentialsNonExpired();
+    }
+
+    public static CachedPrincipal of(User user) {
+        return new CachedPrincipal(user);
+    }
+
+    /**
+     * Новый экземпляр UserDetails на каждый вызов: Spring Security стирает пароль
+     * в выданном объекте после аутентификации, поэтому сам снимок наружу не отдаётся
+     */
+    public UserDetails toUserDetails() {
+        return new AuthenticatedUser(this);
+    }
+
+    public Long getId() { return id; }
+
+    public String getUsername() { return username; }
+
+    public String getFirstName() { return firstName; }
+
+    public User.Role getRole() { return role; }
+
+    public boolean isEnabled() { return enabled; }
+
+    @Override
+    public String toString() {
+        return "CachedPrincipal{" +
+                "id=" + id +
+                ", username='" + username + '\'' +
+                ", role=" + role +
+                ", enabled=" + enabled +
+                '}';
+    }
+
+    /**
+     * Principal аутентифицированного пользователя; дополнительно к UserDetails
+     * отдаёт идентификатор и имя, которые используются в шаблонах
+     */
+    public static final class AuthenticatedUser extends org.springframework.security.core.userdetails.User {
+
+        private final Long id;
+        private final String firstName;
+
+        private AuthenticatedUser(CachedPrincipal principal) {
+            super(principal.username, principal.passwordHash, principal.enabled, principal.accountNonExpired,
+                    principal.credentialsNonExpired, principal.accountNonLocked,
+                    List.of(new SimpleGrantedAuthority("ROLE_" + principal.role.name())));
+            this.id = principal.id;
+            this.firstName = principal.firstName;
+        }
+
+        public Long getId() { return id; }
+
+        public String getFirstName() { return firstName; }
+    }
+}
@@ -0,0 +1,67 @@
+package com.bookswap.dto;
+
+import com.bookswap.entity.ExchangeInboxEntry;
+import com.bookswap.exception.BookSwapException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Курсор для keyset-пагинации обменов пользователя по (updatedAt, exchangeId)
+ * Передаётся клиенту в виде непрозрачной base64-строки
+ */
+public class ExchangeInboxCursor {
+
+    private final LocalDateTime updatedAt;
+    private final Long exchangeId;
+
+    public ExchangeInboxCursor(LocalDateTime updatedAt, Long exchangeId) {
+        this.updatedAt = Objects.requireNonNull(updatedAt);
+        this.exchangeId = Objects.requireNonNull(exchangeId);
+    }
+
+    public static ExchangeInboxCursor of(ExchangeInboxEntry entry) {
+        return new ExchangeInboxCursor(entry.getUpdatedAt(), entry.getExchangeId());
+    }
+
+    /**
+     * Разбор курсора, полученного от клиента; null или пустая строка означают первую страницу
+     */
+    public static ExchangeInboxCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new ExchangeInboxCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BookSwapException("INVALID_CURSOR",
+                    "Invalid pagination cursor",
+                    HttpStatus.BAD_REQUEST, e);
+        }
+    }
+
+    public String encode() {
+        String raw = updatedAt + "|" + exchangeId;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    public Long getExchangeId() { return exchangeId; }
+
+    @Override
+    public String toString() {
+        return "ExchangeInboxCursor{" +
+                "updatedAt=" + updatedAt +
+                ", exchangeId=" + exchangeId +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package com.bookswap.dto;
+
+import com.bookswap.entity.BookExchange;
+
+/**
+ * Уведомление об обмене для потока событий пользователя
+ * role - роль получателя в обмене: OWNER для входящих запросов, REQUESTER для исходящих
+ */
+public final class ExchangeNotification {
+
+    public enum Role { OWNER, REQUESTER }
+
+    private final long sequence;
+    private final Long exchangeId;
+    private final Long bookId;
+    private final BookExchange.ExchangeType exchangeType;
+    private final BookExchange.ExchangeStatus status;
+    private final Role role;
+
+    public ExchangeNotification(long sequence, Long exchangeId, Long bookId,
+                                BookExchange.ExchangeType exchangeType, BookExchange.ExchangeStatus status, Role role) {
+        this.sequence = sequence;
+        this.exchangeId = exchangeId;
+        this.bookId = bookId;
+        this.exchangeType = exchangeType;
+        this.status = status;
+        this.role = role;
+    }
+
+    public long getSequence() { return sequence; }
+
+    public Long getExchangeId() { return exchangeId; }
+
+    public Long getBookId() { return bookId; }
+
+    public BookExchange.ExchangeType getExchangeType() { return exchangeType; }
+
+    public BookExchange.ExchangeStatus getStatus() { return status; }
+
+    public Role getRole() { return role; }
+}
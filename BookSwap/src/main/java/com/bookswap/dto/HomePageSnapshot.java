@@ -0,0 +1,36 @@
+package com.bookswap.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Неизменяемый снимок данных главной страницы
+ * Строится в фоне HomePageService и отдаётся запросам без обращения к БД
+ */
+public final class HomePageSnapshot {
+
+    private final List<BookCard> recentBooks;
+    private final List<BookCard> popularBooks;
+    private final List<BookCard> availableBooks;
+    private final long totalBooks;
+    private final LocalDateTime builtAt;
+
+    public HomePageSnapshot(List<BookCard> recentBooks, List<BookCard> popularBooks,
+                            List<BookCard> availableBooks, long totalBooks, LocalDateTime builtAt) {
+        this.recentBooks = List.copyOf(recentBooks);
+        this.popularBooks = List.copyOf(popularBooks);
+        this.availableBooks = List.copyOf(availableBooks);
+        this.totalBooks = totalBooks;
+        this.builtAt = builtAt;
+    }
+
+    public List<BookCard> getRecentBooks() { return recentBooks; }
+
+    public List<BookCard> getPopularBooks() { return popularBooks; }
+
+    public List<BookCard> getAvailableBooks() { return availableBooks; }
+
+    public long getTotalBooks() { return totalBooks; }
+
+    public LocalDateTime getBuiltAt() { return builtAt; }
+}
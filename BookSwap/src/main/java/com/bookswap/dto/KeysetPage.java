@@ -0,0 +1,40 @@
+package com.bookswap.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница результатов keyset-пагинации
+ * Вместо номера страницы и общего количества содержит курсор следующей страницы
+ */
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Собирает страницу из выборки размером size + 1: лишняя запись лишь сигнализирует о наличии продолжения
+     */
+    public static <T> KeysetPage<T> fromProbe(List<T> probe, int size, Function<T, String> cursorOf) {
+        if (probe.size() <= size) {
+            return new KeysetPage<>(probe, null);
+        }
+        List<T> content = probe.subList(0, size);
+        return new KeysetPage<>(content, cursorOf.apply(content.get(size - 1)));
+    }
+
+    public List<T> getContent() { return content; }
+
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        return new KeysetPage<>(content.stream().map(mapper).toList(), nextCursor);
+    }
+}
@@ -17,7 +17,8 @@ import java.util.Set;
 public class Book {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_id_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Название книги обязательно")
@@ -88,6 +89,20 @@ public class Book {
     @OneToMany(mappedBy = "book", cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY)
     private Set<BookExchange> exchanges = new HashSet<>();
     
+    // Денормализованные агрегаты одобренных отзывов, изменяются только атомарными
+    // UPDATE-запросами из ReviewService, поэтому исключены из обычных UPDATE сущности
+    @Column(name = "rating_sum", nullable = false, updatable = false,
+            columnDefinition = "bigint default 0 not null")
+    private Long ratingSum = 0L;
+    
+    @Column(name = "rating_count", nullable = false, updatable = false,
+            columnDefinition = "integer default 0 not null")
+    private Integer ratingCount = 0;
+    
+    @Column(name = "average_rating", nullable = false, updatable = false,
+            columnDefinition = "double precision default 0 not null")
+    private Double averageRating = 0.0;
+    
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     
@@ -165,12 +180,13 @@ public class Book {
     }
     
     public double getAverageRating() {
-        return reviews.stream()
-                .mapToDouble(Review::getRating)
-                .average()
-                .orElse(0.0);
+        return averageRating != null ? averageRating : 0.0;
     }
     
+    public Long getRatingSum() { return ratingSum; }
+    
+    public Integer getRatingCount() { return ratingCount; }
+    
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -13,7 +13,8 @@ import java.util.Objects;
 public class BookCondition {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_conditions_seq")
+    @SequenceGenerator(name = "book_conditions_seq", sequenceName = "book_conditions_id_seq", allocationSize = 50)
     private Long id;
     
     @Min(value = 1, message = "Оценка состояния должна быть от 1 до 5")
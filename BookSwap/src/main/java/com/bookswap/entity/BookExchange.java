@@ -6,14 +6,17 @@ import jakarta.validation.constraints.Size;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.Objects;
+import java.util.Set;
 
 @Entity
 @Table(name = "book_exchanges")
 public class BookExchange {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_exchanges_seq")
+    @SequenceGenerator(name = "book_exchanges_seq", sequenceName = "book_exchanges_id_seq", allocationSize = 50)
     private Long id;
     
     @NotNull(message = "Книга обязательна")
@@ -53,6 +56,9 @@ public class BookExchange {
     @Column(name = "exchange_date")
     private LocalDateTime exchangeDate; // Дата проведения обмена
     
+    @Column(name = "accepted_at")
+    private LocalDateTime acceptedAt; // Дата одобрения владельцем
+    
     @Size(max = 500, message = "Место встречи не должно превышать 500 символов")
     @Column(name = "meeting_location")
     private String meetingLocation; // Место встречи для обмена
@@ -69,6 +75,11 @@ public class BookExchange {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Версия увеличивается и при условных UPDATE статуса, поэтому сохранение устаревшей сущности не перезапишет переход
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0 not null")
+    private Long version = 0L;
+    
     public enum ExchangeStatus {
         PENDING("Ожидает"),
         ACCEPTED("Принят"),
@@ -85,6 +96,40 @@ public class BookExchange {
         public String getDisplayName() {
             return displayName;
         }
+        
+        /**
+         * Таблица переходов жизненного цикла обмена
+         * REJECTED, COMPLETED и CANCELLED - конечные статусы
+         */
+        public Set<ExchangeStatus> allowedTargets() {
+            return switch (this) {
+                case PENDING -> EnumSet.of(ACCEPTED, REJECTED, CANCELLED);
+                case ACCEPTED -> EnumSet.of(COMPLETED, REJECTED, CANCELLED);
+                case REJECTED, COMPLETED, CANCELLED -> EnumSet.noneOf(ExchangeStatus.class);
+            };
+        }
+        
+        public boolean canTransitionTo(ExchangeStatus target) {
+            return allowedTargets().contains(target);
+        }
+        
+        /**
+         * Статусы, из которых допустим переход в target; используются как условие в UPDATE
+         */
+        public static Set<ExchangeStatus> sourcesOf(ExchangeStatus target) {
+            Set<ExchangeStatus> sources = EnumSet.noneOf(ExchangeStatus.class);
+            for (ExchangeStatus status : values()) {
+                if (status.canTransitionTo(target)) {
+                    sources.add(status);
+                }
+            }
+            return sources;
+        }
+        
+        // Открытые обмены удерживают книгу в статусе RESERVED
+        public static Set<ExchangeStatus> openStatuses() {
+            return EnumSet.of(PENDING, ACCEPTED);
+        }
     }
     
     public enum ExchangeType {
@@ -174,6 +219,9 @@ public class BookExchange {
     public LocalDateTime getExchangeDate() { return exchangeDate; }
     public void setExchangeDate(LocalDateTime exchangeDate) { this.exchangeDate = exchangeDate; }
     
+    public LocalDateTime getAcceptedAt() { return acceptedAt; }
+    public void setAcceptedAt(LocalDateTime acceptedAt) { this.acceptedAt = acceptedAt; }
+    
     public String getMeetingLocation() { return meetingLocation; }
     public void setMeetingLocation(String meetingLocation) { this.meetingLocation = meetingLocation; }
     
@@ -189,6 +237,8 @@ public class BookExchange {
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
     
+    public Long getVersion() { return version; }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,109 @@
+package com.bookswap.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сохранённый результат поиска книги по ISBN во внешнем API
+ * Запись без найденной книги (found = false) хранит отрицательный результат
+ */
+@Entity
+@Table(name = "book_info_cache")
+public class BookInfoCacheEntry {
+
+    @Id
+    @Column(length = 13)
+    private String isbn;
+
+    @Column(nullable = false)
+    private Boolean found;
+
+    @Column(length = 500)
+    private String title;
+
+    @Column(length = 1000)
+    private String authors;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @Column(length = 255)
+    private String publisher;
+
+    @Column(name = "published_date", length = 20)
+    private String publishedDate;
+
+    @Column(name = "page_count")
+    private Integer pageCount;
+
+    @Column(length = 20)
+    private String language;
+
+    @Column(length = 500)
+    private String categories;
+
+    @Column(name = "cover_image_url", length = 1000)
+    private String coverImageUrl;
+
+    @Column(name = "fetched_at", nullable = false)
+    private LocalDateTime fetchedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public BookInfoCacheEntry() {}
+
+    public boolean isExpired(LocalDateTime now) {
+        return expiresAt.isBefore(now);
+    }
+
+    // Getters and Setters
+    public String getIsbn() { return isbn; }
+    public void setIsbn(String isbn) { this.isbn = isbn; }
+
+    public Boolean getFound() { return found; }
+    public void setFound(Boolean found) { this.found = found; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getAuthors() { return authors; }
+    public void setAuthors(String authors) { this.authors = authors; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public String getPublisher() { return publisher; }
+    public void setPublisher(String publisher) { this.publisher = publisher; }
+
+    public String getPublishedDate() { return publishedDate; }
+    public void setPublishedDate(String publishedDate) { this.publishedDate = publishedDate; }
+
+    public Integer getPageCount() { return pageCount; }
+    public void setPageCount(Integer pageCount) { this.pageCount = pageCount; }
+
+    public String getLanguage() { return language; }
+    public void setLanguage(String language) { this.language = language; }
+
+    public String getCategories() { return categories; }
+    public void setCategories(String categories) { this.categories = categories; }
+
+    public String getCoverImageUrl() { return coverImageUrl; }
+    public void setCoverImageUrl(String coverImageUrl) { this.coverImageUrl = coverImageUrl; }
+
+    public LocalDateTime getFetchedAt() { return fetchedAt; }
+    public void setFetchedAt(LocalDateTime fetchedAt) { this.fetchedAt = fetchedAt; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    @Override
+    public String toString() {
+        return "BookInfoCacheEntry{" +
+                "isbn='" + isbn + '\'' +
+                ", found=" + found +
+                ", expiresAt=" + expiresAt +
+                '}';
+    }
+}
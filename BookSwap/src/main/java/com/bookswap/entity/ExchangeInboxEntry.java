@@ -0,0 +1,123 @@
+package com.bookswap.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Строка входящих/исходящих обменов пользователя: по одной на каждого участника обмена
+ * Денормализованная проекция book_exchanges с названием книги и именем второго участника.
+ * Заполняется и обновляется в тех же транзакциях, что и обмены, поэтому страница "мои обмены"
+ * читается одним диапазоном индекса без соединений
+ */
+@Entity
+@Table(name = "exchange_inbox")
+@IdClass(ExchangeInboxEntry.Key.class)
+public class ExchangeInboxEntry {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Column(name = "exchange_id")
+    private Long exchangeId;
+
+    // Роль пользователя в обмене
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Role role;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(name = "book_title", nullable = false)
+    private String bookTitle;
+
+    @Column(name = "counterpart_id", nullable = false)
+    private Long counterpartId;
+
+    @Column(name = "counterpart_name", nullable = false)
+    private String counterpartName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private BookExchange.ExchangeStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "exchange_type", nullable = false, length = 20)
+    private BookExchange.ExchangeType exchangeType;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public enum Role {
+        OWNER,      // Входящий запрос: у пользователя запросили книгу
+        REQUESTER   // Исходящий запрос
+    }
+
+    public ExchangeInboxEntry() {}
+
+    // Getters
+    public Long getUserId() { return userId; }
+
+    public Long getExchangeId() { return exchangeId; }
+
+    public Role getRole() { return role; }
+
+    public Long getBookId() { return bookId; }
+
+    public String getBookTitle() { return bookTitle; }
+
+    public Long getCounterpartId() { return counterpartId; }
+
+    public String getCounterpartName() { return counterpartName; }
+
+    public BookExchange.ExchangeStatus getStatus() { return status; }
+
+    public BookExchange.ExchangeType getExchangeType() { return exchangeType; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    public static class Key implements Serializable {
+
+        private Long userId;
+        private Long exchangeId;
+
+        public Key() {}
+
+        public Key(Long userId, Long exchangeId) {
+            this.userId = userId;
+            this.exchangeId = exchangeId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(userId, key.userId) && Objects.equals(exchangeId, key.exchangeId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, exchangeId);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ExchangeInboxEntry{" +
+                "userId=" + userId +
+                ", exchangeId=" + exchangeId +
+                ", role=" + role +
+                ", status=" + status +
+                '}';
+    }
+}
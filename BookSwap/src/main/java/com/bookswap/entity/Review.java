@@ -11,7 +11,8 @@ import java.util.Objects;
 public class Review {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reviews_seq")
+    @SequenceGenerator(name = "reviews_seq", sequenceName = "reviews_id_seq", allocationSize = 50)
     private Long id;
     
     @NotNull(message = "Рейтинг обязателен")
@@ -0,0 +1,32 @@
+package com.bookswap.event;
+
+/**
+ * Событие размещения новой книги с указанным ISBN
+ * Публикуется внутри транзакции создания книги, слушатели реагируют после фиксации
+ */
+public class BookListedEvent {
+
+    private final Long bookId;
+    private final String isbn;
+
+    public BookListedEvent(Long bookId, String isbn) {
+        this.bookId = bookId;
+        this.isbn = isbn;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    @Override
+    public String toString() {
+        return "BookListedEvent{" +
+                "bookId=" + bookId +
+                ", isbn='" + isbn + '\'' +
+                '}';
+    }
+}
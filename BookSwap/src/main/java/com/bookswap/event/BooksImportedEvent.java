@@ -0,0 +1,37 @@
+package com.bookswap.event;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Событие записи порции пакетного импорта книг
+ * Заменяет CatalogChangedEvent и BookListedEvent для каждой книги порции: публикуется один раз
+ * внутри транзакции порции, слушатели реагируют после фиксации
+ */
+public class BooksImportedEvent {
+
+    private final List<Long> bookIds;
+    private final Map<Long, String> isbns;
+
+    public BooksImportedEvent(List<Long> bookIds, Map<Long, String> isbns) {
+        this.bookIds = bookIds;
+        this.isbns = isbns;
+    }
+
+    public List<Long> getBookIds() {
+        return bookIds;
+    }
+
+    // ISBN книг порции, для которых он указан, по ID книги
+    public Map<Long, String> getIsbns() {
+        return isbns;
+    }
+
+    @Override
+    public String toString() {
+        return "BooksImportedEvent{" +
+                "books=" + bookIds.size() +
+                ", isbns=" + isbns.size() +
+                '}';
+    }
+}
@@ -0,0 +1,26 @@
+package com.bookswap.event;
+
+/**
+ * Событие изменения каталога: книга создана, изменена, удалена,
+ * сменила статус обмена или рейтинг
+ * Публикуется сервисами внутри транзакции, слушатели реагируют после фиксации
+ */
+public class CatalogChangedEvent {
+
+    private final Long bookId;
+
+    public CatalogChangedEvent(Long bookId) {
+        this.bookId = bookId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogChangedEvent{" +
+                "bookId=" + bookId +
+                '}';
+    }
+}
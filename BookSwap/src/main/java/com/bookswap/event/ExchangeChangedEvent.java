@@ -0,0 +1,61 @@
+package com.bookswap.event;
+
+import com.bookswap.entity.BookExchange;
+
+/**
+ * Событие создания обмена или смены его статуса
+ * Публикуется внутри транзакции ExchangeService и задания отмены просроченных обменов,
+ * слушатели реагируют после фиксации
+ */
+public class ExchangeChangedEvent {
+
+    private final Long exchangeId;
+    private final Long bookId;
+    private final Long ownerId;
+    private final Long requesterId;
+    private final BookExchange.ExchangeType exchangeType;
+    private final BookExchange.ExchangeStatus status;
+
+    public ExchangeChangedEvent(Long exchangeId, Long bookId, Long ownerId, Long requesterId,
+                                BookExchange.ExchangeType exchangeType, BookExchange.ExchangeStatus status) {
+        this.exchangeId = exchangeId;
+        this.bookId = bookId;
+        this.ownerId = ownerId;
+        this.requesterId = requesterId;
+        this.exchangeType = exchangeType;
+        this.status = status;
+    }
+
+    public Long getExchangeId() {
+        return exchangeId;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public Long getRequesterId() {
+        return requesterId;
+    }
+
+    public BookExchange.ExchangeType getExchangeType() {
+        return exchangeType;
+    }
+
+    public BookExchange.ExchangeStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "ExchangeChangedEvent{" +
+                "exchangeId=" + exchangeId +
+                ", bookId=" + bookId +
+                ", status=" + status +
+                '}';
+    }
+}
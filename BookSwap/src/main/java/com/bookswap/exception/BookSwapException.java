@@ -80,4 +80,12 @@ public class BookSwapException extends RuntimeException {
                 HttpStatus.SERVICE_UNAVAILABLE
         );
     }
-} 
\ No newline at end of file
+
+    public static BookSwapException concurrentModification() {
+        return new BookSwapException(
+                "CONCURRENT_MODIFICATION",
+                "The resource was modified concurrently, please retry",
+                HttpStatus.CONFLICT
+        );
+    }
+}
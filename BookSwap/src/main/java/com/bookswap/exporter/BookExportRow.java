@@ -0,0 +1,86 @@
+package com.bookswap.exporter;
+
+import com.bookswap.entity.Book;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Строка выгрузки каталога
+ * Создаётся прямо из строки курсора JDBC, без сущности в контексте постоянства;
+ * авторы и жанры дописываются пакетными запросами на порцию строк
+ */
+public class BookExportRow {
+
+    private final Long id;
+    private final String isbn;
+    private final String title;
+    private final String description;
+    private final String publisher;
+    private final Integer publicationYear;
+    private final Integer pageCount;
+    private final String language;
+    private final BigDecimal estimatedPrice;
+    private final Book.ExchangeStatus exchangeStatus;
+    private final double averageRating;
+    private final int ratingCount;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final List<String> authors = new ArrayList<>();
+    private final List<String> genres = new ArrayList<>();
+
+    public BookExportRow(Long id, String isbn, String title, String description, String publisher,
+                         Integer publicationYear, Integer pageCount, String language, BigDecimal estimatedPrice,
+                         Book.ExchangeStatus exchangeStatus, Double averageRating, Integer ratingCount,
+                         LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.isbn = isbn;
+        this.title = title;
+        this.description = description;
+        this.publisher = publisher;
+        this.publicationYear = publicationYear;
+        this.pageCount = pageCount;
+        this.language = language;
+        this.estimatedPrice = estimatedPrice;
+        this.exchangeStatus = exchangeStatus;
+        this.averageRating = averageRating != null ? averageRating : 0.0;
+        this.ratingCount = ratingCount != null ? ratingCount : 0;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+
+    public String getIsbn() { return isbn; }
+
+    public String getTitle() { return title; }
+
+    public String getDescription() { return description; }
+
+    public String getPublisher() { return publisher; }
+
+    public Integer getPublicationYear() { return publicationYear; }
+
+    public Integer getPageCount() { return pageCount; }
+
+    public String getLanguage() { return language; }
+
+    public BigDecimal getEstimatedPrice() { return estimatedPrice; }
+
+    public Book.ExchangeStatus getExchangeStatus() { return exchangeStatus; }
+
+    public double getAverageRating() { return averageRating; }
+
+    public int getRatingCount() { return ratingCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+
+    public List<String> getAuthors() { return authors; }
+
+    public List<String> getGenres() { return genres; }
+}
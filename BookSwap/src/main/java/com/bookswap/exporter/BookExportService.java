@@ -0,0 +1,187 @@
+package com.bookswap.exporter;
+
+import com.bookswap.datasource.BulkConnectionPool;
+import com.bookswap.entity.Book;
+import com.bookswap.entity.Genre;
+import com.bookswap.repository.GenreRepository;
+import com.bookswap.search.SearchDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка каталога в CSV или NDJSON
+ * Книги читаются курсором в порядке ID; на каждую порцию строк авторы и жанры догружаются двумя
+ * запросами по диапазону ID, после чего порция сразу пишется в поток ответа. В памяти одновременно
+ * находится не больше одной порции, независимо от размера каталога. Выгрузка держит соединение до
+ * конца передачи ответа, поэтому идёт через пул выгрузки и импорта (BulkConnectionPool), а не общий пул
+ */
+@Service
+public class BookExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookExportService.class);
+
+    // Порция строк держится в памяти целиком, поэтому размер из конфигурации ограничен
+    private static final int MAX_BATCH_SIZE = 5000;
+
+    // Фильтры дописываются к запросу по мере указания
+    private static final String BOOKS_SQL =
+            "SELECT b.id, b.isbn, b.title, b.description, b.publisher, b.publication_year, b.page_count, " +
+            "b.language, b.estimated_price, b.exchange_status, b.average_rating, b.rating_count, " +
+            "b.created_at, b.updated_at FROM books b WHERE TRUE";
+    // Связи порции читаются диапазоном по индексу связующей таблицы; большой список IN планировщик
+    // выполняет полным сканированием связей, и выгрузка становится квадратичной по размеру каталога
+    private static final String AUTHOR_NAMES_SQL =
+            "SELECT ba.book_id, a.first_name, a.middle_name, a.last_name FROM book_authors ba " +
+            "JOIN authors a ON a.id = ba.author_id WHERE ba.book_id BETWEEN ? AND ?";
+    private static final String GENRE_NAMES_SQL =
+            "SELECT bg.book_id, g.name FROM book_genres bg " +
+            "JOIN genres g ON g.id = bg.genre_id WHERE bg.book_id BETWEEN ? AND ?";
+
+    private final GenreRepository genreRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final int batchSize;
+
+    @Autowired
+    public BookExportService(BulkConnectionPool bulkConnectionPool,
+                             GenreRepository genreRepository,
+                             @Value("${book-export.batch-size:500}") int batchSize) {
+        this.genreRepository = genreRepository;
+        this.batchSize = Math.min(Math.max(1, batchSize), MAX_BATCH_SIZE);
+        // Серверный курсор читается порциями по fetch size; PostgreSQL держит его только внутри транзакции
+        this.jdbcTemplate = new JdbcTemplate(bulkConnectionPool.getDataSource());
+        this.jdbcTemplate.setFetchSize(this.batchSize);
+        this.readOnlyTransaction = new TransactionTemplate(bulkConnectionPool.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Жанр фильтра по точному имени; пустой результат означает, что такого жанра нет
+     */
+    public Optional<Genre> findGenre(String name) {
+        return genreRepository.findByName(name);
+    }
+
+    /**
+     * Пишет книги, подходящие под фильтры (null - без ограничения), и возвращает их число
+     * Транзакция держит курсор открытым до конца выгрузки, поэтому она только на чтение
+     */
+    public long export(Book.ExchangeStatus status, String language, Genre genre,
+                       BookExportWriter writer) throws IOException {
+        long startTime = System.currentTimeMillis();
+
+        StringBuilder sql = new StringBuilder(BOOKS_SQL);
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND b.exchange_status = ?");
+            args.add(status.name());
+        }
+        if (language != null) {
+            sql.append(" AND b.language = ?");
+            args.add(language);
+        }
+        if (genre != null) {
+            sql.append(" AND b.id IN (SELECT bg.book_id FROM book_genres bg WHERE bg.genre_id = ?)");
+            args.add(genre.getId());
+        }
+        sql.append(" ORDER BY b.id");
+
+        long exported;
+        try {
+            exported = readOnlyTransaction.execute(transactionStatus -> {
+                try (Stream<BookExportRow> rows = jdbcTemplate.queryForStream(sql.toString(),
+                        BookExportService::mapRow, args.toArray())) {
+                    return writeRows(rows.iterator(), writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        logger.info("Выгружено {} книг (статус: {}, язык: {}, жанр: {}) за {} мс", exported, status, language,
+                genre != null ? genre.getName() : null, System.currentTimeMillis() - startTime);
+        return exported;
+    }
+
+    private long writeRows(Iterator<BookExportRow> rows, BookExportWriter writer) throws IOException {
+        long exported = 0;
+        List<BookExportRow> batch = new ArrayList<>(batchSize);
+        while (rows.hasNext()) {
+            batch.add(rows.next());
+            if (batch.size() == batchSize) {
+                exported += writeBatch(batch, writer);
+                batch.clear();
+            }
+        }
+        return exported + writeBatch(batch, writer);
+    }
+
+    private int writeBatch(List<BookExportRow> batch, BookExportWriter writer) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // Строки порции упорядочены по ID: связи читаются диапазоном [первый, последний]. Книги диапазона,
+        // не прошедшие фильтры, пропускаются; диапазоны порций не пересекаются, поэтому каждая связь
+        // читается не больше одного раза за выгрузку
+        Map<Long, BookExportRow> byId = new HashMap<>();
+        for (BookExportRow row : batch) {
+            byId.put(row.getId(), row);
+        }
+        Long fromId = batch.get(0).getId();
+        Long toId = batch.get(batch.size() - 1).getId();
+
+        jdbcTemplate.query(AUTHOR_NAMES_SQL, resultSet -> {
+            BookExportRow row = byId.get(resultSet.getLong(1));
+            if (row != null) {
+                row.getAuthors().add(SearchDocument.fullName(resultSet.getString(2), resultSet.getString(3),
+                        resultSet.getString(4)));
+            }
+        }, fromId, toId);
+        jdbcTemplate.query(GENRE_NAMES_SQL, resultSet -> {
+            BookExportRow row = byId.get(resultSet.getLong(1));
+            if (row != null) {
+                row.getGenres().add(resultSet.getString(2));
+            }
+        }, fromId, toId);
+
+        for (BookExportRow row : batch) {
+            writer.write(row);
+        }
+        // Порция уходит клиенту сразу: медленный клиент тормозит чтение курсора, а не копит ответ в памяти
+        writer.flush();
+        return batch.size();
+    }
+
+    private static BookExportRow mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        return new BookExportRow(resultSet.getLong("id"), resultSet.getString("isbn"), resultSet.getString("title"),
+                resultSet.getString("description"), resultSet.getString("publisher"),
+                resultSet.getObject("publication_year", Integer.class), resultSet.getObject("page_count", Integer.class),
+                resultSet.getString("language"), resultSet.getBigDecimal("estimated_price"),
+                Book.ExchangeStatus.valueOf(resultSet.getString("exchange_status")),
+                resultSet.getObject("average_rating", Double.class), resultSet.getObject("rating_count", Integer.class),
+                resultSet.getObject("created_at", LocalDateTime.class),
+                resultSet.getObject("updated_at", LocalDateTime.class));
+    }
+}
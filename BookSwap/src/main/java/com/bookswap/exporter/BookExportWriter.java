@@ -0,0 +1,67 @@
+package com.bookswap.exporter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Последовательная запись строк выгрузки в поток ответа
+ * Буферизуется не больше одного буфера вывода; close дописывает хвост формата и сжатия,
+ * но не закрывает исходный поток
+ */
+public interface BookExportWriter extends Closeable, Flushable {
+
+    void write(BookExportRow row) throws IOException;
+
+    enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+
+        public String getExtension() { return extension; }
+    }
+
+    static BookExportWriter open(Format format, OutputStream output, boolean gzip) throws IOException {
+        OutputStream target = new NonClosingOutputStream(output);
+        if (gzip) {
+            target = new GZIPOutputStream(target, 1 << 16);
+        }
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16);
+        return format == Format.CSV ? new CsvBookExportWriter(writer) : new NdjsonBookExportWriter(writer);
+    }
+
+    /**
+     * Поток ответа закрывает контейнер сервлетов; писатель только завершает свой формат
+     */
+    final class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.bookswap.exporter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * CSV по RFC 4180 с заголовком
+ * Имена колонок совпадают с форматом импорта (BookImportRow): выгрузку можно загрузить обратно,
+ * служебные колонки импорт пропускает. Авторы и жанры перечисляются через точку с запятой
+ */
+class CsvBookExportWriter implements BookExportWriter {
+
+    private static final String HEADER = "id,isbn,title,authors,genres,description,publisher,publication_year," +
+            "page_count,language,estimated_price,exchange_status,average_rating,rating_count,created_at,updated_at";
+
+    private final Writer writer;
+
+    CsvBookExportWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        writer.write(HEADER);
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void write(BookExportRow row) throws IOException {
+        writer.write(String.valueOf(row.getId()));
+        writeField(row.getIsbn());
+        writeField(row.getTitle());
+        writeField(joinList(row.getAuthors()));
+        writeField(joinList(row.getGenres()));
+        writeField(row.getDescription());
+        writeField(row.getPublisher());
+        writeField(row.getPublicationYear());
+        writeField(row.getPageCount());
+        writeField(row.getLanguage());
+        writeField(row.getEstimatedPrice() != null ? row.getEstimatedPrice().toPlainString() : null);
+        writeField(row.getExchangeStatus());
+        writeField(row.getAverageRating());
+        writeField(row.getRatingCount());
+        writeField(row.getCreatedAt());
+        writeField(row.getUpdatedAt());
+        writer.write("\r\n");
+    }
+
+    private void writeField(Object value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (!needsQuoting(text)) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static boolean needsQuoting(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String joinList(List<String> values) {
+        return values.isEmpty() ? null : String.join("; ", values);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.bookswap.exporter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * NDJSON: по одному объекту JSON на строку, ключи совпадают с форматом импорта
+ * Пишется потоковым генератором Jackson без промежуточного дерева; пустые поля опускаются
+ */
+class NdjsonBookExportWriter implements BookExportWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonGenerator generator;
+
+    NdjsonBookExportWriter(Writer writer) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(writer);
+        // Строки разделяются переводом строки, а не пробелом по умолчанию
+        generator.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void write(BookExportRow row) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", row.getId());
+        writeString("isbn", row.getIsbn());
+        writeString("title", row.getTitle());
+        writeList("authors", row.getAuthors());
+        writeList("genres", row.getGenres());
+        writeString("description", row.getDescription());
+        writeString("publisher", row.getPublisher());
+        if (row.getPublicationYear() != null) {
+            generator.writeNumberField("publicationYear", row.getPublicationYear());
+        }
+        if (row.getPageCount() != null) {
+            generator.writeNumberField("pageCount", row.getPageCount());
+        }
+        writeString("language", row.getLanguage());
+        if (row.getEstimatedPrice() != null) {
+            generator.writeNumberField("estimatedPrice", row.getEstimatedPrice());
+        }
+        writeString("exchangeStatus", row.getExchangeStatus() != null ? row.getExchangeStatus().name() : null);
+        generator.writeNumberField("averageRating", row.getAverageRating());
+        generator.writeNumberField("ratingCount", row.getRatingCount());
+        writeString("createdAt", row.getCreatedAt() != null ? row.getCreatedAt().toString() : null);
+        writeString("updatedAt", row.getUpdatedAt() != null ? row.getUpdatedAt().toString() : null);
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    private void writeString(String field, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value);
+        }
+    }
+
+    private void writeList(String field, List<String> values) throws IOException {
+        generator.writeArrayFieldStart(field);
+        for (String value : values) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,28 @@
+package com.bookswap.importer;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Последовательное чтение строк импорта из потока запроса
+ * В памяти держится только текущая строка файла, загрузка целиком не буферизуется
+ */
+public interface BookImportReader extends Closeable {
+
+    /**
+     * Следующая строка или null в конце потока
+     * Строка, которую не удалось разобрать, возвращается с ошибками, чтение продолжается
+     */
+    BookImportRow next() throws IOException;
+
+    enum Format { CSV, NDJSON }
+
+    static BookImportReader open(Format format, InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        return format == Format.CSV ? new CsvBookImportReader(reader) : new NdjsonBookImportReader(reader);
+    }
+}
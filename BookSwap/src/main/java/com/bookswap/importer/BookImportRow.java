@@ -0,0 +1,159 @@
+package com.bookswap.importer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Строка файла импорта книг
+ * Значения полей приходят строками и разбираются одинаково для CSV и NDJSON; ошибки разбора
+ * копятся в строке и попадают в отчёт вместе с ошибками проверки
+ */
+public class BookImportRow {
+
+    // Разделитель нескольких авторов или жанров в одном поле CSV
+    static final char LIST_SEPARATOR = ';';
+
+    private final long lineNumber;
+    private final List<String> errors = new ArrayList<>();
+    // Строку не удалось разобрать как запись: поля не проверяются, в отчёт идёт только ошибка формата
+    private boolean malformed;
+
+    private String title;
+    private String isbn;
+    private String description;
+    private String publisher;
+    private Integer publicationYear;
+    private Integer pageCount;
+    private String language;
+    private BigDecimal estimatedPrice;
+    private final List<String> authors = new ArrayList<>();
+    private final List<String> genres = new ArrayList<>();
+
+    public BookImportRow(long lineNumber) {
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Присваивает поле по имени колонки или ключа JSON
+     * Имена сравниваются без учёта регистра, "_" и "-": publication_year и publicationYear равнозначны
+     */
+    void set(String field, String rawValue) {
+        String value = rawValue != null ? rawValue.trim() : "";
+        if (value.isEmpty()) {
+            return;
+        }
+
+        switch (normalizeField(field)) {
+            case "title" -> title = value;
+            case "isbn" -> isbn = value;
+            case "description" -> description = value;
+            case "publisher" -> publisher = value;
+            case "publicationyear", "year" -> publicationYear = parseInteger(field, value);
+            case "pagecount", "pages" -> pageCount = parseInteger(field, value);
+            case "language" -> language = value;
+            case "estimatedprice", "price" -> estimatedPrice = parseDecimal(field, value);
+            case "authors", "author" -> addAll(authors, value);
+            case "genres", "genre" -> addAll(genres, value);
+            default -> {
+                // Неизвестные колонки пропускаются, чтобы партнёры могли выгружать файлы как есть
+            }
+        }
+    }
+
+    /**
+     * Элемент массива JSON: каждый элемент - один автор или жанр
+     */
+    void add(String field, String rawValue) {
+        String value = rawValue != null ? rawValue.trim() : "";
+        if (value.isEmpty()) {
+            return;
+        }
+        switch (normalizeField(field)) {
+            case "authors", "author" -> authors.add(value);
+            case "genres", "genre" -> genres.add(value);
+            default -> set(field, value);
+        }
+    }
+
+    void addError(String error) {
+        errors.add(error);
+    }
+
+    void markMalformed(String error) {
+        malformed = true;
+        errors.add(error);
+    }
+
+    static String normalizeField(String field) {
+        StringBuilder normalized = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '_' && c != '-' && !Character.isWhitespace(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private Integer parseInteger(String field, String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            errors.add(field + ": ожидается целое число, получено '" + value + "'");
+            return null;
+        }
+    }
+
+    private BigDecimal parseDecimal(String field, String value) {
+        try {
+            return new BigDecimal(value.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            errors.add(field + ": ожидается число, получено '" + value + "'");
+            return null;
+        }
+    }
+
+    private static void addAll(List<String> target, String value) {
+        int start = 0;
+        while (start <= value.length()) {
+            int end = value.indexOf(LIST_SEPARATOR, start);
+            if (end < 0) {
+                end = value.length();
+            }
+            String item = value.substring(start, end).trim();
+            if (!item.isEmpty()) {
+                target.add(item);
+            }
+            start = end + 1;
+        }
+    }
+
+    // Getters
+    public long getLineNumber() { return lineNumber; }
+
+    public List<String> getErrors() { return errors; }
+
+    public boolean isMalformed() { return malformed; }
+
+    public String getTitle() { return title; }
+
+    public String getIsbn() { return isbn; }
+
+    public String getDescription() { return description; }
+
+    public String getPublisher() { return publisher; }
+
+    public Integer getPublicationYear() { return publicationYear; }
+
+    public Integer getPageCount() { return pageCount; }
+
+    public String getLanguage() { return language; }
+
+    public BigDecimal getEstimatedPrice() { return estimatedPrice; }
+
+    public List<String> getAuthors() { return authors; }
+
+    public List<String> getGenres() { return genres; }
+}
@@ -0,0 +1,520 @@
+package com.bookswap.importer;
+
+import com.bookswap.datasource.BulkConnectionPool;
+import com.bookswap.datasource.ReadWriteRoutingDataSource;
+import com.bookswap.dto.BookImportReport;
+import com.bookswap.entity.Author;
+import com.bookswap.entity.Book;
+import com.bookswap.event.BooksImportedEvent;
+import com.bookswap.search.BookSearchIndex;
+import com.bookswap.search.SearchDocument;
+import com.bookswap.service.ValidationService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Пакетный импорт книг пользователя из CSV или NDJSON
+ * Строки читаются потоком и проверяются по одной; прошедшие проверку копятся в порцию, которая
+ * записывается пакетами JDBC в отдельной транзакции на соединении пула выгрузки и импорта
+ * (BulkConnectionPool). ID книг и новых авторов берутся блоками из последовательностей, жанры и уже
+ * встречавшиеся авторы сопоставляются по справочникам в памяти.
+ * Поисковый индекс и слушатели каталога получают одно обновление на порцию.
+ * Ошибка записи порции не отменяет уже сохранённые порции: её строки отмечаются в отчёте
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    // Шаг последовательностей ID (allocationSize сущностей, V4__pooled_id_sequences.sql):
+    // один nextval резервирует столько значений подряд, начиная с полученного
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final String DEFAULT_LANGUAGE = "Русский";
+
+    private static final String INSERT_BOOK_SQL =
+            "INSERT INTO books (id, title, isbn, description, publisher, publication_year, page_count, " +
+            "language, estimated_price, exchange_status, owner_id, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Имена порции передаются двумя массивами: соединение с unnest идёт по индексу (last_name, first_name),
+    // а не перебирает список пар для каждой строки authors
+    private static final String SELECT_AUTHORS_SQL =
+            "SELECT a.id, a.first_name, a.middle_name, a.last_name FROM authors a " +
+            "JOIN unnest(?, ?) AS n(first_name, last_name) " +
+            "ON a.first_name = n.first_name AND a.last_name = n.last_name ORDER BY a.id";
+    private static final String INSERT_AUTHOR_SQL =
+            "INSERT INTO authors (id, first_name, middle_name, last_name, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_BOOK_AUTHOR_SQL = "INSERT INTO book_authors (book_id, author_id) VALUES (?, ?)";
+    private static final String INSERT_BOOK_GENRE_SQL = "INSERT INTO book_genres (book_id, genre_id) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ValidationService validationService;
+    private final BookSearchIndex bookSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectProvider<ReadWriteRoutingDataSource> routingDataSource;
+
+    private final int chunkSize;
+    private final int maxRows;
+
+    @Autowired
+    public BookImportService(BulkConnectionPool bulkConnectionPool,
+                             ValidationService validationService,
+                             BookSearchIndex bookSearchIndex,
+                             ApplicationEventPublisher eventPublisher,
+                             EntityManagerFactory entityManagerFactory,
+                             ObjectProvider<ReadWriteRoutingDataSource> routingDataSource,
+                             @Value("${book-import.chunk-size:1000}") int chunkSize,
+                             @Value("${book-import.max-rows:100000}") int maxRows) {
+        // Порции пишутся через пул выгрузки и импорта, не занимая соединения обычных запросов
+        this.jdbcTemplate = new JdbcTemplate(bulkConnectionPool.getDataSource());
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(bulkConnectionPool.getTransactionManager());
+        this.validationService = validationService;
+        this.bookSearchIndex = bookSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.entityManagerFactory = entityManagerFactory;
+        this.routingDataSource = routingDataSource;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxRows = Math.max(1, maxRows);
+    }
+
+    /**
+     * Импортирует книги из потока для владельца ownerId и возвращает отчёт по строкам
+     * Поток не закрывается
+     */
+    public BookImportReport importBooks(Long ownerId, BookImportReader reader) {
+        long started = System.currentTimeMillis();
+        BookImportReport report = new BookImportReport();
+        Import state = new Import(ownerId, loadGenres());
+
+        List<BookImportRow> chunk = new ArrayList<>(chunkSize);
+        try {
+            BookImportRow row;
+            while ((row = reader.next()) != null) {
+                if (report.getTotalRows() + chunk.size() >= maxRows) {
+                    report.abort("Превышено максимальное число строк в файле: " + maxRows);
+                    break;
+                }
+                if (!row.isMalformed()) {
+                    validate(row, state);
+                }
+                if (!row.getErrors().isEmpty()) {
+                    report.failed(row.getLineNumber(), row.getErrors());
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    writeChunk(chunk, state, report);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            // Прочитанные до ошибки строки сохраняются
+            logger.warn("Импорт книг пользователя {} прерван: {}", ownerId, e.getMessage());
+            report.abort("Ошибка чтения файла: " + e.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, state, report);
+        }
+
+        report.complete(System.currentTimeMillis() - started);
+        logger.info("Импорт книг пользователя {}: {} строк, сохранено {}, с ошибками {} за {} мс",
+                ownerId, report.getTotalRows(), report.getImportedRows(), report.getFailedRows(),
+                report.getDurationMs());
+        return report;
+    }
+
+    // Проверка строки
+
+    private void validate(BookImportRow row, Import state) {
+        String title = row.getTitle();
+        if (title == null) {
+            row.addError("title: название книги обязательно");
+        } else if (title.length() > 255) {
+            row.addError("title: название не должно превышать 255 символов");
+        }
+
+        String isbn = row.getIsbn();
+        if (isbn != null) {
+            if (isbn.length() > 20 || !validationService.isValidISBN(isbn)) {
+                row.addError("isbn: некорректный ISBN '" + isbn + "'");
+            } else if (state.seenIsbns.contains(isbn)) {
+                row.addError("isbn: ISBN " + isbn + " повторяется в файле");
+            }
+        }
+
+        if (row.getPublicationYear() != null && !validationService.isValidPublicationYear(row.getPublicationYear())) {
+            row.addError("publication_year: некорректный год издания " + row.getPublicationYear());
+        }
+        if (row.getPageCount() != null && row.getPageCount() <= 0) {
+            row.addError("page_count: количество страниц должно быть положительным");
+        }
+        BigDecimal price = row.getEstimatedPrice();
+        if (price != null && (price.signum() < 0 || price.setScale(2, RoundingMode.HALF_UP).precision() > 10)) {
+            row.addError("estimated_price: некорректная цена " + price.toPlainString());
+        }
+        if (row.getPublisher() != null && row.getPublisher().length() > 100) {
+            row.addError("publisher: издательство не должно превышать 100 символов");
+        }
+        if (row.getLanguage() != null && row.getLanguage().length() > 50) {
+            row.addError("language: язык не должен превышать 50 символов");
+        }
+
+        for (String author : row.getAuthors()) {
+            AuthorName name = AuthorName.parse(author);
+            if (name == null) {
+                row.addError("authors: укажите имя и фамилию автора '" + author + "' (не длиннее 100 символов каждое)");
+            }
+        }
+        for (String genre : row.getGenres()) {
+            if (!state.genres.containsKey(genre.toUpperCase(Locale.ROOT))) {
+                row.addError("genres: неизвестный жанр '" + genre + "'");
+            }
+        }
+
+        if (isbn != null && row.getErrors().isEmpty()) {
+            state.seenIsbns.add(isbn);
+        }
+    }
+
+    // Запись порции
+
+    /**
+     * Записывает порцию в одной транзакции. Если ISBN занят параллельной вставкой после проверки,
+     * порция повторяется один раз: повторная проверка отклонит такие строки
+     */
+    private void writeChunk(List<BookImportRow> chunk, Import state, BookImportReport report) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ChunkResult result = transactionTemplate.execute(status -> writeRows(chunk, state));
+                state.authorIds.putAll(result.newAuthors);
+                if (result.authorsCreated) {
+                    evictAuthorCaches();
+                }
+                for (int i = 0; i < result.rows.size(); i++) {
+                    report.imported(result.rows.get(i).getLineNumber(), result.bookIds[i]);
+                }
+                result.rejected.forEach((row, error) -> report.failed(row.getLineNumber(), List.of(error)));
+                return;
+            } catch (DuplicateKeyException e) {
+                if (attempt == 2) {
+                    failChunk(chunk, report, e);
+                    return;
+                }
+                logger.debug("Конфликт ISBN при записи порции импорта, повтор");
+            } catch (DataAccessException e) {
+                failChunk(chunk, report, e);
+                return;
+            }
+        }
+    }
+
+    private ChunkResult writeRows(List<BookImportRow> chunk, Import state) {
+        ChunkResult result = new ChunkResult();
+
+        // ISBN, уже занятые в каталоге
+        List<String> isbns = chunk.stream().map(BookImportRow::getIsbn).filter(Objects::nonNull).toList();
+        Set<String> takenIsbns = isbns.isEmpty() ? Set.of() : new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT isbn FROM books WHERE isbn IN (:isbns)", Map.of("isbns", isbns), String.class));
+        for (BookImportRow row : chunk) {
+            if (row.getIsbn() != null && takenIsbns.contains(row.getIsbn())) {
+                result.rejected.put(row, "isbn: книга с ISBN " + row.getIsbn() + " уже есть в каталоге");
+            } else {
+                result.rows.add(row);
+            }
+        }
+        if (result.rows.isEmpty()) {
+            return result;
+        }
+        // Запись идёт мимо маршрутизатора реплики: чтения владельца после фиксации остаются на основной базе
+        routingDataSource.ifAvailable(ReadWriteRoutingDataSource::recordWrite);
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp createdAt = Timestamp.valueOf(now);
+        Map<AuthorName, Long> authorIds = resolveAuthors(state, result, createdAt);
+
+        result.bookIds = allocateIds("books_id_seq", result.rows.size());
+        List<Integer> indexes = new ArrayList<>(result.rows.size());
+        for (int i = 0; i < result.rows.size(); i++) {
+            indexes.add(i);
+        }
+        jdbcTemplate.batchUpdate(INSERT_BOOK_SQL, indexes, chunkSize, (statement, i) -> {
+            BookImportRow row = result.rows.get(i);
+            statement.setLong(1, result.bookIds[i]);
+            statement.setString(2, row.getTitle());
+            statement.setString(3, row.getIsbn());
+            statement.setString(4, row.getDescription());
+            statement.setString(5, row.getPublisher());
+            statement.setObject(6, row.getPublicationYear(), Types.INTEGER);
+            statement.setObject(7, row.getPageCount(), Types.INTEGER);
+            statement.setString(8, row.getLanguage() != null ? row.getLanguage() : DEFAULT_LANGUAGE);
+            statement.setBigDecimal(9, row.getEstimatedPrice() != null
+                    ? row.getEstimatedPrice().setScale(2, RoundingMode.HALF_UP) : null);
+            statement.setString(10, Book.ExchangeStatus.AVAILABLE.name());
+            statement.setLong(11, state.ownerId);
+            statement.setTimestamp(12, createdAt);
+        });
+
+        List<long[]> bookAuthors = new ArrayList<>();
+        List<long[]> bookGenres = new ArrayList<>();
+        List<SearchDocument> documents = new ArrayList<>(result.rows.size());
+        List<Long> bookIds = new ArrayList<>(result.rows.size());
+        Map<Long, String> listedIsbns = new HashMap<>();
+        for (int i = 0; i < result.rows.size(); i++) {
+            BookImportRow row = result.rows.get(i);
+            long bookId = result.bookIds[i];
+
+            List<String> authorNames = new ArrayList<>(row.getAuthors().size());
+            Set<Long> linkedAuthors = new HashSet<>();
+            for (String author : row.getAuthors()) {
+                AuthorName name = AuthorName.parse(author);
+                if (linkedAuthors.add(authorIds.get(name))) {
+                    bookAuthors.add(new long[] {bookId, authorIds.get(name)});
+                    authorNames.add(name.displayName());
+                }
+            }
+            List<String> genreNames = new ArrayList<>(row.getGenres().size());
+            Set<Long> linkedGenres = new HashSet<>();
+            for (String genre : row.getGenres()) {
+                GenreRef ref = state.genres.get(genre.toUpperCase(Locale.ROOT));
+                if (linkedGenres.add(ref.id)) {
+                    bookGenres.add(new long[] {bookId, ref.id});
+                    genreNames.add(ref.name);
+                }
+            }
+
+            documents.add(new SearchDocument(bookId, row.getTitle(), row.getPublisher(),
+                    authorNames, genreNames, Book.ExchangeStatus.AVAILABLE, now));
+            bookIds.add(bookId);
+            if (row.getIsbn() != null) {
+                listedIsbns.put(bookId, row.getIsbn());
+            }
+        }
+        insertLinks(INSERT_BOOK_AUTHOR_SQL, bookAuthors);
+        insertLinks(INSERT_BOOK_GENRE_SQL, bookGenres);
+
+        // Поисковый индекс, главная страница и дополнение по ISBN обновляются после фиксации, один раз на порцию
+        bookSearchIndex.indexAllAfterCommit(documents);
+        eventPublisher.publishEvent(new BooksImportedEvent(bookIds, listedIsbns));
+        return result;
+    }
+
+    /**
+     * ID авторов порции: из уже известных импорту, затем из таблицы authors; недостающие создаются
+     */
+    private Map<AuthorName, Long> resolveAuthors(Import state, ChunkResult result, Timestamp createdAt) {
+        Map<AuthorName, Long> ids = new HashMap<>();
+        Set<AuthorName> unknown = new LinkedHashSet<>();
+        for (BookImportRow row : result.rows) {
+            for (String author : row.getAuthors()) {
+                AuthorName name = AuthorName.parse(author);
+                Long id = state.authorIds.get(name);
+                if (id != null) {
+                    ids.put(name, id);
+                } else {
+                    unknown.add(name);
+                }
+            }
+        }
+        if (unknown.isEmpty()) {
+            return ids;
+        }
+
+        String[] firstNames = unknown.stream().map(name -> name.firstName).toArray(String[]::new);
+        String[] lastNames = unknown.stream().map(name -> name.lastName).toArray(String[]::new);
+        jdbcTemplate.query(SELECT_AUTHORS_SQL, statement -> {
+                    statement.setArray(1, statement.getConnection().createArrayOf("varchar", firstNames));
+                    statement.setArray(2, statement.getConnection().createArrayOf("varchar", lastNames));
+                }, resultSet -> {
+                    AuthorName name = new AuthorName(resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getString(4));
+                    if (unknown.remove(name)) {
+                        ids.put(name, resultSet.getLong(1));
+                        result.newAuthors.put(name, resultSet.getLong(1));
+                    }
+                });
+
+        if (!unknown.isEmpty()) {
+            List<AuthorName> created = new ArrayList<>(unknown);
+            long[] authorIds = allocateIds("authors_id_seq", created.size());
+            List<Integer> indexes = new ArrayList<>(created.size());
+            for (int i = 0; i < created.size(); i++) {
+                indexes.add(i);
+                ids.put(created.get(i), authorIds[i]);
+                result.newAuthors.put(created.get(i), authorIds[i]);
+            }
+            result.authorsCreated = true;
+            jdbcTemplate.batchUpdate(INSERT_AUTHOR_SQL, indexes, chunkSize, (statement, i) -> {
+                AuthorName name = created.get(i);
+                statement.setLong(1, authorIds[i]);
+                statement.setString(2, name.firstName);
+                statement.setString(3, name.middleName);
+                statement.setString(4, name.lastName);
+                statement.setTimestamp(5, createdAt);
+            });
+        }
+        return ids;
+    }
+
+    /**
+     * Авторы вставляются в обход Hibernate, поэтому он не сбрасывает кэш второго уровня сам:
+     * закэшированный пустой результат поиска автора по имени иначе жил бы до истечения срока региона
+     */
+    private void evictAuthorCaches() {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        cache.evictEntityData(Author.class);
+        cache.evictDefaultQueryRegion();
+    }
+
+    private void insertLinks(String sql, List<long[]> links) {
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, links, chunkSize, (statement, link) -> {
+                statement.setLong(1, link[0]);
+                statement.setLong(2, link[1]);
+            });
+        }
+    }
+
+    /**
+     * count идентификаторов из последовательности: по одному nextval на блок из ID_BLOCK_SIZE значений,
+     * так же как их выдаёт Hibernate (pooled-lo)
+     */
+    private long[] allocateIds(String sequence, int count) {
+        int blocks = (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+        List<Long> starts = jdbcTemplate.queryForList(
+                "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)", Long.class, blocks);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = starts.get(i / ID_BLOCK_SIZE) + i % ID_BLOCK_SIZE;
+        }
+        return ids;
+    }
+
+    private void failChunk(List<BookImportRow> chunk, BookImportReport report, DataAccessException e) {
+        logger.error("Ошибка при записи порции импорта книг ({} строк)", chunk.size(), e);
+        String error = "Ошибка записи: " + e.getMostSpecificCause().getMessage();
+        for (BookImportRow row : chunk) {
+            report.failed(row.getLineNumber(), List.of(error));
+        }
+    }
+
+    private Map<String, GenreRef> loadGenres() {
+        Map<String, GenreRef> genres = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM genres", resultSet -> {
+            String name = resultSet.getString(2);
+            genres.put(name.toUpperCase(Locale.ROOT), new GenreRef(resultSet.getLong(1), name));
+        });
+        return genres;
+    }
+
+    /**
+     * Состояние одного импорта: справочники в памяти и ISBN, уже встреченные в файле
+     */
+    private static final class Import {
+        private final long ownerId;
+        private final Map<String, GenreRef> genres;
+        private final Map<AuthorName, Long> authorIds = new HashMap<>();
+        private final Set<String> seenIsbns = new HashSet<>();
+
+        private Import(long ownerId, Map<String, GenreRef> genres) {
+            this.ownerId = ownerId;
+            this.genres = genres;
+        }
+    }
+
+    private static final class ChunkResult {
+        private final List<BookImportRow> rows = new ArrayList<>();
+        private final Map<BookImportRow, String> rejected = new LinkedHashMap<>();
+        // Авторы, найденные или созданные в транзакции порции; попадают в справочник импорта после фиксации
+        private final Map<AuthorName, Long> newAuthors = new HashMap<>();
+        private boolean authorsCreated;
+        private long[] bookIds = new long[0];
+    }
+
+    private static final class GenreRef {
+        private final long id;
+        private final String name;
+
+        private GenreRef(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Автор из файла: первое слово - имя, последнее - фамилия, между ними - отчество
+     */
+    private static final class AuthorName {
+        private final String firstName;
+        private final String middleName;
+        private final String lastName;
+
+        private AuthorName(String firstName, String middleName, String lastName) {
+            this.firstName = firstName;
+            this.middleName = middleName;
+            this.lastName = lastName;
+        }
+
+        static AuthorName parse(String value) {
+            String[] parts = value.trim().split("\\s+");
+            if (parts.length < 2) {
+                return null;
+            }
+            String middle = parts.length > 2 ? String.join(" ", Arrays.copyOfRange(parts, 1, parts.length - 1)) : null;
+            AuthorName name = new AuthorName(parts[0], middle, parts[parts.length - 1]);
+            boolean fits = name.firstName.length() <= 100 && name.lastName.length() <= 100
+                    && (middle == null || middle.length() <= 100);
+            return fits ? name : null;
+        }
+
+        String displayName() {
+            return middleName != null ? firstName + " " + middleName + " " + lastName : firstName + " " + lastName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof AuthorName that)) return false;
+            return firstName.equals(that.firstName) && Objects.equals(middleName, that.middleName)
+                    && lastName.equals(that.lastName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(firstName, middleName, lastName);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.bookswap.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV по RFC 4180: первая запись - заголовок с именами полей, значения в кавычках могут содержать
+ * запятые, переводы строк и удвоенные кавычки. Несколько авторов или жанров в одном поле
+ * разделяются точкой с запятой
+ */
+class CsvBookImportReader implements BookImportReader {
+
+    // Запись длиннее считается повреждённым файлом (например, незакрытая кавычка)
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+
+    private final BufferedReader reader;
+    private String[] header;
+    private long lineNumber;
+
+    CsvBookImportReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public BookImportRow next() throws IOException {
+        if (header == null) {
+            List<String> headerFields = readRecord();
+            if (headerFields == null) {
+                return null;
+            }
+            if (!headerFields.isEmpty() && headerFields.get(0).startsWith("\uFEFF")) {
+                headerFields.set(0, headerFields.get(0).substring(1));
+            }
+            header = headerFields.toArray(String[]::new);
+        }
+
+        long recordLine = lineNumber + 1;
+        List<String> fields = readRecord();
+        if (fields == null) {
+            return null;
+        }
+
+        BookImportRow row = new BookImportRow(recordLine);
+        if (fields.size() > header.length) {
+            row.markMalformed("полей в строке больше, чем в заголовке: " + fields.size() + " > " + header.length);
+        }
+        for (int i = 0; i < Math.min(fields.size(), header.length); i++) {
+            row.set(header[i], fields.get(i));
+        }
+        return row;
+    }
+
+    /**
+     * Поля следующей непустой записи; запись в кавычках может занимать несколько строк файла
+     */
+    private List<String> readRecord() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isEmpty());
+
+        StringBuilder record = new StringBuilder(line);
+        while (hasOpenQuote(record)) {
+            String continuation = reader.readLine();
+            if (continuation == null) {
+                throw new IOException("Незакрытая кавычка в записи, начатой до строки " + lineNumber);
+            }
+            lineNumber++;
+            record.append('\n').append(continuation);
+            if (record.length() > MAX_RECORD_LENGTH) {
+                throw new IOException("Запись у строки " + lineNumber + " длиннее " + MAX_RECORD_LENGTH + " символов");
+            }
+        }
+        return split(record);
+    }
+
+    // Удвоенная кавычка внутри значения не меняет чётность, поэтому достаточно посчитать кавычки
+    private static boolean hasOpenQuote(CharSequence record) {
+        int quotes = 0;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return (quotes & 1) == 1;
+    }
+
+    private static List<String> split(CharSequence record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
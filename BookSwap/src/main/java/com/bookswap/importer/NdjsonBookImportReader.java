@@ -0,0 +1,74 @@
+package com.bookswap.importer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * NDJSON: по одному объекту JSON на строку. Авторы и жанры - массив строк или строка через
+ * точку с запятой. Строка с некорректным JSON попадает в отчёт с ошибкой, следующие читаются дальше
+ */
+class NdjsonBookImportReader implements BookImportReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final BufferedReader reader;
+    private long lineNumber;
+
+    NdjsonBookImportReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public BookImportRow next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+        } while (line.isBlank());
+
+        BookImportRow row = new BookImportRow(lineNumber);
+        try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                row.markMalformed("строка должна содержать объект JSON");
+                return row;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                        if (token.isScalarValue()) {
+                            row.add(field, parser.getValueAsString());
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if (token == JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                } else if (token != JsonToken.VALUE_NULL) {
+                    row.set(field, parser.getValueAsString());
+                }
+            }
+            if (token != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                row.markMalformed("после объекта JSON в строке есть лишние данные");
+            }
+        } catch (JsonProcessingException e) {
+            row.markMalformed("некорректный JSON: " + e.getOriginalMessage());
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,235 @@
+package com.bookswap.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Граф "хочет" на примитивных массивах: вершина - пользователь, ребро u -> v - открытый запрос
+ * обмена книга на книгу, в котором u хочет книгу v. Цикл в графе - цепочка, в которой каждый
+ * участник отдаёт одну книгу и получает другую.
+ * Рёбра хранятся параллельными массивами с односвязными списками исходящих рёбер,
+ * освобождённые слоты переиспользуются; идентификаторы пользователей и обменов отображаются
+ * в индексы через LongIntHashMap без упаковки. Не потокобезопасен
+ */
+final class SwapGraph {
+
+    private static final int NONE = -1;
+
+    private final LongIntHashMap nodeByUser;
+    private long[] userIds;
+    private int[] outHead;
+    private int nodeCount;
+
+    private final LongIntHashMap edgeByExchange;
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private int[] nextOut;
+    private long[] edgeExchange;
+    private long[] edgeBook;
+    private int edgeSlots;
+    private int freeEdge = NONE;
+    private int edgeCount;
+
+    SwapGraph(int expectedUsers, int expectedEdges) {
+        int nodes = Math.max(16, expectedUsers);
+        int edges = Math.max(16, expectedEdges);
+        nodeByUser = new LongIntHashMap(nodes);
+        userIds = new long[nodes];
+        outHead = new int[nodes];
+        edgeByExchange = new LongIntHashMap(edges);
+        edgeFrom = new int[edges];
+        edgeTo = new int[edges];
+        nextOut = new int[edges];
+        edgeExchange = new long[edges];
+        edgeBook = new long[edges];
+    }
+
+    /**
+     * Добавляет запрос requester -> owner; возвращает индекс ребра или -1, если обмен уже в графе
+     */
+    int addEdge(long exchangeId, long bookId, long ownerId, long requesterId) {
+        if (edgeByExchange.get(exchangeId) != LongIntHashMap.MISSING) {
+            return NONE;
+        }
+        int from = node(requesterId);
+        int to = node(ownerId);
+
+        int edge;
+        if (freeEdge != NONE) {
+            edge = freeEdge;
+            freeEdge = nextOut[edge];
+        } else {
+            if (edgeSlots == edgeFrom.length) {
+                growEdges();
+            }
+            edge = edgeSlots++;
+        }
+
+        edgeFrom[edge] = from;
+        edgeTo[edge] = to;
+        edgeExchange[edge] = exchangeId;
+        edgeBook[edge] = bookId;
+        nextOut[edge] = outHead[from];
+        outHead[from] = edge;
+        edgeByExchange.put(exchangeId, edge);
+        edgeCount++;
+        return edge;
+    }
+
+    boolean removeEdge(long exchangeId) {
+        int edge = edgeByExchange.remove(exchangeId);
+        if (edge == LongIntHashMap.MISSING) {
+            return false;
+        }
+
+        int from = edgeFrom[edge];
+        if (outHead[from] == edge) {
+            outHead[from] = nextOut[edge];
+        } else {
+            int previous = outHead[from];
+            while (nextOut[previous] != edge) {
+                previous = nextOut[previous];
+            }
+            nextOut[previous] = nextOut[edge];
+        }
+
+        nextOut[edge] = freeEdge;
+        freeEdge = edge;
+        edgeCount--;
+        return true;
+    }
+
+    /**
+     * Простые циклы, проходящие через ребро edge, длиной не больше maxLength рёбер
+     * Поиск в глубину от конца ребра к его началу с явным стеком; посещение вершин ограничено
+     * maxVisits, чтобы запрос к популярному владельцу не обходил весь граф
+     *
+     * @return циклы как массивы индексов рёбер, начиная с edge
+     */
+    List<int[]> cyclesThrough(int edge, int maxLength, int maxVisits, int maxCycles) {
+        List<int[]> cycles = new ArrayList<>();
+        int start = edgeTo[edge];
+        int target = edgeFrom[edge];
+
+        // pathNodes[d] - вершина на глубине d, cursor[d] - следующее ребро для перебора из неё
+        int[] pathNodes = new int[maxLength];
+        int[] pathEdges = new int[maxLength];
+        int[] cursor = new int[maxLength];
+        pathNodes[0] = start;
+        pathEdges[0] = edge;
+        cursor[0] = outHead[start];
+        int depth = 0;
+        int visits = 0;
+
+        while (depth >= 0 && visits < maxVisits && cycles.size() < maxCycles) {
+            int candidate = cursor[depth];
+            if (candidate == NONE) {
+                depth--;
+                continue;
+            }
+            cursor[depth] = nextOut[candidate];
+            int next = edgeTo[candidate];
+            visits++;
+
+            if (next == target) {
+                int[] cycle = new int[depth + 2];
+                System.arraycopy(pathEdges, 0, cycle, 0, depth + 1);
+                cycle[depth + 1] = candidate;
+                cycles.add(cycle);
+                continue;
+            }
+            // Ещё одно ребро до target должно уместиться в maxLength
+            if (depth + 2 >= maxLength || onPath(pathNodes, depth, next)) {
+                continue;
+            }
+            depth++;
+            pathNodes[depth] = next;
+            pathEdges[depth] = candidate;
+            cursor[depth] = outHead[next];
+        }
+        return cycles;
+    }
+
+    int edgeOf(long exchangeId) {
+        return edgeByExchange.get(exchangeId);
+    }
+
+    long exchangeId(int edge) {
+        return edgeExchange[edge];
+    }
+
+    long bookId(int edge) {
+        return edgeBook[edge];
+    }
+
+    long ownerId(int edge) {
+        return userIds[edgeTo[edge]];
+    }
+
+    long requesterId(int edge) {
+        return userIds[edgeFrom[edge]];
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Приблизительный объём массивов графа в байтах
+     */
+    long estimatedBytes() {
+        long nodes = (long) userIds.length * (Long.BYTES + Integer.BYTES);
+        long edges = (long) edgeFrom.length * (3 * Integer.BYTES + 2 * Long.BYTES);
+        long maps = (long) (nodeByUser.size() + edgeByExchange.size()) * 2 * (Long.BYTES + Integer.BYTES + 1);
+        return nodes + edges + maps;
+    }
+
+    void clear() {
+        nodeByUser.clear();
+        edgeByExchange.clear();
+        nodeCount = 0;
+        edgeSlots = 0;
+        edgeCount = 0;
+        freeEdge = NONE;
+    }
+
+    private int node(long userId) {
+        int node = nodeByUser.get(userId);
+        if (node != LongIntHashMap.MISSING) {
+            return node;
+        }
+        if (nodeCount == userIds.length) {
+            int capacity = userIds.length * 2;
+            userIds = Arrays.copyOf(userIds, capacity);
+            outHead = Arrays.copyOf(outHead, capacity);
+        }
+        node = nodeCount++;
+        userIds[node] = userId;
+        outHead[node] = NONE;
+        nodeByUser.put(userId, node);
+        return node;
+    }
+
+    private void growEdges() {
+        int capacity = edgeFrom.length * 2;
+        edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+        edgeTo = Arrays.copyOf(edgeTo, capacity);
+        nextOut = Arrays.copyOf(nextOut, capacity);
+        edgeExchange = Arrays.copyOf(edgeExchange, capacity);
+        edgeBook = Arrays.copyOf(edgeBook, capacity);
+    }
+
+    private static boolean onPath(int[] pathNodes, int depth, int node) {
+        for (int i = 0; i <= depth; i++) {
+            if (pathNodes[i] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
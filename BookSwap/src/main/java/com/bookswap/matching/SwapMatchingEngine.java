@@ -0,0 +1,276 @@
+package com.bookswap.matching;
+
+import com.bookswap.entity.BookExchange;
+import com.bookswap.event.ExchangeChangedEvent;
+import com.bookswap.repository.BookExchangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Движок подбора обменов книга на книгу
+ * Держит в памяти граф открытых запросов BOOK_FOR_BOOK и при появлении каждого запроса ищет
+ * замкнутые цепочки длиной до max-cycle-length, проходящие через него. Найденные циклы хранятся
+ * как предложения до тех пор, пока все их запросы остаются открытыми.
+ * Граф строится при старте приложения и далее обновляется после фиксации транзакций обменов
+ */
+@Component
+public class SwapMatchingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(SwapMatchingEngine.class);
+
+    private final BookExchangeRepository exchangeRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final boolean enabled;
+    private final int maxCycleLength;
+    private final int maxVisits;
+    private final int maxCyclesPerRequest;
+    private final int rebuildBatchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SwapGraph graph;
+    private final Map<Long, SwapProposal> proposals = new HashMap<>();
+    private final Map<Long, Set<Long>> proposalsByExchange = new HashMap<>();
+    private final Map<Long, Set<Long>> proposalsByUser = new HashMap<>();
+    private long nextProposalId = 1;
+
+    // Обмены, изменённые во время перестроения: их состояние из перестроения устарело
+    private final Set<Long> touchedDuringRebuild = new HashSet<>();
+    private boolean rebuilding = false;
+    private volatile boolean ready = false;
+
+    private final AtomicLong proposalsFound = new AtomicLong();
+    private final AtomicLong truncatedSearches = new AtomicLong();
+
+    @Autowired
+    public SwapMatchingEngine(BookExchangeRepository exchangeRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${matching.enabled:true}") boolean enabled,
+                              @Value("${matching.max-cycle-length:4}") int maxCycleLength,
+                              @Value("${matching.max-visits:10000}") int maxVisits,
+                              @Value("${matching.max-cycles-per-request:16}") int maxCyclesPerRequest,
+                              @Value("${matching.rebuild-batch-size:5000}") int rebuildBatchSize,
+                              @Value("${matching.expected-users:10000}") int expectedUsers,
+                              @Value("${matching.expected-requests:100000}") int expectedRequests) {
+        this.exchangeRepository = exchangeRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.maxCycleLength = Math.max(2, maxCycleLength);
+        this.maxVisits = Math.max(1, maxVisits);
+        this.maxCyclesPerRequest = Math.max(1, maxCyclesPerRequest);
+        this.rebuildBatchSize = Math.max(1, rebuildBatchSize);
+        this.graph = new SwapGraph(expectedUsers, expectedRequests);
+    }
+
+    /**
+     * Граф построен; до этого предложения не выдаются
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Предложения, в которых участвует пользователь, от коротких циклов к длинным
+     */
+    public List<SwapProposal> findProposals(Long userId) {
+        lock.readLock().lock();
+        try {
+            Set<Long> ids = proposalsByUser.get(userId);
+            if (ids == null) {
+                return List.of();
+            }
+            List<SwapProposal> result = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                result.add(proposals.get(id));
+            }
+            result.sort(Comparator.comparingInt(SwapProposal::getSize).thenComparingLong(SwapProposal::getId));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener
+    public void onExchangeChanged(ExchangeChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                touchedDuringRebuild.add(event.getExchangeId());
+            }
+            apply(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Полное перестроение графа из открытых запросов книга на книгу, пачками по возрастанию ID
+     */
+    public void rebuild() {
+        logger.info("Перестроение графа подбора обменов");
+        long started = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            touchedDuringRebuild.clear();
+            graph.clear();
+            proposals.clear();
+            proposalsByExchange.clear();
+            proposalsByUser.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            long loaded = 0;
+            Long lastId = 0L;
+            List<ExchangeChangedEvent> batch;
+            do {
+                Long afterId = lastId;
+                batch = readOnlyTransaction.execute(status -> exchangeRepository.findByStatusAndTypeAfter(afterId,
+                        BookExchange.ExchangeStatus.PENDING, BookExchange.ExchangeType.BOOK_FOR_BOOK,
+                        PageRequest.of(0, rebuildBatchSize)));
+                lock.writeLock().lock();
+                try {
+                    for (ExchangeChangedEvent request : batch) {
+                        if (!touchedDuringRebuild.contains(request.getExchangeId())) {
+                            apply(request);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                loaded += batch.size();
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getExchangeId();
+                }
+            } while (batch.size() == rebuildBatchSize);
+
+            ready = true;
+            logger.info("Граф подбора обменов построен: {} запросов, {} предложений за {} мс",
+                    loaded, proposals.size(), System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при построении графа подбора обменов", e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                touchedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Размер графа и счётчики поиска
+     */
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            return Map.of(
+                    "ready", isReady(),
+                    "users", graph.nodeCount(),
+                    "openRequests", graph.edgeCount(),
+                    "activeProposals", proposals.size(),
+                    "proposalsFound", proposalsFound.get(),
+                    "truncatedSearches", truncatedSearches.get(),
+                    "estimatedGraphBytes", graph.estimatedBytes()
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Изменения графа; вызываются под блокировкой записи
+
+    private void apply(ExchangeChangedEvent event) {
+        boolean open = event.getExchangeType() == BookExchange.ExchangeType.BOOK_FOR_BOOK
+                && event.getStatus() == BookExchange.ExchangeStatus.PENDING;
+        if (open) {
+            int edge = graph.addEdge(event.getExchangeId(), event.getBookId(), event.getOwnerId(), event.getRequesterId());
+            if (edge >= 0) {
+                findCycles(edge);
+            }
+        } else if (graph.removeEdge(event.getExchangeId())) {
+            dropProposals(event.getExchangeId());
+        }
+    }
+
+    /**
+     * Цикл замыкается последним добавленным запросом, поэтому каждый цикл находится ровно один раз
+     */
+    private void findCycles(int edge) {
+        List<int[]> cycles = graph.cyclesThrough(edge, maxCycleLength, maxVisits, maxCyclesPerRequest);
+        if (cycles.size() == maxCyclesPerRequest) {
+            truncatedSearches.incrementAndGet();
+        }
+        for (int[] cycle : cycles) {
+            List<SwapProposal.Leg> legs = new ArrayList<>(cycle.length);
+            for (int leg : cycle) {
+                legs.add(new SwapProposal.Leg(graph.exchangeId(leg), graph.bookId(leg),
+                        graph.ownerId(leg), graph.requesterId(leg)));
+            }
+            SwapProposal proposal = new SwapProposal(nextProposalId++, List.copyOf(legs));
+            proposals.put(proposal.getId(), proposal);
+            for (SwapProposal.Leg leg : legs) {
+                proposalsByExchange.computeIfAbsent(leg.getExchangeId(), id -> new HashSet<>()).add(proposal.getId());
+                proposalsByUser.computeIfAbsent(leg.getToUserId(), id -> new HashSet<>()).add(proposal.getId());
+            }
+            proposalsFound.incrementAndGet();
+        }
+    }
+
+    private void dropProposals(long exchangeId) {
+        Set<Long> ids = proposalsByExchange.remove(exchangeId);
+        if (ids == null) {
+            return;
+        }
+        for (Long id : ids) {
+            SwapProposal proposal = proposals.remove(id);
+            for (SwapProposal.Leg leg : proposal.getLegs()) {
+                removeIndexed(proposalsByExchange, leg.getExchangeId(), id);
+                removeIndexed(proposalsByUser, leg.getToUserId(), id);
+            }
+        }
+    }
+
+    private static void removeIndexed(Map<Long, Set<Long>> index, Long key, Long proposalId) {
+        Set<Long> ids = index.get(key);
+        if (ids != null && ids.remove(proposalId) && ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+}
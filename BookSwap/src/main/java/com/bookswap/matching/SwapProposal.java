@@ -0,0 +1,50 @@
+package com.bookswap.matching;
+
+import java.util.List;
+
+/**
+ * Предложенный обмен по кругу: каждый участник отдаёт книгу, которую у него запросили,
+ * и получает книгу, которую запросил сам. Двусторонний обмен - цикл из двух звеньев
+ */
+public class SwapProposal {
+
+    private final long id;
+    private final List<Leg> legs;
+
+    public SwapProposal(long id, List<Leg> legs) {
+        this.id = id;
+        this.legs = legs;
+    }
+
+    public long getId() { return id; }
+
+    public List<Leg> getLegs() { return legs; }
+
+    public int getSize() { return legs.size(); }
+
+    /**
+     * Звено цикла: открытый запрос обмена, по которому книга переходит от владельца к запросившему
+     */
+    public static class Leg {
+
+        private final long exchangeId;
+        private final long bookId;
+        private final long fromUserId;
+        private final long toUserId;
+
+        public Leg(long exchangeId, long bookId, long fromUserId, long toUserId) {
+            this.exchangeId = exchangeId;
+            this.bookId = bookId;
+            this.fromUserId = fromUserId;
+            this.toUserId = toUserId;
+        }
+
+        public long getExchangeId() { return exchangeId; }
+
+        public long getBookId() { return bookId; }
+
+        public long getFromUserId() { return fromUserId; }
+
+        public long getToUserId() { return toUserId; }
+    }
+}
@@ -0,0 +1,47 @@
+package com.bookswap.metrics;
+
+import com.bookswap.entity.BookExchange;
+import com.bookswap.event.ExchangeChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Счётчики переходов обменов по статусам: bookswap.exchange.transitions{status, type}
+ * Создание запроса считается переходом в PENDING, автоотклонение конкурирующих запросов и отмена
+ * просроченных - переходами в REJECTED и CANCELLED. Учитываются только зафиксированные изменения.
+ * Все сочетания статуса и типа регистрируются заранее, чтобы ряды существовали с нуля
+ */
+@Component
+public class ExchangeTransitionMetrics {
+
+    private static final String TRANSITIONS = "bookswap.exchange.transitions";
+
+    private final Map<BookExchange.ExchangeType, Map<BookExchange.ExchangeStatus, Counter>> counters =
+            new EnumMap<>(BookExchange.ExchangeType.class);
+
+    @Autowired
+    public ExchangeTransitionMetrics(MeterRegistry registry) {
+        for (BookExchange.ExchangeType type : BookExchange.ExchangeType.values()) {
+            Map<BookExchange.ExchangeStatus, Counter> byStatus = new EnumMap<>(BookExchange.ExchangeStatus.class);
+            for (BookExchange.ExchangeStatus status : BookExchange.ExchangeStatus.values()) {
+                byStatus.put(status, Counter.builder(TRANSITIONS)
+                        .description("Переходы обменов в статус")
+                        .tag("status", status.name())
+                        .tag("type", type.name())
+                        .register(registry));
+            }
+            counters.put(type, byStatus);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onExchangeChanged(ExchangeChangedEvent event) {
+        counters.get(event.getExchangeType()).get(event.getStatus()).increment();
+    }
+}
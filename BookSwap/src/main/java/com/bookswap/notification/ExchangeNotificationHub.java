@@ -0,0 +1,311 @@
+package com.bookswap.notification;
+
+import com.bookswap.dto.ExchangeNotification;
+import com.bookswap.event.ExchangeChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Потоки Server-Sent Events с уведомлениями об обменах
+ * Соединение удерживается асинхронным запросом сервлета без потока на клиента; события
+ * ExchangeChangedEvent после фиксации раскладываются по очередям подписчиков владельца и
+ * запросившего и отправляются общим небольшим пулом. Переполненная очередь закрывает
+ * соединение: клиент переподключается с Last-Event-ID и получает пропущенное из кольцевого
+ * буфера последних уведомлений. Ожидающие клиенты не порождают запросов к БД
+ */
+@Component
+public class ExchangeNotificationHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExchangeNotificationHub.class);
+
+    private static final String EVENT_NAME = "exchange";
+    private static final String RESYNC_EVENT_NAME = "resync";
+    private static final long NO_REPLAY = Long.MIN_VALUE;
+
+    // Идентификаторы событий действительны в пределах одного запуска процесса
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final long emitterTimeoutMs;
+    private final int queueCapacity;
+    private final int maxConnectionsPerUser;
+
+    private final Map<Long, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher;
+
+    // Кольцевой буфер последних уведомлений для возобновления по Last-Event-ID
+    private final long[] replayUsers;
+    private final ExchangeNotification[] replayNotifications;
+    private long nextSequence = 1;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong sentEvents = new AtomicLong();
+    private final AtomicLong overflowDisconnects = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+
+    @Autowired
+    public ExchangeNotificationHub(@Value("${notifications.sse.timeout-ms:1800000}") long emitterTimeoutMs,
+                                   @Value("${notifications.sse.queue-capacity:64}") int queueCapacity,
+                                   @Value("${notifications.sse.max-connections-per-user:4}") int maxConnectionsPerUser,
+                                   @Value("${notifications.sse.replay-buffer-size:10000}") int replayBufferSize,
+                                   @Value("${notifications.sse.dispatch-threads:2}") int dispatchThreads) {
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxConnectionsPerUser = Math.max(1, maxConnectionsPerUser);
+        this.replayUsers = new long[Math.max(1, replayBufferSize)];
+        this.replayNotifications = new ExchangeNotification[replayUsers.length];
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, dispatchThreads), runnable -> {
+            Thread thread = new Thread(runnable, "exchange-sse-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Открывает поток пользователя; при наличии lastEventId сначала досылает пропущенные уведомления
+     * или событие resync, если они уже вытеснены из буфера
+     */
+    public SseEmitter subscribe(Long userId, String lastEventId) {
+        SseEmitter emitter = createEmitter();
+        Subscriber subscriber = new Subscriber(userId, emitter, queueCapacity);
+        long lastSequence = lastEventId != null && !lastEventId.isBlank() ? parseSequence(lastEventId) : NO_REPLAY;
+
+        // Досылка и регистрация выполняются под блокировкой рассылки: уведомления до регистрации
+        // приходят только из буфера, после неё - только из рассылки, без пропусков и повторов
+        List<Subscriber> userSubscribers;
+        synchronized (this) {
+            if (lastSequence != NO_REPLAY) {
+                replay(subscriber, lastSequence);
+            }
+            userSubscribers = subscribers.compute(userId, (id, list) -> {
+                List<Subscriber> registered = list != null ? list : new CopyOnWriteArrayList<>();
+                registered.add(subscriber);
+                return registered;
+            });
+        }
+        connections.incrementAndGet();
+        emitter.onCompletion(() -> unregister(subscriber));
+        emitter.onTimeout(() -> unregister(subscriber));
+        emitter.onError(error -> unregister(subscriber));
+
+        // Самое старое соединение пользователя уступает место новому
+        while (userSubscribers.size() > maxConnectionsPerUser) {
+            Subscriber oldest = userSubscribers.get(0);
+            unregister(oldest);
+            oldest.emitter.complete();
+        }
+
+        schedule(subscriber);
+        return emitter;
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(emitterTimeoutMs);
+    }
+
+    @TransactionalEventListener
+    public void onExchangeChanged(ExchangeChangedEvent event) {
+        // Постановка в очереди не блокируется, поэтому порядок уведомлений задаётся одной блокировкой
+        synchronized (this) {
+            deliver(event.getOwnerId(), record(event.getOwnerId(), event, ExchangeNotification.Role.OWNER));
+            deliver(event.getRequesterId(), record(event.getRequesterId(), event, ExchangeNotification.Role.REQUESTER));
+        }
+    }
+
+    /**
+     * Комментарий-пульс удерживает соединение через прокси и выявляет отключившихся клиентов
+     */
+    @Scheduled(fixedDelayString = "${notifications.sse.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        for (List<Subscriber> userSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : userSubscribers) {
+                subscriber.heartbeatDue = true;
+                schedule(subscriber);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "connections", connections.get(),
+                "users", subscribers.size(),
+                "sentEvents", sentEvents.get(),
+                "overflowDisconnects", overflowDisconnects.get(),
+                "resyncs", resyncs.get()
+        );
+    }
+
+    private ExchangeNotification record(Long userId, ExchangeChangedEvent event, ExchangeNotification.Role role) {
+        long sequence = nextSequence++;
+        ExchangeNotification notification = new ExchangeNotification(sequence, event.getExchangeId(),
+                event.getBookId(), event.getExchangeType(), event.getStatus(), role);
+        int slot = (int) (sequence % replayUsers.length);
+        replayUsers[slot] = userId;
+        replayNotifications[slot] = notification;
+        return notification;
+    }
+
+    private void deliver(Long userId, ExchangeNotification notification) {
+        List<Subscriber> userSubscribers = subscribers.get(userId);
+        if (userSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : userSubscribers) {
+            if (subscriber.queue.offer(notification)) {
+                schedule(subscriber);
+            } else {
+                // Клиент не успевает читать: закрываем поток, он возобновится по Last-Event-ID
+                overflowDisconnects.incrementAndGet();
+                unregister(subscriber);
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    /**
+     * Ставит в очередь ещё не зарегистрированного подписчика пропущенное из буфера;
+     * вызывается под блокировкой рассылки
+     */
+    private void replay(Subscriber subscriber, long lastSequence) {
+        long oldest = Math.max(1, nextSequence - replayUsers.length);
+        boolean available = lastSequence >= 0 && lastSequence + 1 >= oldest && lastSequence < nextSequence;
+        if (available) {
+            for (long sequence = lastSequence + 1; sequence < nextSequence; sequence++) {
+                int slot = (int) (sequence % replayUsers.length);
+                if (replayUsers[slot] == subscriber.userId && !subscriber.queue.offer(replayNotifications[slot])) {
+                    subscriber.queue.clear();
+                    available = false;
+                    break;
+                }
+            }
+        }
+        if (!available) {
+            // Пропущенное недоступно: клиент должен перечитать списки обменов через REST
+            resyncs.incrementAndGet();
+            subscriber.resyncDue = true;
+        }
+    }
+
+    // -1 для идентификатора из другого запуска или некорректного
+    private long parseSequence(String lastEventId) {
+        int separator = lastEventId.indexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    /**
+     * Отправка накопленного одному подписчику; одновременно работает не более одной отправки на поток
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                try {
+                    if (subscriber.resyncDue) {
+                        subscriber.resyncDue = false;
+                        subscriber.emitter.send(SseEmitter.event().name(RESYNC_EVENT_NAME).data(""));
+                    }
+                    ExchangeNotification notification;
+                    while ((notification = subscriber.queue.poll()) != null) {
+                        subscriber.emitter.send(SseEmitter.event()
+                                .id(epoch + "-" + notification.getSequence())
+                                .name(EVENT_NAME)
+                                .data(notification));
+                        sentEvents.incrementAndGet();
+                    }
+                    if (subscriber.heartbeatDue) {
+                        subscriber.heartbeatDue = false;
+                        subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Поток уведомлений пользователя {} закрыт: {}", subscriber.userId, e.getMessage());
+                    unregister(subscriber);
+                    subscriber.emitter.completeWithError(e);
+                    return;
+                }
+
+                subscriber.draining.set(false);
+                // Событие могло прийти после опустошения очереди, но до снятия флага
+                if (!subscriber.hasWork() || !subscriber.draining.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            subscriber.draining.set(false);
+            throw e;
+        }
+    }
+
+    private void unregister(Subscriber subscriber) {
+        boolean[] removed = {false};
+        subscribers.computeIfPresent(subscriber.userId, (id, list) -> {
+            removed[0] = list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+        if (removed[0]) {
+            connections.decrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (List<Subscriber> userSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : userSubscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+        dispatcher.shutdownNow();
+    }
+
+    private static final class Subscriber {
+
+        private final long userId;
+        private final SseEmitter emitter;
+        private final Queue<ExchangeNotification> queue;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private volatile boolean heartbeatDue;
+        private volatile boolean resyncDue;
+
+        private Subscriber(long userId, SseEmitter emitter, int queueCapacity) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        private boolean hasWork() {
+            return resyncDue || heartbeatDue || !queue.isEmpty();
+        }
+    }
+}
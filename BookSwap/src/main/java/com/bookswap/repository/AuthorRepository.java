@@ -1,8 +1,11 @@
 package com.bookswap.repository;
 
 import com.bookswap.entity.Author;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,6 +17,8 @@ public interface AuthorRepository extends JpaRepository<Author, Long> {
     
     List<Author> findByLastNameContainingIgnoreCase(String lastName);
     
+    // Результат запроса кэшируется; Hibernate сбрасывает его при любой записи в authors
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Author> findByFirstNameAndLastName(String firstName, String lastName);
     
     List<Author> findByNationality(String nationality);
@@ -2,6 +2,7 @@ package com.bookswap.repository;
 
 import com.bookswap.entity.BookExchange;
 import com.bookswap.entity.User;
+import com.bookswap.event.ExchangeChangedEvent;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,11 +11,15 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface BookExchangeRepository extends JpaRepository<BookExchange, Long> {
     
+    // Колонки изменённых обменов, которые возвращают условные переходы (для событий и проекций)
+    String CHANGED_COLUMNS = "RETURNING id, book_id, owner_id, requester_id, exchange_type";
+    
     // Spring Data JPA методы
     List<BookExchange> findByRequester(User requester);
     
@@ -39,4 +44,67 @@ public interface BookExchangeRepository extends JpaRepository<BookExchange, Long
     
     @Query("SELECT COUNT(be) FROM BookExchange be WHERE be.status = :status")
     long countByStatus(@Param("status") BookExchange.ExchangeStatus status);
-} 
\ No newline at end of file
+    
+    @Query("SELECT COALESCE(MAX(be.id), 0) FROM BookExchange be")
+    long findMaxId();
+    
+    // Условные переходы статуса: меняются только обмены владельца в допустимом исходном статусе,
+    // поэтому одна инструкция обрабатывает любой набор обменов без загрузки сущностей.
+    // RETURNING отдаёт ровно изменённые строки: [id, book_id, owner_id, requester_id, exchange_type]
+    @Query(value = "UPDATE book_exchanges SET status = :accepted, accepted_at = :now, " +
+                   "version = version + 1, updated_at = :now " +
+                   "WHERE id IN (:ids) AND owner_id = :ownerId AND status IN (:sources) " +
+                   CHANGED_COLUMNS,
+           nativeQuery = true)
+    List<Object[]> acceptForOwner(@Param("ids") Collection<Long> ids,
+                                  @Param("ownerId") Long ownerId,
+                                  @Param("sources") Collection<String> sources,
+                                  @Param("accepted") String accepted,
+                                  @Param("now") LocalDateTime now);
+    
+    @Query(value = "UPDATE book_exchanges SET status = :rejected, owner_response = :response, " +
+                   "version = version + 1, updated_at = :now " +
+                   "WHERE id IN (:ids) AND owner_id = :ownerId AND status IN (:sources) " +
+                   CHANGED_COLUMNS,
+           nativeQuery = true)
+    List<Object[]> rejectForOwner(@Param("ids") Collection<Long> ids,
+                                  @Param("ownerId") Long ownerId,
+                                  @Param("sources") Collection<String> sources,
+                                  @Param("rejected") String rejected,
+                                  @Param("response") String response,
+                                  @Param("now") LocalDateTime now);
+    
+    @Query(value = "UPDATE book_exchanges SET status = :completed, is_completed = true, exchange_date = :now, " +
+                   "version = version + 1, updated_at = :now " +
+                   "WHERE id IN (:ids) AND owner_id = :ownerId AND status IN (:sources) " +
+                   CHANGED_COLUMNS,
+           nativeQuery = true)
+    List<Object[]> completeForOwner(@Param("ids") Collection<Long> ids,
+                                    @Param("ownerId") Long ownerId,
+                                    @Param("sources") Collection<String> sources,
+                                    @Param("completed") String completed,
+                                    @Param("now") LocalDateTime now);
+    
+    // Отклонение остальных ожидающих запросов на те же книги одной инструкцией
+    @Query(value = "UPDATE book_exchanges SET status = :rejected, owner_response = :response, " +
+                   "version = version + 1, updated_at = :now " +
+                   "WHERE book_id IN (:bookIds) AND id NOT IN (:excludedIds) AND status = :pending " +
+                   CHANGED_COLUMNS,
+           nativeQuery = true)
+    List<Object[]> rejectOtherPending(@Param("bookIds") Collection<Long> bookIds,
+                                      @Param("excludedIds") Collection<Long> excludedIds,
+                                      @Param("pending") String pending,
+                                      @Param("rejected") String rejected,
+                                      @Param("response") String response,
+                                      @Param("now") LocalDateTime now);
+    
+    // Открытые обмены заданного типа пачками по возрастанию ID (первичная загрузка слушателей)
+    @Query("SELECT new com.bookswap.event.ExchangeChangedEvent(" +
+           "be.id, be.book.id, be.owner.id, be.requester.id, be.exchangeType, be.status) " +
+           "FROM BookExchange be WHERE be.id > :afterId AND be.status = :status AND be.exchangeType = :type " +
+           "ORDER BY be.id")
+    List<ExchangeChangedEvent> findByStatusAndTypeAfter(@Param("afterId") Long afterId,
+                                                        @Param("status") BookExchange.ExchangeStatus status,
+                                                        @Param("type") BookExchange.ExchangeType type,
+                                                        Pageable pageable);
+}
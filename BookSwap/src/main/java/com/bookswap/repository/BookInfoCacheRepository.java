@@ -0,0 +1,20 @@
+package com.bookswap.repository;
+
+import com.bookswap.entity.BookInfoCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BookInfoCacheRepository extends JpaRepository<BookInfoCacheEntry, String> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM BookInfoCacheEntry e WHERE e.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,16 +1,21 @@
 package com.bookswap.repository;
 
+import com.bookswap.dto.BookCard;
 import com.bookswap.entity.Book;
+import com.bookswap.entity.BookExchange;
 import com.bookswap.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,13 +47,98 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     @Query("SELECT b FROM Book b WHERE b.exchangeStatus = 'AVAILABLE' AND " +
            "b.owner.id != :userId ORDER BY b.createdAt DESC")
     List<Book> findAvailableBooksForUser(@Param("userId") Long userId);
-    
-    // Запрос с подзапросом - книги с высоким рейтингом
-    @Query("SELECT b FROM Book b WHERE b.id IN " +
-           "(SELECT r.book.id FROM Review r WHERE r.approved = true " +
-           "GROUP BY r.book.id HAVING AVG(r.rating) >= :minRating)")
+
+    // Keyset-пагинация доступных книг по (createdAt, id), использует индекс idx_books_status_created
+    @Query("SELECT b FROM Book b WHERE b.exchangeStatus = 'AVAILABLE' AND " +
+           "(:userId IS NULL OR b.owner.id <> :userId) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Book> findAvailableBooksFirstPage(@Param("userId") Long userId, Pageable limit);
+
+    @Query("SELECT b FROM Book b WHERE b.exchangeStatus = 'AVAILABLE' AND " +
+           "(:userId IS NULL OR b.owner.id <> :userId) AND " +
+           "(b.createdAt < :createdAt OR (b.createdAt = :createdAt AND b.id < :id)) " +
+           "ORDER BY b.createdAt DESC, b.id DESC")
+    List<Book> findAvailableBooksAfter(@Param("userId") Long userId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable limit);
+
+    // Книги с высоким рейтингом по денормализованным агрегатам (частичный индекс idx_books_top_rated)
+    @Query("SELECT b FROM Book b WHERE b.ratingCount > 0 AND b.averageRating >= :minRating " +
+           "ORDER BY b.averageRating DESC, b.ratingCount DESC")
     List<Book> findBooksWithHighRating(@Param("minRating") Double minRating);
     
+    @Query("SELECT b FROM Book b WHERE b.ratingCount > 0 AND b.averageRating >= :minRating " +
+           "ORDER BY b.averageRating DESC, b.ratingCount DESC, b.id DESC")
+    List<Book> findTopRated(@Param("minRating") Double minRating, Pageable limit);
+    
+    // Атомарное изменение агрегатов рейтинга; правые части SET используют значения до обновления
+    @Modifying
+    @Query(value = "UPDATE books SET " +
+                   "rating_sum = rating_sum + :ratingDelta, " +
+                   "rating_count = rating_count + :countDelta, " +
+                   "average_rating = CASE WHEN rating_count + :countDelta > 0 " +
+                   "THEN CAST(rating_sum + :ratingDelta AS double precision) / (rating_count + :countDelta) " +
+                   "ELSE 0 END " +
+                   "WHERE id = :bookId",
+           nativeQuery = true)
+    int adjustRatingAggregates(@Param("bookId") Long bookId,
+                               @Param("ratingDelta") long ratingDelta,
+                               @Param("countDelta") int countDelta);
+    
+    // Резервирование книги не её владельцем: строка меняется, только если книга всё ещё доступна.
+    // Конкурирующие запросы к одной книге упорядочиваются блокировкой её строки, другие книги не затрагиваются
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Book b SET b.exchangeStatus = :reserved, b.updatedAt = :now " +
+           "WHERE b.id = :bookId AND b.exchangeStatus = :available AND b.owner.id <> :requesterId")
+    int reserveIfAvailable(@Param("bookId") Long bookId,
+                           @Param("requesterId") Long requesterId,
+                           @Param("available") Book.ExchangeStatus available,
+                           @Param("reserved") Book.ExchangeStatus reserved,
+                           @Param("now") LocalDateTime now);
+    
+    // Условная смена статуса: меняются только книги в ожидаемом статусе
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Book b SET b.exchangeStatus = :to, b.updatedAt = :now " +
+           "WHERE b.id IN :bookIds AND b.exchangeStatus = :from")
+    int transitionExchangeStatus(@Param("bookIds") Collection<Long> bookIds,
+                                 @Param("from") Book.ExchangeStatus from,
+                                 @Param("to") Book.ExchangeStatus to,
+                                 @Param("now") LocalDateTime now);
+    
+    // Возврат в доступные зарезервированных книг, по которым не осталось открытых обменов
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Book b SET b.exchangeStatus = :available, b.updatedAt = :now " +
+           "WHERE b.id IN :bookIds AND b.exchangeStatus = :reserved AND NOT EXISTS (" +
+           "SELECT be.id FROM BookExchange be WHERE be.book.id = b.id AND be.status IN :openStatuses)")
+    int releaseWithoutOpenExchanges(@Param("bookIds") Collection<Long> bookIds,
+                                    @Param("openStatuses") Collection<BookExchange.ExchangeStatus> openStatuses,
+                                    @Param("reserved") Book.ExchangeStatus reserved,
+                                    @Param("available") Book.ExchangeStatus available,
+                                    @Param("now") LocalDateTime now);
+    
+    // Текущие статусы книг (id, статус) для синхронизации поискового индекса после массовых изменений
+    @Query("SELECT b.id, b.exchangeStatus FROM Book b WHERE b.id IN :bookIds")
+    List<Object[]> findExchangeStatuses(@Param("bookIds") Collection<Long> bookIds);
+    
+    // Статус книги с блокировкой строки до конца транзакции (редактирование против резервирования)
+    @Query(value = "SELECT exchange_status FROM books WHERE id = :bookId FOR UPDATE", nativeQuery = true)
+    Optional<String> lockExchangeStatus(@Param("bookId") Long bookId);
+    
+    // Полный пересчёт агрегатов из таблицы отзывов (для первичного заполнения и сверки)
+    @Modifying
+    @Query(value = "UPDATE books b SET " +
+                   "rating_sum = COALESCE(r.rating_sum, 0), " +
+                   "rating_count = COALESCE(r.rating_count, 0), " +
+                   "average_rating = COALESCE(r.average_rating, 0) " +
+                   "FROM books x LEFT JOIN (" +
+                   "SELECT book_id, SUM(rating) AS rating_sum, COUNT(*) AS rating_count, " +
+                   "AVG(rating) AS average_rating FROM reviews WHERE is_approved = true GROUP BY book_id" +
+                   ") r ON r.book_id = x.id " +
+                   "WHERE x.id = b.id",
+           nativeQuery = true)
+    int recalculateRatingAggregates();
+    
     // Сложный запрос с агрегацией
     @Query("SELECT b FROM Book b WHERE SIZE(b.reviews) > :reviewCount AND " +
            "b.exchangeStatus = 'AVAILABLE'")
@@ -58,8 +148,8 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     @Query("SELECT DISTINCT b FROM Book b " +
            "LEFT JOIN b.authors a " +
            "LEFT JOIN b.genres g " +
-           "WHERE (:title IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%'))) " +
-           "AND (:author IS NULL OR LOWER(a.lastName) LIKE LOWER(CONCAT('%', :author, '%'))) " +
+           "WHERE (:title IS NULL OR UPPER(b.title) LIKE UPPER(CONCAT('%', :title, '%'))) " +
+           "AND (:author IS NULL OR UPPER(a.lastName) LIKE UPPER(CONCAT('%', :author, '%'))) " +
            "AND (:genre IS NULL OR g.name = :genre) " +
            "AND b.exchangeStatus = 'AVAILABLE'")
     Page<Book> searchBooks(@Param("title") String title,
@@ -67,6 +157,36 @@ public interface BookRepository extends JpaRepository<Book, Long> {
                           @Param("genre") String genre,
                           Pageable pageable);
     
+    // Read-модели: карточки книг через constructor expression, без загрузки сущностей
+    @Query(value = "SELECT new com.bookswap.dto.BookCard(b.id, b.title, b.coverImageUrl, b.exchangeStatus, " +
+                   "b.language, b.publicationYear, b.averageRating, b.ratingCount, b.createdAt) FROM Book b",
+           countQuery = "SELECT COUNT(b) FROM Book b")
+    Page<BookCard> findAllCards(Pageable pageable);
+    
+    @Query("SELECT new com.bookswap.dto.BookCard(b.id, b.title, b.coverImageUrl, b.exchangeStatus, " +
+           "b.language, b.publicationYear, b.averageRating, b.ratingCount, b.createdAt) FROM Book b " +
+           "WHERE b.ratingCount > 0 AND b.averageRating >= :minRating " +
+           "ORDER BY b.averageRating DESC, b.ratingCount DESC, b.id DESC")
+    List<BookCard> findTopRatedCards(@Param("minRating") Double minRating, Pageable limit);
+    
+    // Книга со всеми связями, нужными для BookDetail, одним запросом
+    @EntityGraph(attributePaths = {"owner", "condition", "authors", "genres"})
+    @Query("SELECT b FROM Book b WHERE b.id = :id")
+    Optional<Book> findDetailedById(@Param("id") Long id);
+    
+    // Выборки для построения поискового индекса (BookSearchIndex)
+    @Query("SELECT b.id, b.title, b.publisher, b.exchangeStatus, b.createdAt FROM Book b " +
+           "WHERE b.id > :afterId ORDER BY b.id")
+    List<Object[]> findSearchRowsAfter(@Param("afterId") Long afterId, Pageable limit);
+
+    // Пакетная догрузка имён авторов и жанров для набора книг (индекс, карточки книг)
+    @Query("SELECT b.id, a.firstName, a.middleName, a.lastName FROM Book b JOIN b.authors a " +
+           "WHERE b.id IN :bookIds")
+    List<Object[]> findAuthorNamesForBooks(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("SELECT b.id, g.name FROM Book b JOIN b.genres g WHERE b.id IN :bookIds")
+    List<Object[]> findGenreNamesForBooks(@Param("bookIds") Collection<Long> bookIds);
+
     // Статистические запросы
     @Query("SELECT COUNT(b) FROM Book b WHERE b.exchangeStatus = :status")
     long countByExchangeStatus(@Param("status") Book.ExchangeStatus status);
@@ -76,10 +196,4 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     
     @Query("SELECT g.name, COUNT(b) FROM Book b JOIN b.genres g GROUP BY g.name ORDER BY COUNT(b) DESC")
     List<Object[]> getMostPopularGenres();
-    
-    // Нативный SQL запрос для сложной статистики
-    @Query(value = "SELECT AVG(rating) as avg_rating, COUNT(*) as review_count " +
-                   "FROM reviews r WHERE r.book_id = :bookId AND r.is_approved = true",
-           nativeQuery = true)
-    Object[] getBookRatingStats(@Param("bookId") Long bookId);
 } 
\ No newline at end of file
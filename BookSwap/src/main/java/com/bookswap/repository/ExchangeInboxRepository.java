@@ -0,0 +1,74 @@
+package com.bookswap.repository;
+
+import com.bookswap.entity.BookExchange;
+import com.bookswap.entity.ExchangeInboxEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ExchangeInboxRepository extends JpaRepository<ExchangeInboxEntry, ExchangeInboxEntry.Key> {
+
+    // Keyset-пагинация по (updatedAt, exchangeId), использует индекс idx_exchange_inbox_user_updated
+    @Query("SELECT e FROM ExchangeInboxEntry e WHERE e.userId = :userId " +
+           "ORDER BY e.updatedAt DESC, e.exchangeId DESC")
+    List<ExchangeInboxEntry> findFirstPage(@Param("userId") Long userId, Pageable limit);
+
+    @Query("SELECT e FROM ExchangeInboxEntry e WHERE e.userId = :userId AND " +
+           "(e.updatedAt < :updatedAt OR (e.updatedAt = :updatedAt AND e.exchangeId < :exchangeId)) " +
+           "ORDER BY e.updatedAt DESC, e.exchangeId DESC")
+    List<ExchangeInboxEntry> findPageAfter(@Param("userId") Long userId,
+                                           @Param("updatedAt") LocalDateTime updatedAt,
+                                           @Param("exchangeId") Long exchangeId,
+                                           Pageable limit);
+
+    // Строки владельца и запросившего для обменов из CTE exchanges; существующие строки не меняются
+    String INSERT_FOR_EXCHANGES =
+            "INSERT INTO exchange_inbox (user_id, exchange_id, role, book_id, book_title, " +
+            "counterpart_id, counterpart_name, status, exchange_type, created_at, updated_at) " +
+            "SELECT e.owner_id, e.id, 'OWNER', b.id, b.title, r.id, r.first_name || ' ' || r.last_name, " +
+            "e.status, e.exchange_type, e.created_at, COALESCE(e.updated_at, e.created_at) " +
+            "FROM exchanges e JOIN books b ON b.id = e.book_id JOIN users r ON r.id = e.requester_id " +
+            "UNION ALL " +
+            "SELECT e.requester_id, e.id, 'REQUESTER', b.id, b.title, o.id, o.first_name || ' ' || o.last_name, " +
+            "e.status, e.exchange_type, e.created_at, COALESCE(e.updated_at, e.created_at) " +
+            "FROM exchanges e JOIN books b ON b.id = e.book_id JOIN users o ON o.id = e.owner_id " +
+            "ON CONFLICT (user_id, exchange_id) DO NOTHING";
+
+    // Строки нового обмена
+    @Modifying(flushAutomatically = true)
+    @Query(value = "WITH exchanges AS (SELECT * FROM book_exchanges WHERE id = :exchangeId) " +
+                   INSERT_FOR_EXCHANGES,
+           nativeQuery = true)
+    int insertForExchange(@Param("exchangeId") Long exchangeId);
+
+    // Строки обменов с ID в диапазоне (afterId, upToId] - заполнение после массовой загрузки обменов
+    @Modifying(flushAutomatically = true)
+    @Query(value = "WITH exchanges AS (SELECT * FROM book_exchanges WHERE id > :afterId AND id <= :upToId) " +
+                   INSERT_FOR_EXCHANGES,
+           nativeQuery = true)
+    int insertForExchanges(@Param("afterId") Long afterId, @Param("upToId") Long upToId);
+
+    // Обе строки обмена меняются вместе, поиск по первичному ключу (exchange_id, user_id)
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ExchangeInboxEntry e SET e.status = :status, e.updatedAt = :now WHERE e.exchangeId IN :exchangeIds")
+    int updateStatus(@Param("exchangeIds") Collection<Long> exchangeIds,
+                     @Param("status") BookExchange.ExchangeStatus status,
+                     @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ExchangeInboxEntry e SET e.bookTitle = :title WHERE e.bookId = :bookId AND e.bookTitle <> :title")
+    int updateBookTitle(@Param("bookId") Long bookId, @Param("title") String title);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ExchangeInboxEntry e SET e.counterpartName = :name " +
+           "WHERE e.counterpartId = :userId AND e.counterpartName <> :name")
+    int updateCounterpartName(@Param("userId") Long userId, @Param("name") String name);
+}
@@ -3,9 +3,12 @@ package com.bookswap.repository;
 import com.bookswap.entity.Book;
 import com.bookswap.entity.Review;
 import com.bookswap.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -28,8 +31,17 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     
     Optional<Review> findByUserAndBook(User user, Book book);
     
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.book = :book AND r.approved = true")
-    Double findAverageRatingByBook(@Param("book") Book book);
+    // Отзыв с блокировкой строки до конца транзакции: оценка и модерация, из которых считается
+    // поправка агрегатов книги, не меняются параллельными изменениями того же отзыва
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id = :reviewId")
+    Optional<Review> findByIdForUpdate(@Param("reviewId") Long reviewId);
+    
+    // Условное переключение модерации: 0 строк означает, что статус уже был таким
+    @Modifying
+    @Query("UPDATE Review r SET r.approved = :approved, r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.id = :reviewId AND r.approved <> :approved")
+    int updateApproval(@Param("reviewId") Long reviewId, @Param("approved") boolean approved);
     
     @Query("SELECT r FROM Review r WHERE r.rating >= :minRating AND r.approved = true")
     List<Review> findHighRatedReviews(@Param("minRating") Integer minRating);
@@ -0,0 +1,529 @@
+package com.bookswap.search;
+
+import com.bookswap.entity.Book;
+import com.bookswap.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс каталога книг в памяти процесса
+ * Индексирует название, авторов, издательство и жанры, возвращает результаты,
+ * упорядоченные по релевантности (TF-IDF с весами полей).
+ * Строится целиком при старте приложения и далее обновляется инкрементально
+ * после фиксации транзакций BookService.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final int MIN_PREFIX_LENGTH = 3;
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final double PREFIX_MATCH_FACTOR = 0.5;
+
+    enum Field {
+        TITLE(3.0),
+        AUTHOR(2.0),
+        GENRE(1.5),
+        PUBLISHER(1.0);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final BookRepository bookRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, SearchDocument> documents = new HashMap<>();
+    private final Map<Field, TreeMap<String, Map<Long, Integer>>> postings = new EnumMap<>(Field.class);
+    private final Map<String, Set<Long>> booksByGenre = new HashMap<>();
+
+    // Книги, изменённые во время перестроения: их данные из перестроения устарели
+    private final Set<Long> touchedDuringRebuild = new HashSet<>();
+    // Статусы, сменившиеся во время перестроения: накладываются на документы, прочитанные из БД раньше
+    private final Map<Long, Book.ExchangeStatus> statusesDuringRebuild = new HashMap<>();
+
+    private volatile boolean ready = false;
+    private boolean rebuilding = false;
+
+    // Поиски, в которых префикс раскрылся больше чем в MAX_PREFIX_EXPANSIONS терминов
+    private final AtomicLong truncatedPrefixSearches = new AtomicLong();
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Autowired
+    public BookSearchIndex(BookRepository bookRepository, PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        for (Field field : Field.values()) {
+            postings.put(field, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Индекс готов к обслуживанию запросов; до этого сервисы используют запросы к БД
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Размер индекса и число поисков с неполным раскрытием префикса
+     */
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            return Map.of(
+                    "ready", isReady(),
+                    "documents", documents.size(),
+                    "maxPrefixExpansions", MAX_PREFIX_EXPANSIONS,
+                    "truncatedPrefixSearches", truncatedPrefixSearches.get()
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Поиск
+
+    /**
+     * Полнотекстовый поиск по всем полям; последний термин запроса ищется и как префикс
+     */
+    public SearchHits searchText(String text, Book.ExchangeStatus status, int offset, int limit) {
+        List<Clause> clauses = new ArrayList<>();
+        List<String> terms = SearchTokenizer.tokenize(text);
+        for (int i = 0; i < terms.size(); i++) {
+            clauses.add(new Clause(terms.get(i), EnumSet.allOf(Field.class), i == terms.size() - 1));
+        }
+        return execute(clauses, null, status, offset, limit);
+    }
+
+    /**
+     * Поиск по отдельным критериям: все термины названия и автора должны найтись в своих полях,
+     * жанр сравнивается по точному названию
+     */
+    public SearchHits searchByCriteria(String title, String author, String genre,
+                                       Book.ExchangeStatus status, int offset, int limit) {
+        List<Clause> clauses = new ArrayList<>();
+        for (String term : SearchTokenizer.tokenize(title)) {
+            clauses.add(new Clause(term, EnumSet.of(Field.TITLE), true));
+        }
+        for (String term : SearchTokenizer.tokenize(author)) {
+            clauses.add(new Clause(term, EnumSet.of(Field.AUTHOR), true));
+        }
+        String genreKey = genre != null && !genre.isBlank() ? SearchTokenizer.normalize(genre) : null;
+        return execute(clauses, genreKey, status, offset, limit);
+    }
+
+    private SearchHits execute(List<Clause> clauses, String genreKey, Book.ExchangeStatus status,
+                               int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            boolean truncated = false;
+            for (Clause clause : clauses) {
+                Map<Long, Double> matches = match(clause);
+                if (clause.truncated && !truncated) {
+                    truncated = true;
+                    truncatedPrefixSearches.incrementAndGet();
+                    logger.debug("Префикс '{}' раскрывается больше чем в {} терминов, учтены первые по алфавиту",
+                            clause.term, MAX_PREFIX_EXPANSIONS);
+                }
+                if (scores == null) {
+                    scores = matches;
+                } else {
+                    scores.keySet().retainAll(matches.keySet());
+                    for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                        entry.setValue(entry.getValue() + matches.get(entry.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return new SearchHits(List.of(), 0, truncated);
+                }
+            }
+
+            if (genreKey != null) {
+                Set<Long> genreBooks = booksByGenre.getOrDefault(genreKey, Set.of());
+                if (scores == null) {
+                    scores = new HashMap<>();
+                    for (Long bookId : genreBooks) {
+                        scores.put(bookId, 0.0);
+                    }
+                } else {
+                    scores.keySet().retainAll(genreBooks);
+                }
+            }
+
+            if (scores == null) {
+                return new SearchHits(List.of(), 0);
+            }
+
+            List<ScoredBook> ranked = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                SearchDocument document = documents.get(entry.getKey());
+                if (document != null && (status == null || document.getStatus() == status)) {
+                    ranked.add(new ScoredBook(document, entry.getValue()));
+                }
+            }
+            ranked.sort(ScoredBook.RANKING);
+
+            List<Long> page = new ArrayList<>();
+            for (int i = offset; i < ranked.size() && page.size() < limit; i++) {
+                page.add(ranked.get(i).document.getBookId());
+            }
+            return new SearchHits(page, ranked.size(), truncated);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> match(Clause clause) {
+        Map<Long, Double> scores = new HashMap<>();
+        int totalDocuments = Math.max(1, documents.size());
+
+        for (Field field : clause.fields) {
+            TreeMap<String, Map<Long, Integer>> terms = postings.get(field);
+
+            Map<String, Map<Long, Integer>> matched;
+            if (clause.prefix && clause.term.length() >= MIN_PREFIX_LENGTH) {
+                matched = terms.subMap(clause.term, true, clause.term + Character.MAX_VALUE, true);
+            } else {
+                Map<Long, Integer> exact = terms.get(clause.term);
+                matched = exact != null ? Map.of(clause.term, exact) : Map.of();
+            }
+
+            int expansions = 0;
+            for (Map.Entry<String, Map<Long, Integer>> entry : matched.entrySet()) {
+                if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                    clause.truncated = true;
+                    break;
+                }
+                Map<Long, Integer> postingList = entry.getValue();
+                double idf = Math.log(1.0 + (double) totalDocuments / postingList.size());
+                double factor = entry.getKey().equals(clause.term) ? 1.0 : PREFIX_MATCH_FACTOR;
+                for (Map.Entry<Long, Integer> posting : postingList.entrySet()) {
+                    scores.merge(posting.getKey(), field.weight * posting.getValue() * idf * factor, Double::sum);
+                }
+            }
+        }
+        return scores;
+    }
+
+    // Инкрементальное обновление
+
+    /**
+     * Добавляет или заменяет книгу в индексе после фиксации текущей транзакции
+     */
+    public void indexAfterCommit(Book book) {
+        indexAfterCommit(SearchDocument.of(book));
+    }
+
+    /**
+     * То же для книги, записанной без сущности (пакетный импорт)
+     */
+    public void indexAfterCommit(SearchDocument document) {
+        afterCommit(() -> put(document));
+    }
+
+    /**
+     * То же для порции книг: документы добавляются за одну блокировку индекса
+     */
+    public void indexAllAfterCommit(List<SearchDocument> documents) {
+        afterCommit(() -> putAll(documents));
+    }
+
+    /**
+     * Удаляет книгу из индекса после фиксации текущей транзакции
+     */
+    public void removeAfterCommit(Long bookId) {
+        afterCommit(() -> remove(bookId));
+    }
+
+    /**
+     * Обновляет статус обмена книги в индексе после фиксации текущей транзакции
+     */
+    public void statusChangedAfterCommit(Long bookId, Book.ExchangeStatus status) {
+        afterCommit(() -> updateStatus(bookId, status));
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    void put(SearchDocument document) {
+        putAll(List.of(document));
+    }
+
+    void putAll(List<SearchDocument> documents) {
+        lock.writeLock().lock();
+        try {
+            for (SearchDocument document : documents) {
+                if (rebuilding) {
+                    touchedDuringRebuild.add(document.getBookId());
+                }
+                unindex(document.getBookId());
+                index(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                touchedDuringRebuild.add(bookId);
+            }
+            unindex(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void updateStatus(Long bookId, Book.ExchangeStatus status) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                statusesDuringRebuild.put(bookId, status);
+            }
+            SearchDocument document = documents.get(bookId);
+            if (document != null) {
+                documents.put(bookId, document.withStatus(status));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(SearchDocument document) {
+        Long bookId = document.getBookId();
+        documents.put(bookId, document);
+
+        addTerms(Field.TITLE, bookId, document.getTitle());
+        addTerms(Field.PUBLISHER, bookId, document.getPublisher());
+        for (String author : document.getAuthorNames()) {
+            addTerms(Field.AUTHOR, bookId, author);
+        }
+        for (String genre : document.getGenreNames()) {
+            addTerms(Field.GENRE, bookId, genre);
+            booksByGenre.computeIfAbsent(SearchTokenizer.normalize(genre), key -> new HashSet<>()).add(bookId);
+        }
+    }
+
+    private void addTerms(Field field, Long bookId, String text) {
+        TreeMap<String, Map<Long, Integer>> terms = postings.get(field);
+        for (String term : SearchTokenizer.tokenize(text)) {
+            terms.computeIfAbsent(term, key -> new HashMap<>()).merge(bookId, 1, Integer::sum);
+        }
+    }
+
+    private void unindex(Long bookId) {
+        SearchDocument previous = documents.remove(bookId);
+        if (previous == null) {
+            return;
+        }
+
+        removeTerms(Field.TITLE, bookId, previous.getTitle());
+        removeTerms(Field.PUBLISHER, bookId, previous.getPublisher());
+        for (String author : previous.getAuthorNames()) {
+            removeTerms(Field.AUTHOR, bookId, author);
+        }
+        for (String genre : previous.getGenreNames()) {
+            removeTerms(Field.GENRE, bookId, genre);
+            String genreKey = SearchTokenizer.normalize(genre);
+            Set<Long> genreBooks = booksByGenre.get(genreKey);
+            if (genreBooks != null) {
+                genreBooks.remove(bookId);
+                if (genreBooks.isEmpty()) {
+                    booksByGenre.remove(genreKey);
+                }
+            }
+        }
+    }
+
+    private void removeTerms(Field field, Long bookId, String text) {
+        TreeMap<String, Map<Long, Integer>> terms = postings.get(field);
+        for (String term : SearchTokenizer.tokenize(text)) {
+            Map<Long, Integer> postingList = terms.get(term);
+            if (postingList != null) {
+                postingList.remove(bookId);
+                if (postingList.isEmpty()) {
+                    terms.remove(term);
+                }
+            }
+        }
+    }
+
+    // Полное перестроение
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Полное перестроение индекса из БД пачками по возрастанию ID
+     * Поиск продолжает обслуживаться из БД, пока перестроение не завершится
+     */
+    public void rebuild() {
+        logger.info("Перестроение поискового индекса книг");
+        long started = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            touchedDuringRebuild.clear();
+            statusesDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            long indexed = 0;
+            Long lastId = 0L;
+            List<SearchDocument> batch;
+            do {
+                Long afterId = lastId;
+                batch = readOnlyTransaction.execute(status -> loadBatch(afterId));
+                lock.writeLock().lock();
+                try {
+                    for (SearchDocument document : batch) {
+                        if (!touchedDuringRebuild.contains(document.getBookId())) {
+                            Book.ExchangeStatus status = statusesDuringRebuild.get(document.getBookId());
+                            unindex(document.getBookId());
+                            index(status != null ? document.withStatus(status) : document);
+                        }
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                indexed += batch.size();
+                if (!batch.isEmpty()) {
+                    lastId = batch.get(batch.size() - 1).getBookId();
+                }
+            } while (batch.size() == rebuildBatchSize);
+
+            ready = true;
+            logger.info("Поисковый индекс построен: {} книг за {} мс",
+                    indexed, System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при построении поискового индекса, поиск будет выполняться через БД", e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                touchedDuringRebuild.clear();
+                statusesDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private List<SearchDocument> loadBatch(Long afterId) {
+        List<Object[]> rows = bookRepository.findSearchRowsAfter(afterId, PageRequest.of(0, rebuildBatchSize));
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> ids = rows.stream().map(row -> (Long) row[0]).toList();
+
+        Map<Long, List<String>> authors = new HashMap<>();
+        for (Object[] row : bookRepository.findAuthorNamesForBooks(ids)) {
+            authors.computeIfAbsent((Long) row[0], key -> new ArrayList<>())
+                    .add(SearchDocument.fullName((String) row[1], (String) row[2], (String) row[3]));
+        }
+
+        Map<Long, List<String>> genres = new HashMap<>();
+        for (Object[] row : bookRepository.findGenreNamesForBooks(ids)) {
+            genres.computeIfAbsent((Long) row[0], key -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        List<SearchDocument> batch = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long bookId = (Long) row[0];
+            batch.add(new SearchDocument(bookId, (String) row[1], (String) row[2],
+                    authors.getOrDefault(bookId, List.of()), genres.getOrDefault(bookId, List.of()),
+                    (Book.ExchangeStatus) row[3], (LocalDateTime) row[4]));
+        }
+        return batch;
+    }
+
+    // Вспомогательные классы
+
+    private static final class Clause {
+        private final String term;
+        private final Set<Field> fields;
+        private final boolean prefix;
+        // Префикс раскрылся не во все подходящие термины
+        private boolean truncated;
+
+        private Clause(String term, Set<Field> fields, boolean prefix) {
+            this.term = term;
+            this.fields = fields;
+            this.prefix = prefix;
+        }
+    }
+
+    private static final class ScoredBook {
+        private static final Comparator<ScoredBook> RANKING = Comparator
+                .comparingDouble((ScoredBook scored) -> scored.score).reversed()
+                .thenComparing(scored -> scored.document.getCreatedAt(),
+                        Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(scored -> scored.document.getBookId(), Comparator.reverseOrder());
+
+        private final SearchDocument document;
+        private final double score;
+
+        private ScoredBook(SearchDocument document, double score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.bookswap.search;
+
+import com.bookswap.entity.Author;
+import com.bookswap.entity.Book;
+import com.bookswap.entity.Genre;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Неизменяемый снимок полей книги, попадающих в поисковый индекс
+ * Собирается внутри транзакции, пока ленивые коллекции ещё доступны
+ */
+public final class SearchDocument {
+
+    private final Long bookId;
+    private final String title;
+    private final String publisher;
+    private final List<String> authorNames;
+    private final List<String> genreNames;
+    private final Book.ExchangeStatus status;
+    private final LocalDateTime createdAt;
+
+    public SearchDocument(Long bookId, String title, String publisher,
+                          List<String> authorNames, List<String> genreNames,
+                          Book.ExchangeStatus status, LocalDateTime createdAt) {
+        this.bookId = bookId;
+        this.title = title;
+        this.publisher = publisher;
+        this.authorNames = List.copyOf(authorNames);
+        this.genreNames = List.copyOf(genreNames);
+        this.status = status;
+        this.createdAt = createdAt;
+    }
+
+    public static SearchDocument of(Book book) {
+        List<String> authors = new ArrayList<>();
+        for (Author author : book.getAuthors()) {
+            authors.add(fullName(author.getFirstName(), author.getMiddleName(), author.getLastName()));
+        }
+
+        List<String> genres = new ArrayList<>();
+        for (Genre genre : book.getGenres()) {
+            genres.add(genre.getName());
+        }
+
+        return new SearchDocument(book.getId(), book.getTitle(), book.getPublisher(),
+                authors, genres, book.getExchangeStatus(), book.getCreatedAt());
+    }
+
+    public static String fullName(String firstName, String middleName, String lastName) {
+        StringBuilder name = new StringBuilder();
+        for (String part : new String[] {firstName, middleName, lastName}) {
+            if (part != null && !part.isBlank()) {
+                if (name.length() > 0) name.append(' ');
+                name.append(part);
+            }
+        }
+        return name.toString();
+    }
+
+    public SearchDocument withStatus(Book.ExchangeStatus newStatus) {
+        return new SearchDocument(bookId, title, publisher, authorNames, genreNames, newStatus, createdAt);
+    }
+
+    public Long getBookId() { return bookId; }
+
+    public String getTitle() { return title; }
+
+    public String getPublisher() { return publisher; }
+
+    public List<String> getAuthorNames() { return authorNames; }
+
+    public List<String> getGenreNames() { return genreNames; }
+
+    public Book.ExchangeStatus getStatus() { return status; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,31 @@
+package com.bookswap.search;
+
+import java.util.List;
+
+/**
+ * Результат поиска по индексу: идентификаторы книг текущей страницы в порядке релевантности
+ * и общее количество найденных книг. Если префикс раскрылся больше чем в MAX_PREFIX_EXPANSIONS
+ * терминов, учтены только первые по алфавиту, и результат может быть неполным (prefixTruncated)
+ */
+public final class SearchHits {
+
+    private final List<Long> bookIds;
+    private final long totalHits;
+    private final boolean prefixTruncated;
+
+    public SearchHits(List<Long> bookIds, long totalHits) {
+        this(bookIds, totalHits, false);
+    }
+
+    public SearchHits(List<Long> bookIds, long totalHits, boolean prefixTruncated) {
+        this.bookIds = bookIds;
+        this.totalHits = totalHits;
+        this.prefixTruncated = prefixTruncated;
+    }
+
+    public List<Long> getBookIds() { return bookIds; }
+
+    public long getTotalHits() { return totalHits; }
+
+    public boolean isPrefixTruncated() { return prefixTruncated; }
+}
@@ -0,0 +1,70 @@
+package com.bookswap.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Токенизатор для поискового индекса книг
+ * Нормализует регистр и "ё", режет по не-буквенным символам и отбрасывает
+ * типовые окончания русских и английских слов (лёгкий стемминг)
+ */
+final class SearchTokenizer {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final int MIN_STEM_LENGTH = 3;
+
+    // Отсортированы по убыванию длины - отрезается самое длинное подходящее окончание
+    private static final String[] RUSSIAN_SUFFIXES = {
+        "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ией",
+        "ая", "яя", "ое", "ее", "ой", "ий", "ый", "ей", "ом", "ем", "ам", "ям",
+        "ах", "ях", "ую", "юю", "ов", "ев", "ия", "ие", "ью",
+        "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"
+    };
+
+    private static final String[] ENGLISH_SUFFIXES = {
+        "ing", "ies", "ed", "es", "s"
+    };
+
+    private SearchTokenizer() {}
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        for (String raw : SEPARATORS.split(normalized)) {
+            if (raw.isEmpty() || (raw.length() < 2 && !Character.isDigit(raw.charAt(0)))) {
+                continue;
+            }
+            tokens.add(stem(raw));
+        }
+        return tokens;
+    }
+
+    /**
+     * Нормализация значения для точного сравнения (например, названия жанра)
+     */
+    static String normalize(String text) {
+        return text == null ? null : text.trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    static String stem(String token) {
+        String[] suffixes = isCyrillic(token) ? RUSSIAN_SUFFIXES : ENGLISH_SUFFIXES;
+        for (String suffix : suffixes) {
+            if (token.endsWith(suffix) && token.length() - suffix.length() >= MIN_STEM_LENGTH) {
+                String stem = token.substring(0, token.length() - suffix.length());
+                return suffix.equals("ies") ? stem + "y" : stem;
+            }
+        }
+        return token;
+    }
+
+    private static boolean isCyrillic(String token) {
+        return Character.UnicodeBlock.of(token.charAt(0)) == Character.UnicodeBlock.CYRILLIC;
+    }
+}
@@ -0,0 +1,252 @@
+package com.bookswap.service;
+
+import com.bookswap.entity.BookInfoCacheEntry;
+import com.bookswap.repository.BookInfoCacheRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш результатов поиска книг по ISBN во внешнем API
+ * Двухуровневый: ограниченный LRU в памяти и таблица book_info_cache, переживающая перезапуск.
+ * Найденные книги хранятся долго, отрицательные результаты - коротко.
+ * Ошибки внешнего API не кэшируются
+ */
+@Component
+public class BookInfoCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookInfoCache.class);
+
+    private final BookInfoCacheRepository cacheRepository;
+    private final int maxSize;
+    private final long positiveTtlHours;
+    private final long negativeTtlMinutes;
+
+    // LinkedHashMap в порядке доступа: самая давно использованная запись вытесняется первой
+    private final LinkedHashMap<String, BookInfoCacheEntry> entries;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public BookInfoCache(BookInfoCacheRepository cacheRepository,
+                         @Value("${external-api.books.cache.max-size:10000}") int maxSize,
+                         @Value("${external-api.books.cache.positive-ttl-hours:720}") long positiveTtlHours,
+                         @Value("${external-api.books.cache.negative-ttl-minutes:30}") long negativeTtlMinutes) {
+        this.cacheRepository = cacheRepository;
+        this.maxSize = maxSize;
+        this.positiveTtlHours = positiveTtlHours;
+        this.negativeTtlMinutes = negativeTtlMinutes;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BookInfoCacheEntry> eldest) {
+                if (size() > BookInfoCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Приводит ISBN к ключу кэша: только цифры, ISBN-10 переводится в ISBN-13
+     * Возвращает null, если строка не похожа на ISBN
+     */
+    public static String normalizeIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+
+        StringBuilder cleaned = new StringBuilder(13);
+        for (char ch : isbn.toCharArray()) {
+            if (Character.isDigit(ch)) {
+                cleaned.append(ch);
+            } else if (ch == 'X' || ch == 'x') {
+                cleaned.append('X');
+            }
+        }
+
+        String value = cleaned.toString();
+        int checkX = value.indexOf('X');
+        if (value.length() == 13 && checkX < 0) {
+            return value;
+        }
+        // В ISBN-10 символ X допустим только как контрольный
+        if (value.length() == 10 && (checkX < 0 || checkX == 9)) {
+            String isbn13 = "978" + value.substring(0, 9);
+            return isbn13 + isbn13CheckDigit(isbn13);
+        }
+        return null;
+    }
+
+    private static int isbn13CheckDigit(String first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = first12.charAt(i) - '0';
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Ищет запись по нормализованному ISBN: сначала в памяти, затем в таблице
+     * Пустой результат означает промах - нужно обращение к внешнему API
+     */
+    public Optional<BookInfoCacheEntry> lookup(String isbn) {
+        LocalDateTime now = LocalDateTime.now();
+
+        BookInfoCacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(isbn);
+            if (entry != null && entry.isExpired(now)) {
+                entries.remove(isbn);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            memoryHits.incrementAndGet();
+            return countNegative(entry);
+        }
+
+        try {
+            entry = cacheRepository.findById(isbn)
+                    .filter(stored -> !stored.isExpired(now))
+                    .orElse(null);
+        } catch (DataAccessException e) {
+            logger.warn("Не удалось прочитать кэш ISBN {} из БД: {}", isbn, e.getMessage());
+            entry = null;
+        }
+
+        if (entry != null) {
+            storeHits.incrementAndGet();
+            remember(entry);
+            return countNegative(entry);
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    public void putFound(String isbn, ExternalApiService.BookInfo bookInfo) {
+        BookInfoCacheEntry entry = new BookInfoCacheEntry();
+        entry.setIsbn(isbn);
+        entry.setFound(true);
+        entry.setTitle(truncate(bookInfo.getTitle(), 500));
+        entry.setAuthors(truncate(bookInfo.getAuthors(), 1000));
+        entry.setDescription(bookInfo.getDescription());
+        entry.setPublisher(truncate(bookInfo.getPublisher(), 255));
+        entry.setPublishedDate(truncate(bookInfo.getPublishedDate(), 20));
+        entry.setPageCount(bookInfo.getPageCount());
+        entry.setLanguage(truncate(bookInfo.getLanguage(), 20));
+        entry.setCategories(truncate(bookInfo.getCategories(), 500));
+        entry.setCoverImageUrl(truncate(bookInfo.getCoverImageUrl(), 1000));
+        store(entry, LocalDateTime.now().plusHours(positiveTtlHours));
+    }
+
+    public void putNotFound(String isbn) {
+        BookInfoCacheEntry entry = new BookInfoCacheEntry();
+        entry.setIsbn(isbn);
+        entry.setFound(false);
+        store(entry, LocalDateTime.now().plusMinutes(negativeTtlMinutes));
+    }
+
+    /**
+     * Новый экземпляр BookInfo из записи кэша, чтобы вызывающий код не мог изменить закэшированные данные
+     */
+    public static ExternalApiService.BookInfo toBookInfo(BookInfoCacheEntry entry) {
+        ExternalApiService.BookInfo bookInfo = new ExternalApiService.BookInfo();
+        bookInfo.setTitle(entry.getTitle());
+        bookInfo.setAuthors(entry.getAuthors());
+        bookInfo.setDescription(entry.getDescription());
+        bookInfo.setPublisher(entry.getPublisher());
+        bookInfo.setPublishedDate(entry.getPublishedDate());
+        bookInfo.setPageCount(entry.getPageCount());
+        bookInfo.setLanguage(entry.getLanguage());
+        bookInfo.setCategories(entry.getCategories());
+        bookInfo.setCoverImageUrl(entry.getCoverImageUrl());
+        return bookInfo;
+    }
+
+    @Scheduled(fixedDelayString = "${external-api.books.cache.purge-interval-ms:3600000}",
+               initialDelayString = "${external-api.books.cache.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            int removed = cacheRepository.deleteExpired(LocalDateTime.now());
+            if (removed > 0) {
+                logger.debug("Удалено просроченных записей кэша ISBN: {}", removed);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Не удалось очистить просроченные записи кэша ISBN: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Статистика кэша: попадания в память и в БД, отрицательные попадания, промахи, вытеснения
+     */
+    public Map<String, Object> getStats() {
+        long hits = memoryHits.get() + storeHits.get();
+        long total = hits + misses.get();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("storeHits", storeHits.get());
+        stats.put("negativeHits", negativeHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("hitRatio", total > 0 ? (double) hits / total : 0.0);
+        return stats;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void store(BookInfoCacheEntry entry, LocalDateTime expiresAt) {
+        entry.setFetchedAt(LocalDateTime.now());
+        entry.setExpiresAt(expiresAt);
+        remember(entry);
+
+        try {
+            cacheRepository.save(entry);
+        } catch (DataAccessException e) {
+            // Запись остаётся в памяти; после перезапуска ISBN будет запрошен заново
+            logger.warn("Не удалось сохранить кэш ISBN {} в БД: {}", entry.getIsbn(), e.getMessage());
+        }
+    }
+
+    private void remember(BookInfoCacheEntry entry) {
+        synchronized (entries) {
+            entries.put(entry.getIsbn(), entry);
+        }
+    }
+
+    private Optional<BookInfoCacheEntry> countNegative(BookInfoCacheEntry entry) {
+        if (!Boolean.TRUE.equals(entry.getFound())) {
+            negativeHits.incrementAndGet();
+        }
+        return Optional.of(entry);
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
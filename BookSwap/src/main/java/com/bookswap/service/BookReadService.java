@@ -0,0 +1,107 @@
+package com.bookswap.service;
+
+import com.bookswap.dto.BookCard;
+import com.bookswap.dto.BookCursor;
+import com.bookswap.dto.BookDetail;
+import com.bookswap.dto.KeysetPage;
+import com.bookswap.entity.Book;
+import com.bookswap.repository.BookRepository;
+import com.bookswap.search.SearchDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Сервис read-моделей каталога: карточки книг для списков и подробное представление книги
+ * Любая страница карточек стоит не более трёх запросов: основная выборка
+ * и по одному пакетному запросу на авторов и жанры
+ */
+@Service
+@Transactional(readOnly = true)
+public class BookReadService {
+
+    private final BookRepository bookRepository;
+    private final BookService bookService;
+
+    @Autowired
+    public BookReadService(BookRepository bookRepository, BookService bookService) {
+        this.bookRepository = bookRepository;
+        this.bookService = bookService;
+    }
+
+    public Page<BookCard> findCards(Pageable pageable) {
+        Page<BookCard> cards = bookRepository.findAllCards(pageable);
+        return new PageImpl<>(withNames(cards.getContent()), pageable, cards.getTotalElements());
+    }
+
+    public List<BookCard> findTopRatedCards(Double minRating, int limit) {
+        return withNames(bookRepository.findTopRatedCards(minRating, PageRequest.of(0, limit)));
+    }
+
+    public KeysetPage<BookCard> findAvailableCards(Long excludedOwnerId, BookCursor cursor, int size) {
+        KeysetPage<Book> books = bookService.findAvailableBooksPage(excludedOwnerId, cursor, size);
+        return new KeysetPage<>(toCards(books.getContent()), books.getNextCursor());
+    }
+
+    public Page<BookCard> searchCards(String title, String author, String genre, Pageable pageable) {
+        Page<Book> books = bookService.searchBooks(title, author, genre, pageable);
+        return new PageImpl<>(toCards(books.getContent()), pageable, books.getTotalElements());
+    }
+
+    public Page<BookCard> fullTextSearchCards(String query, Pageable pageable) {
+        Page<Book> books = bookService.fullTextSearch(query, pageable);
+        return new PageImpl<>(toCards(books.getContent()), pageable, books.getTotalElements());
+    }
+
+    public Optional<BookDetail> findDetail(Long bookId) {
+        return bookRepository.findDetailedById(bookId).map(BookDetail::of);
+    }
+
+    /**
+     * Карточки из уже загруженных сущностей: используются только скалярные поля,
+     * ленивые коллекции не трогаются - авторы и жанры догружаются пакетно
+     */
+    private List<BookCard> toCards(List<Book> books) {
+        List<BookCard> cards = new ArrayList<>(books.size());
+        for (Book book : books) {
+            cards.add(new BookCard(book.getId(), book.getTitle(), book.getCoverImageUrl(), book.getExchangeStatus(),
+                    book.getLanguage(), book.getPublicationYear(), book.getAverageRating(), book.getRatingCount(),
+                    book.getCreatedAt()));
+        }
+        return withNames(cards);
+    }
+
+    private List<BookCard> withNames(List<BookCard> cards) {
+        if (cards.isEmpty()) {
+            return cards;
+        }
+
+        List<Long> ids = cards.stream().map(BookCard::getId).toList();
+
+        Map<Long, List<String>> authors = new HashMap<>();
+        for (Object[] row : bookRepository.findAuthorNamesForBooks(ids)) {
+            String name = SearchDocument.fullName((String) row[1], (String) row[2], (String) row[3]);
+            authors.computeIfAbsent((Long) row[0], key -> new ArrayList<>()).add(name);
+        }
+
+        Map<Long, List<String>> genres = new HashMap<>();
+        for (Object[] row : bookRepository.findGenreNamesForBooks(ids)) {
+            genres.computeIfAbsent((Long) row[0], key -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        return cards.stream()
+                .map(card -> card.withNames(authors.getOrDefault(card.getId(), List.of()),
+                        genres.getOrDefault(card.getId(), List.of())))
+                .toList();
+    }
+}
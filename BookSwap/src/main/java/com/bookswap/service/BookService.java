@@ -1,31 +1,56 @@
 package com.bookswap.service;
 
+import com.bookswap.config.MetricsConfig;
+import com.bookswap.dto.BookCursor;
+import com.bookswap.dto.KeysetPage;
 import com.bookswap.entity.Book;
 import com.bookswap.entity.User;
+import com.bookswap.event.BookListedEvent;
+import com.bookswap.event.CatalogChangedEvent;
 import com.bookswap.repository.BookRepository;
+import com.bookswap.repository.ExchangeInboxRepository;
+import com.bookswap.search.BookSearchIndex;
+import com.bookswap.search.SearchHits;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 @Transactional
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class BookService {
     
     private static final Logger logger = LoggerFactory.getLogger(BookService.class);
     
     private final BookRepository bookRepository;
+    private final ExchangeInboxRepository inboxRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository,
+                       ExchangeInboxRepository inboxRepository,
+                       BookSearchIndex bookSearchIndex,
+                       ApplicationEventPublisher eventPublisher) {
         this.bookRepository = bookRepository;
+        this.inboxRepository = inboxRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.eventPublisher = eventPublisher;
     }
     
     // CRUD операции
@@ -34,10 +59,34 @@ public class BookService {
         logger.info("Создание новой книги: {}", book.getTitle());
         
         Book savedBook = bookRepository.save(book);
+        bookSearchIndex.indexAfterCommit(savedBook);
+        eventPublisher.publishEvent(new CatalogChangedEvent(savedBook.getId()));
+        if (savedBook.getIsbn() != null && !savedBook.getIsbn().isBlank()) {
+            eventPublisher.publishEvent(new BookListedEvent(savedBook.getId(), savedBook.getIsbn()));
+        }
         logger.info("Книга успешно создана с ID: {}", savedBook.getId());
         return savedBook;
     }
-    
+
+    /**
+     * Создание нескольких книг в одной транзакции
+     * ID выдаются из блока последовательности без обращения к БД, поэтому книги и их состояния
+     * записываются при фиксации пакетами INSERT по hibernate.jdbc.batch_size строк
+     */
+    public List<Book> createBooks(List<Book> books) {
+        logger.info("Создание {} книг", books.size());
+
+        List<Book> savedBooks = bookRepository.saveAll(books);
+        for (Book savedBook : savedBooks) {
+            bookSearchIndex.indexAfterCommit(savedBook);
+            eventPublisher.publishEvent(new CatalogChangedEvent(savedBook.getId()));
+            if (savedBook.getIsbn() != null && !savedBook.getIsbn().isBlank()) {
+                eventPublisher.publishEvent(new BookListedEvent(savedBook.getId(), savedBook.getIsbn()));
+            }
+        }
+        return savedBooks;
+    }
+
     @Transactional(readOnly = true)
     public Optional<Book> findById(Long id) {
         return bookRepository.findById(id);
@@ -56,11 +105,20 @@ public class BookService {
     public Book updateBook(Book book) {
         logger.info("Обновление книги с ID: {}", book.getId());
         
-        if (!bookRepository.existsById(book.getId())) {
-            throw new IllegalArgumentException("Книга не найдена");
+        // Блокировка строки книги: резервирование не может проскочить между чтением статуса и сохранением
+        Book.ExchangeStatus currentStatus = bookRepository.lockExchangeStatus(book.getId())
+                .map(Book.ExchangeStatus::valueOf)
+                .orElseThrow(() -> new IllegalArgumentException("Книга не найдена"));
+        
+        // Статус, выставленный обменом, редактированием книги не сбрасывается
+        if (currentStatus == Book.ExchangeStatus.RESERVED || currentStatus == Book.ExchangeStatus.EXCHANGED) {
+            book.setExchangeStatus(currentStatus);
         }
         
         Book updatedBook = bookRepository.save(book);
+        inboxRepository.updateBookTitle(updatedBook.getId(), updatedBook.getTitle());
+        bookSearchIndex.indexAfterCommit(updatedBook);
+        eventPublisher.publishEvent(new CatalogChangedEvent(updatedBook.getId()));
         logger.info("Книга успешно обновлена");
         return updatedBook;
     }
@@ -73,6 +131,8 @@ public class BookService {
         }
         
         bookRepository.deleteById(id);
+        bookSearchIndex.removeAfterCommit(id);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
         logger.info("Книга успешно удалена");
     }
     
@@ -112,20 +172,86 @@ public class BookService {
     public List<Book> findAvailableBooksForUser(Long userId) {
         return bookRepository.findAvailableBooksForUser(userId);
     }
-    
+
+    /**
+     * Страница доступных книг с keyset-пагинацией (createdAt DESC, id DESC)
+     * Каждая страница - один индексный запрос на size + 1 строк, независимо от глубины
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Book> findAvailableBooksPage(Long excludedOwnerId, BookCursor cursor, int size) {
+        Pageable probe = PageRequest.of(0, size + 1);
+
+        List<Book> books = cursor == null ?
+                bookRepository.findAvailableBooksFirstPage(excludedOwnerId, probe) :
+                bookRepository.findAvailableBooksAfter(excludedOwnerId, cursor.getCreatedAt(), cursor.getId(), probe);
+
+        return KeysetPage.fromProbe(books, size, book -> BookCursor.of(book).encode());
+    }
+
     @Transactional(readOnly = true)
     public List<Book> findBooksWithHighRating(Double minRating) {
         return bookRepository.findBooksWithHighRating(minRating);
     }
     
+    /**
+     * Книги с наибольшим средним рейтингом, не ниже minRating
+     */
+    @Transactional(readOnly = true)
+    public List<Book> findTopRatedBooks(Double minRating, int limit) {
+        return bookRepository.findTopRated(minRating, PageRequest.of(0, limit));
+    }
+    
     @Transactional(readOnly = true)
     public List<Book> findPopularAvailableBooks(int reviewCount) {
         return bookRepository.findPopularAvailableBooks(reviewCount);
     }
     
+    /**
+     * Поиск доступных книг по названию, автору и жанру
+     * Обслуживается поисковым индексом, пока он не построен - запросом к БД
+     */
     @Transactional(readOnly = true)
     public Page<Book> searchBooks(String title, String author, String genre, Pageable pageable) {
-        return bookRepository.searchBooks(title, author, genre, pageable);
+        boolean hasCriteria = hasText(title) || hasText(author) || hasText(genre);
+        if (!hasCriteria || !bookSearchIndex.isReady()) {
+            return bookRepository.searchBooks(title, author, genre, pageable);
+        }
+        
+        SearchHits hits = bookSearchIndex.searchByCriteria(title, author, genre,
+                Book.ExchangeStatus.AVAILABLE, (int) pageable.getOffset(), pageable.getPageSize());
+        return toPage(hits, pageable);
+    }
+    
+    /**
+     * Полнотекстовый поиск по названию, авторам, издательству и жанрам с ранжированием
+     */
+    @Transactional(readOnly = true)
+    public Page<Book> fullTextSearch(String query, Pageable pageable) {
+        if (!bookSearchIndex.isReady()) {
+            return bookRepository.findByTitleContainingIgnoreCase(query, pageable);
+        }
+        
+        SearchHits hits = bookSearchIndex.searchText(query, null,
+                (int) pageable.getOffset(), pageable.getPageSize());
+        return toPage(hits, pageable);
+    }
+    
+    private Page<Book> toPage(SearchHits hits, Pageable pageable) {
+        Map<Long, Book> booksById = new HashMap<>();
+        for (Book book : bookRepository.findAllById(hits.getBookIds())) {
+            booksById.put(book.getId(), book);
+        }
+        
+        // Сохраняем порядок релевантности из индекса
+        List<Book> content = hits.getBookIds().stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(content, pageable, hits.getTotalHits());
+    }
+    
+    private boolean hasText(String value) {
+        return value != null && !value.isBlank();
     }
     
     @Transactional(readOnly = true)
@@ -153,6 +279,8 @@ public class BookService {
             Book book = bookOpt.get();
             book.setExchangeStatus(Book.ExchangeStatus.AVAILABLE);
             bookRepository.save(book);
+            bookSearchIndex.statusChangedAfterCommit(bookId, Book.ExchangeStatus.AVAILABLE);
+            eventPublisher.publishEvent(new CatalogChangedEvent(bookId));
             logger.info("Книга отмечена как доступная: {}", book.getTitle());
         }
     }
@@ -165,6 +293,8 @@ public class BookService {
             Book book = bookOpt.get();
             book.setExchangeStatus(Book.ExchangeStatus.RESERVED);
             bookRepository.save(book);
+            bookSearchIndex.statusChangedAfterCommit(bookId, Book.ExchangeStatus.RESERVED);
+            eventPublisher.publishEvent(new CatalogChangedEvent(bookId));
             logger.info("Книга зарезервирована: {}", book.getTitle());
         }
     }
@@ -177,6 +307,8 @@ public class BookService {
             Book book = bookOpt.get();
             book.setExchangeStatus(Book.ExchangeStatus.EXCHANGED);
             bookRepository.save(book);
+            bookSearchIndex.statusChangedAfterCommit(bookId, Book.ExchangeStatus.EXCHANGED);
+            eventPublisher.publishEvent(new CatalogChangedEvent(bookId));
             logger.info("Книга отмечена как обмененная: {}", book.getTitle());
         }
     }
@@ -189,6 +321,8 @@ public class BookService {
             Book book = bookOpt.get();
             book.setExchangeStatus(Book.ExchangeStatus.NOT_AVAILABLE);
             bookRepository.save(book);
+            bookSearchIndex.statusChangedAfterCommit(bookId, Book.ExchangeStatus.NOT_AVAILABLE);
+            eventPublisher.publishEvent(new CatalogChangedEvent(bookId));
             logger.info("Книга отмечена как недоступная: {}", book.getTitle());
         }
     }
@@ -210,8 +344,14 @@ public class BookService {
         return bookRepository.getMostPopularGenres();
     }
     
+    /**
+     * Средний рейтинг и количество одобренных отзывов книги
+     * Читается из денормализованных агрегатов, без обращения к таблице отзывов
+     */
     @Transactional(readOnly = true)
     public Object[] getBookRatingStats(Long bookId) {
-        return bookRepository.getBookRatingStats(bookId);
+        return bookRepository.findById(bookId)
+                .map(book -> new Object[] {book.getAverageRating(), book.getRatingCount()})
+                .orElse(new Object[] {null, 0});
     }
 } 
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.bookswap.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Статистика кэша второго уровня Hibernate: попадания и промахи по регионам справочников и кэшу запросов
+ */
+@Service
+public class CacheStatisticsService {
+
+    private static final String[] REFERENCE_REGIONS = {"genres", "authors"};
+
+    private final Statistics statistics;
+
+    @Autowired
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public Map<String, Object> getSecondLevelCacheStats() {
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : REFERENCE_REGIONS) {
+            CacheRegionStatistics regionStats = statistics.getDomainDataRegionStatistics(region);
+            regions.put(region, toMap(regionStats.getHitCount(), regionStats.getMissCount(),
+                    regionStats.getPutCount(), regionStats.getElementCountInMemory()));
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("regions", regions);
+        stats.put("queryCache", toMap(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                statistics.getQueryCachePutCount(), -1));
+        stats.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        return stats;
+    }
+
+    private Map<String, Object> toMap(long hits, long misses, long puts, long size) {
+        long total = hits + misses;
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("hits", hits);
+        values.put("misses", misses);
+        values.put("puts", puts);
+        if (size >= 0) {
+            values.put("size", size);
+        }
+        values.put("hitRatio", total > 0 ? (double) hits / total : 0.0);
+        return values;
+    }
+}
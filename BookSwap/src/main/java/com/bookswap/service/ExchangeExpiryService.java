@@ -0,0 +1,203 @@
+package com.bookswap.service;
+
+import com.bookswap.entity.Book;
+import com.bookswap.entity.BookExchange;
+import com.bookswap.event.CatalogChangedEvent;
+import com.bookswap.event.ExchangeChangedEvent;
+import com.bookswap.search.BookSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновая отмена обменов, на которые не ответили в срок
+ * Просроченные обмены отменяются порциями: PENDING - по времени создания запроса, ACCEPTED - по времени
+ * одобрения (accepted_at). Каждая порция - одна инструкция,
+ * которая отменяет обмены, обновляет их строки в exchange_inbox и возвращает в доступные книги
+ * без других открытых обменов.
+ * Задание может работать на всех узлах: порция выполняется под транзакционной advisory-блокировкой,
+ * а строки выбираются с SKIP LOCKED, поэтому один и тот же обмен не обрабатывается дважды
+ */
+@Service
+public class ExchangeExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExchangeExpiryService.class);
+
+    private static final long LOCK_KEY = "bookswap:exchange-expiry".hashCode();
+
+    private static final String EXPIRY_RESPONSE = "Запрос отменён: истёк срок ответа";
+
+    private static final String EXPIRE_CHUNK_SQL =
+            "WITH expired AS (" +
+            "  SELECT id FROM book_exchanges" +
+            "  WHERE status = ? AND %1$s < ?" +
+            "  ORDER BY %1$s LIMIT ?" +
+            "  FOR UPDATE SKIP LOCKED" +
+            "), cancelled AS (" +
+            "  UPDATE book_exchanges e SET status = 'CANCELLED', owner_response = ?," +
+            "  version = e.version + 1, updated_at = ?" +
+            "  FROM expired x WHERE e.id = x.id" +
+            "  RETURNING e.id, e.book_id, e.owner_id, e.requester_id, e.exchange_type" +
+            "), released AS (" +
+            "  UPDATE books b SET exchange_status = 'AVAILABLE', updated_at = ?" +
+            "  WHERE b.id IN (SELECT book_id FROM cancelled) AND b.exchange_status = 'RESERVED'" +
+            // CTE видят снимок до изменений, поэтому только что отменённые обмены исключаются явно
+            "  AND NOT EXISTS (SELECT 1 FROM book_exchanges o WHERE o.book_id = b.id" +
+            "    AND o.status IN ('PENDING', 'ACCEPTED') AND o.id NOT IN (SELECT id FROM expired))" +
+            "  RETURNING b.id" +
+            "), inbox AS (" +
+            "  UPDATE exchange_inbox i SET status = 'CANCELLED', updated_at = ?" +
+            "  FROM cancelled c WHERE i.exchange_id = c.id" +
+            ") " +
+            "SELECT c.id, c.book_id, c.owner_id, c.requester_id, c.exchange_type," +
+            " c.book_id IN (SELECT id FROM released) FROM cancelled c";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BookSearchIndex bookSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final boolean enabled;
+    private final Duration pendingTtl;
+    private final Duration acceptedTtl;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private final AtomicLong cancelledExchanges = new AtomicLong();
+    private final AtomicLong releasedBooks = new AtomicLong();
+    private final AtomicLong skippedRuns = new AtomicLong();
+
+    @Autowired
+    public ExchangeExpiryService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 BookSearchIndex bookSearchIndex,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${exchange.expiry.enabled:true}") boolean enabled,
+                                 @Value("${exchange.expiry.pending-ttl-hours:72}") long pendingTtlHours,
+                                 @Value("${exchange.expiry.accepted-ttl-hours:336}") long acceptedTtlHours,
+                                 @Value("${exchange.expiry.batch-size:500}") int batchSize,
+                                 @Value("${exchange.expiry.max-batches-per-run:100}") int maxBatchesPerRun) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookSearchIndex = bookSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.pendingTtl = Duration.ofHours(pendingTtlHours);
+        this.acceptedTtl = Duration.ofHours(acceptedTtlHours);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+    }
+
+    @Scheduled(fixedDelayString = "${exchange.expiry.interval-ms:300000}",
+               initialDelayString = "${exchange.expiry.initial-delay-ms:60000}")
+    public void expireStaleExchanges() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int cancelled = expire(BookExchange.ExchangeStatus.PENDING, now.minus(pendingTtl))
+                    + expire(BookExchange.ExchangeStatus.ACCEPTED, now.minus(acceptedTtl));
+            if (cancelled > 0) {
+                logger.info("Отменено просроченных обменов: {}", cancelled);
+            }
+        } catch (DataAccessException e) {
+            logger.error("Ошибка при отмене просроченных обменов", e);
+        }
+    }
+
+    /**
+     * Отменяет обмены в статусе status, созданные (для ACCEPTED - одобренные) раньше deadline;
+     * возвращает число отменённых
+     */
+    public int expire(BookExchange.ExchangeStatus status, LocalDateTime deadline) {
+        String sql = EXPIRE_CHUNK_SQL.formatted(
+                status == BookExchange.ExchangeStatus.ACCEPTED ? "accepted_at" : "created_at");
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            ChunkResult chunk = transactionTemplate.execute(tx -> expireChunk(sql, status, deadline));
+            if (chunk == null) {
+                // Порцию сейчас обрабатывает другой узел
+                skippedRuns.incrementAndGet();
+                break;
+            }
+            // Счётчики учитывают только зафиксированные порции
+            cancelledExchanges.addAndGet(chunk.cancelled);
+            releasedBooks.addAndGet(chunk.released);
+            total += chunk.cancelled;
+            if (chunk.cancelled < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Одна порция в текущей транзакции; null, если блокировка занята другим узлом
+     */
+    private ChunkResult expireChunk(String sql, BookExchange.ExchangeStatus status, LocalDateTime deadline) {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            return null;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.query(sql, rs -> {
+            int cancelled = 0;
+            Set<Long> releasedBookIds = new HashSet<>();
+            while (rs.next()) {
+                cancelled++;
+                long bookId = rs.getLong(2);
+                eventPublisher.publishEvent(new ExchangeChangedEvent(rs.getLong(1), bookId, rs.getLong(3),
+                        rs.getLong(4), BookExchange.ExchangeType.valueOf(rs.getString(5)),
+                        BookExchange.ExchangeStatus.CANCELLED));
+                if (rs.getBoolean(6)) {
+                    releasedBookIds.add(bookId);
+                }
+            }
+
+            // Поисковый индекс и главная страница обновляются после фиксации
+            for (Long bookId : releasedBookIds) {
+                bookSearchIndex.statusChangedAfterCommit(bookId, Book.ExchangeStatus.AVAILABLE);
+                eventPublisher.publishEvent(new CatalogChangedEvent(bookId));
+            }
+            return new ChunkResult(cancelled, releasedBookIds.size());
+        }, status.name(), Timestamp.valueOf(deadline), batchSize, EXPIRY_RESPONSE, now, now, now);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("cancelledExchanges", cancelledExchanges.get());
+        stats.put("releasedBooks", releasedBooks.get());
+        stats.put("skippedRuns", skippedRuns.get());
+        return stats;
+    }
+
+    private static final class ChunkResult {
+        private final int cancelled;
+        private final int released;
+
+        private ChunkResult(int cancelled, int released) {
+            this.cancelled = cancelled;
+            this.released = released;
+        }
+    }
+}
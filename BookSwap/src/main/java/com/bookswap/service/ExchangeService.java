@@ -1,22 +1,43 @@
 package com.bookswap.service;
 
+import com.bookswap.config.MetricsConfig;
+import com.bookswap.dto.CachedPrincipal;
+import com.bookswap.dto.ExchangeInboxCursor;
+import com.bookswap.dto.KeysetPage;
 import com.bookswap.entity.Book;
 import com.bookswap.entity.BookExchange;
+import com.bookswap.entity.ExchangeInboxEntry;
 import com.bookswap.entity.User;
+import com.bookswap.event.CatalogChangedEvent;
+import com.bookswap.event.ExchangeChangedEvent;
 import com.bookswap.exception.BookSwapException;
+import com.bookswap.matching.SwapMatchingEngine;
+import com.bookswap.matching.SwapProposal;
 import com.bookswap.repository.BookExchangeRepository;
 import com.bookswap.repository.BookRepository;
-import com.bookswap.repository.UserRepository;
+import com.bookswap.repository.ExchangeInboxRepository;
+import com.bookswap.search.BookSearchIndex;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Сервис для управления обменами книг
@@ -24,39 +45,78 @@ import java.util.List;
  */
 @Service
 @Transactional
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class ExchangeService {
 
     private static final Logger logger = LoggerFactory.getLogger(ExchangeService.class);
 
+    private static final String AUTO_REJECT_RESPONSE = "Книга передана по другому запросу";
+
     private final BookExchangeRepository exchangeRepository;
     private final BookRepository bookRepository;
-    private final UserRepository userRepository;
+    private final ExchangeInboxRepository inboxRepository;
+    private final UserService userService;
+    private final BookSearchIndex bookSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SwapMatchingEngine swapMatchingEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final OptimisticLockRetry optimisticLockRetry;
+
+    @Value("${exchange.inbox.backfill-batch-size:10000}")
+    private int inboxBackfillBatchSize;
 
     @Autowired
     public ExchangeService(BookExchangeRepository exchangeRepository,
                           BookRepository bookRepository,
-                          UserRepository userRepository) {
+                          ExchangeInboxRepository inboxRepository,
+                          UserService userService,
+                          BookSearchIndex bookSearchIndex,
+                          ApplicationEventPublisher eventPublisher,
+                          SwapMatchingEngine swapMatchingEngine,
+                          PlatformTransactionManager transactionManager,
+                          OptimisticLockRetry optimisticLockRetry) {
         this.exchangeRepository = exchangeRepository;
         this.bookRepository = bookRepository;
-        this.userRepository = userRepository;
+        this.inboxRepository = inboxRepository;
+        this.userService = userService;
+        this.bookSearchIndex = bookSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.swapMatchingEngine = swapMatchingEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.optimisticLockRetry = optimisticLockRetry;
     }
 
     /**
      * Создание запроса на обмен
+     * Книга резервируется условным UPDATE, поэтому из конкурирующих запросов на одну книгу
+     * успешен ровно один, а остальные получают BOOK_NOT_AVAILABLE
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public BookExchange createExchangeRequest(Long bookId, String requesterUsername) {
-        logger.info("Creating exchange request for book {} by user {}", bookId, requesterUsername);
+        return optimisticLockRetry.execute("createExchangeRequest",
+                () -> doCreateExchangeRequest(bookId, requesterUsername));
+    }
 
-        // Получаем книгу
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> BookSwapException.bookNotFound(bookId));
+    private BookExchange doCreateExchangeRequest(Long bookId, String requesterUsername) {
+        logger.info("Creating exchange request for book {} by user {}", bookId, requesterUsername);
 
         // Получаем пользователя-запросчика
-        User requester = userRepository.findByUsername(requesterUsername)
+        User requester = userService.findReferenceByUsername(requesterUsername)
                 .orElseThrow(() -> BookSwapException.userNotFound(null));
 
-        // Бизнес-логика валидации
-        validateExchangeRequest(book, requester);
+        // Резервируем книгу; при неудаче выясняем причину
+        int reserved = bookRepository.reserveIfAvailable(bookId, requester.getId(),
+                Book.ExchangeStatus.AVAILABLE, Book.ExchangeStatus.RESERVED, LocalDateTime.now());
+        if (reserved == 0) {
+            Book book = bookRepository.findById(bookId)
+                    .orElseThrow(() -> BookSwapException.bookNotFound(bookId));
+            validateExchangeRequest(book, requester);
+            throw BookSwapException.bookNotAvailable(bookId);
+        }
+
+        // Книга читается после резервирования и уже содержит новый статус
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> BookSwapException.bookNotFound(bookId));
 
         // Создаем запрос на обмен
         BookExchange exchange = new BookExchange();
@@ -66,12 +126,14 @@ public class ExchangeService {
         exchange.setStatus(BookExchange.ExchangeStatus.PENDING);
         exchange.setExchangeType(BookExchange.ExchangeType.BOOK_FOR_BOOK);
 
-        // Изменяем статус книги
-        book.setExchangeStatus(Book.ExchangeStatus.RESERVED);
-        bookRepository.save(book);
+        bookSearchIndex.statusChangedAfterCommit(bookId, Book.ExchangeStatus.RESERVED);
+        eventPublisher.publishEvent(new CatalogChangedEvent(bookId));
 
         // Сохраняем обмен
         BookExchange savedExchange = exchangeRepository.save(exchange);
+        inboxRepository.insertForExchange(savedExchange.getId());
+        eventPublisher.publishEvent(new ExchangeChangedEvent(savedExchange.getId(), bookId,
+                book.getOwner().getId(), requester.getId(), savedExchange.getExchangeType(), savedExchange.getStatus()));
 
         logger.info("Exchange request created with ID: {}", savedExchange.getId());
         return savedExchange;
@@ -79,105 +141,215 @@ public class ExchangeService {
 
     /**
      * Одобрение запроса на обмен
+     * Остальные ожидающие запросы на ту же книгу автоматически отклоняются
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public BookExchange approveExchange(Long exchangeId, String ownerUsername) {
-        logger.info("Approving exchange {} by owner {}", exchangeId, ownerUsername);
-
-        BookExchange exchange = exchangeRepository.findById(exchangeId)
-                .orElseThrow(() -> new BookSwapException("EXCHANGE_NOT_FOUND", 
-                    "Exchange not found", org.springframework.http.HttpStatus.NOT_FOUND));
+        return optimisticLockRetry.execute("approveExchange", () -> doApproveExchange(exchangeId, ownerUsername));
+    }
 
-        // Проверяем права доступа
-        if (!exchange.getOwner().getUsername().equals(ownerUsername)) {
-            throw BookSwapException.unauthorizedAccess();
-        }
+    private BookExchange doApproveExchange(Long exchangeId, String ownerUsername) {
+        logger.info("Approving exchange {} by owner {}", exchangeId, ownerUsername);
 
-        // Проверяем статус
-        if (exchange.getStatus() != BookExchange.ExchangeStatus.PENDING) {
-            throw new BookSwapException("INVALID_EXCHANGE_STATUS", 
-                "Cannot approve exchange in current status", 
-                org.springframework.http.HttpStatus.BAD_REQUEST);
+        Long ownerId = requireUserId(ownerUsername);
+        if (transition(List.of(exchangeId), ownerId, BookExchange.ExchangeStatus.ACCEPTED, null) == 0) {
+            throw transitionFailure(exchangeId, ownerId, BookExchange.ExchangeStatus.ACCEPTED);
         }
 
-        // Изменяем статус обмена
-        exchange.setStatus(BookExchange.ExchangeStatus.ACCEPTED);
-
-        // Сохраняем изменения
-        BookExchange savedExchange = exchangeRepository.save(exchange);
-
         logger.info("Exchange {} approved", exchangeId);
-        return savedExchange;
+        return findExchange(exchangeId);
     }
 
     /**
      * Завершение обмена
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public BookExchange completeExchange(Long exchangeId, String ownerUsername) {
-        logger.info("Completing exchange {} by owner {}", exchangeId, ownerUsername);
+        return optimisticLockRetry.execute("completeExchange", () -> doCompleteExchange(exchangeId, ownerUsername));
+    }
 
-        BookExchange exchange = exchangeRepository.findById(exchangeId)
-                .orElseThrow(() -> new BookSwapException("EXCHANGE_NOT_FOUND", 
-                    "Exchange not found", org.springframework.http.HttpStatus.NOT_FOUND));
+    private BookExchange doCompleteExchange(Long exchangeId, String ownerUsername) {
+        logger.info("Completing exchange {} by owner {}", exchangeId, ownerUsername);
 
-        // Проверяем права доступа
-        if (!exchange.getOwner().getUsername().equals(ownerUsername)) {
-            throw BookSwapException.unauthorizedAccess();
+        Long ownerId = requireUserId(ownerUsername);
+        if (transition(List.of(exchangeId), ownerId, BookExchange.ExchangeStatus.COMPLETED, null) == 0) {
+            throw transitionFailure(exchangeId, ownerId, BookExchange.ExchangeStatus.COMPLETED);
         }
 
-        // Проверяем статус
-        if (exchange.getStatus() != BookExchange.ExchangeStatus.ACCEPTED) {
-            throw new BookSwapException("INVALID_EXCHANGE_STATUS", 
-                "Cannot complete exchange in current status", 
-                org.springframework.http.HttpStatus.BAD_REQUEST);
+        logger.info("Exchange {} completed", exchangeId);
+        return findExchange(exchangeId);
+    }
+
+    /**
+     * Отклонение запроса на обмен
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void rejectExchange(Long exchangeId, String ownerUsername, String reason) {
+        optimisticLockRetry.execute("rejectExchange", () -> {
+            doRejectExchange(exchangeId, ownerUsername, reason);
+            return null;
+        });
+    }
+
+    private void doRejectExchange(Long exchangeId, String ownerUsername, String reason) {
+        logger.info("Rejecting exchange {} by owner {}", exchangeId, ownerUsername);
+
+        Long ownerId = requireUserId(ownerUsername);
+        if (transition(List.of(exchangeId), ownerId, BookExchange.ExchangeStatus.REJECTED, reason) == 0) {
+            throw transitionFailure(exchangeId, ownerId, BookExchange.ExchangeStatus.REJECTED);
         }
 
-        // Завершаем обмен
-        exchange.setStatus(BookExchange.ExchangeStatus.COMPLETED);
-        exchange.setCompleted(true);
-        exchange.setExchangeDate(LocalDateTime.now());
+        logger.info("Exchange {} rejected", exchangeId);
+    }
 
-        // Изменяем статус книги
-        Book book = exchange.getBook();
-        book.setExchangeStatus(Book.ExchangeStatus.EXCHANGED);
-        bookRepository.save(book);
+    /**
+     * Массовое одобрение входящих запросов владельца
+     * Запросы чужих книг и запросы в неподходящем статусе пропускаются; возвращает число одобренных
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int approveExchanges(Collection<Long> exchangeIds, String ownerUsername) {
+        return optimisticLockRetry.execute("approveExchanges", () -> doApproveExchanges(exchangeIds, ownerUsername));
+    }
 
-        // Сохраняем обмен
-        BookExchange savedExchange = exchangeRepository.save(exchange);
+    private int doApproveExchanges(Collection<Long> exchangeIds, String ownerUsername) {
+        logger.info("Approving {} exchanges by owner {}", exchangeIds.size(), ownerUsername);
 
-        logger.info("Exchange {} completed", exchangeId);
-        return savedExchange;
+        int approved = transition(exchangeIds, requireUserId(ownerUsername),
+                BookExchange.ExchangeStatus.ACCEPTED, null);
+
+        logger.info("Approved {} of {} exchanges", approved, exchangeIds.size());
+        return approved;
     }
 
     /**
-     * Отклонение запроса на обмен
+     * Массовое отклонение входящих запросов владельца; возвращает число отклонённых
      */
-    public void rejectExchange(Long exchangeId, String ownerUsername, String reason) {
-        logger.info("Rejecting exchange {} by owner {}", exchangeId, ownerUsername);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public int rejectExchanges(Collection<Long> exchangeIds, String ownerUsername, String reason) {
+        return optimisticLockRetry.execute("rejectExchanges",
+                () -> doRejectExchanges(exchangeIds, ownerUsername, reason));
+    }
 
-        BookExchange exchange = exchangeRepository.findById(exchangeId)
-                .orElseThrow(() -> new BookSwapException("EXCHANGE_NOT_FOUND", 
-                    "Exchange not found", org.springframework.http.HttpStatus.NOT_FOUND));
+    private int doRejectExchanges(Collection<Long> exchangeIds, String ownerUsername, String reason) {
+        logger.info("Rejecting {} exchanges by owner {}", exchangeIds.size(), ownerUsername);
+
+        int rejected = transition(exchangeIds, requireUserId(ownerUsername),
+                BookExchange.ExchangeStatus.REJECTED, reason);
+
+        logger.info("Rejected {} of {} exchanges", rejected, exchangeIds.size());
+        return rejected;
+    }
 
-        // Проверяем права доступа
-        if (!exchange.getOwner().getUsername().equals(ownerUsername)) {
-            throw BookSwapException.unauthorizedAccess();
+    /**
+     * Переход набора обменов владельца в статус target
+     * Обмены меняются одной условной инструкцией по таблице переходов ExchangeStatus,
+     * затем статусы их книг и связанных запросов приводятся в соответствие также множественными UPDATE.
+     * Количество запросов к БД не зависит от числа обменов
+     */
+    private int transition(Collection<Long> exchangeIds, Long ownerId,
+                           BookExchange.ExchangeStatus target, String response) {
+        if (exchangeIds.isEmpty()) {
+            return 0;
         }
 
-        // Изменяем статус обмена
-        exchange.setStatus(BookExchange.ExchangeStatus.REJECTED);
-        if (reason != null) {
-            exchange.setOwnerResponse(reason);
+        LocalDateTime now = LocalDateTime.now();
+        List<String> sources = BookExchange.ExchangeStatus.sourcesOf(target).stream().map(Enum::name).toList();
+        List<Object[]> changedRows = switch (target) {
+            case COMPLETED -> exchangeRepository.completeForOwner(exchangeIds, ownerId, sources, target.name(), now);
+            case REJECTED -> exchangeRepository.rejectForOwner(exchangeIds, ownerId, sources, target.name(),
+                    response, now);
+            case ACCEPTED -> exchangeRepository.acceptForOwner(exchangeIds, ownerId, sources, target.name(), now);
+            default -> throw new IllegalArgumentException("Unsupported exchange transition: " + target);
+        };
+        if (changedRows.isEmpty()) {
+            return 0;
         }
 
-        // Возвращаем книгу в доступные
-        Book book = exchange.getBook();
-        book.setExchangeStatus(Book.ExchangeStatus.AVAILABLE);
-        bookRepository.save(book);
+        // События по изменённым обменам, включая автоматически отклонённые запросы на те же книги;
+        // строки берутся из RETURNING самих UPDATE, а не ищутся повторно
+        List<ExchangeChangedEvent> changes = toEvents(changedRows, target);
+        List<Long> bookIds = changes.stream().map(ExchangeChangedEvent::getBookId).distinct().toList();
+        switch (target) {
+            case ACCEPTED -> {
+                List<ExchangeChangedEvent> autoRejected = rejectOtherPending(bookIds, exchangeIds, now);
+                if (!autoRejected.isEmpty()) {
+                    logger.info("Auto-rejected {} competing requests", autoRejected.size());
+                }
+                changes.addAll(autoRejected);
+            }
+            case COMPLETED -> {
+                // Книга должна оставаться зарезервированной этим обменом
+                int exchanged = bookRepository.transitionExchangeStatus(bookIds,
+                        Book.ExchangeStatus.RESERVED, Book.ExchangeStatus.EXCHANGED, now);
+                if (exchanged < bookIds.size()) {
+                    throw new BookSwapException("INVALID_BOOK_STATUS",
+                        "Book is no longer reserved for this exchange",
+                        org.springframework.http.HttpStatus.CONFLICT);
+                }
+                changes.addAll(rejectOtherPending(bookIds, exchangeIds, now));
+            }
+            default -> bookRepository.releaseWithoutOpenExchanges(bookIds, BookExchange.ExchangeStatus.openStatuses(),
+                    Book.ExchangeStatus.RESERVED, Book.ExchangeStatus.AVAILABLE, now);
+        }
+        changes.forEach(eventPublisher::publishEvent);
 
-        // Сохраняем изменения
-        exchangeRepository.save(exchange);
+        // Строки "моих обменов" обоих участников получают новый статус в той же транзакции
+        Map<BookExchange.ExchangeStatus, List<Long>> changedIds = new EnumMap<>(BookExchange.ExchangeStatus.class);
+        for (ExchangeChangedEvent change : changes) {
+            changedIds.computeIfAbsent(change.getStatus(), status -> new ArrayList<>()).add(change.getExchangeId());
+        }
+        changedIds.forEach((status, ids) -> inboxRepository.updateStatus(ids, status, now));
 
-        logger.info("Exchange {} rejected", exchangeId);
+        // Поисковый индекс и главная страница обновляются после фиксации
+        for (Object[] row : bookRepository.findExchangeStatuses(bookIds)) {
+            Long bookId = (Long) row[0];
+            bookSearchIndex.statusChangedAfterCommit(bookId, (Book.ExchangeStatus) row[1]);
+            eventPublisher.publishEvent(new CatalogChangedEvent(bookId));
+        }
+        return changedRows.size();
+    }
+
+    private List<ExchangeChangedEvent> rejectOtherPending(List<Long> bookIds, Collection<Long> excludedIds,
+                                                          LocalDateTime now) {
+        return toEvents(exchangeRepository.rejectOtherPending(bookIds, excludedIds,
+                BookExchange.ExchangeStatus.PENDING.name(), BookExchange.ExchangeStatus.REJECTED.name(),
+                AUTO_REJECT_RESPONSE, now), BookExchange.ExchangeStatus.REJECTED);
+    }
+
+    // Строки RETURNING условных переходов: [id, book_id, owner_id, requester_id, exchange_type]
+    private static List<ExchangeChangedEvent> toEvents(List<Object[]> rows, BookExchange.ExchangeStatus status) {
+        List<ExchangeChangedEvent> events = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            events.add(new ExchangeChangedEvent(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue(), ((Number) row[3]).longValue(),
+                    BookExchange.ExchangeType.valueOf((String) row[4]), status));
+        }
+        return events;
+    }
+
+    /**
+     * Причина, по которой условный переход одного обмена не выполнен
+     */
+    private BookSwapException transitionFailure(Long exchangeId, Long ownerId, BookExchange.ExchangeStatus target) {
+        BookExchange exchange = findExchange(exchangeId);
+        if (!exchange.getOwner().getId().equals(ownerId)) {
+            return BookSwapException.unauthorizedAccess();
+        }
+        return new BookSwapException("INVALID_EXCHANGE_STATUS",
+            "Cannot change exchange from " + exchange.getStatus() + " to " + target,
+            org.springframework.http.HttpStatus.BAD_REQUEST);
+    }
+
+    private BookExchange findExchange(Long exchangeId) {
+        return exchangeRepository.findById(exchangeId)
+                .orElseThrow(() -> new BookSwapException("EXCHANGE_NOT_FOUND", 
+                    "Exchange not found", org.springframework.http.HttpStatus.NOT_FOUND));
+    }
+
+    private Long requireUserId(String username) {
+        return userService.findPrincipal(username)
+                .map(CachedPrincipal::getId)
+                .orElseThrow(() -> BookSwapException.userNotFound(null));
     }
 
     /**
@@ -185,18 +357,55 @@ public class ExchangeService {
      */
     @Transactional(readOnly = true)
     public Page<BookExchange> getUserExchanges(String username, Pageable pageable) {
-        User user = userRepository.findByUsername(username)
+        User user = userService.findReferenceByUsername(username)
                 .orElseThrow(() -> BookSwapException.userNotFound(null));
 
         return exchangeRepository.findByRequesterOrOwner(user, user, pageable);
     }
 
+    /**
+     * Обмены пользователя из проекции exchange_inbox, от недавно изменённых к старым
+     * Каждая страница - один диапазон индекса (user_id, updated_at, exchange_id) на size + 1 строк
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<ExchangeInboxEntry> getInbox(String username, ExchangeInboxCursor cursor, int size) {
+        Long userId = requireUserId(username);
+        PageRequest probe = PageRequest.of(0, size + 1);
+
+        List<ExchangeInboxEntry> entries = cursor == null ?
+                inboxRepository.findFirstPage(userId, probe) :
+                inboxRepository.findPageAfter(userId, cursor.getUpdatedAt(), cursor.getExchangeId(), probe);
+
+        return KeysetPage.fromProbe(entries, size, entry -> ExchangeInboxCursor.of(entry).encode());
+    }
+
+    /**
+     * Заполнение exchange_inbox по обменам, загруженным в обход сервиса (генератор данных)
+     * Существующие базы заполняет миграция V6. Диапазоны ID обрабатываются отдельными транзакциями;
+     * уже существующие строки не меняются
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long backfillInbox() {
+        logger.info("Backfilling exchange inbox");
+        long maxId = exchangeRepository.findMaxId();
+        int batchSize = Math.max(1, inboxBackfillBatchSize);
+        long inserted = 0;
+        for (long afterId = 0; afterId < maxId; afterId += batchSize) {
+            long from = afterId;
+            Integer rows = transactionTemplate.execute(status ->
+                    inboxRepository.insertForExchanges(from, Math.min(from + batchSize, maxId)));
+            inserted += rows != null ? rows : 0;
+        }
+        logger.info("Exchange inbox backfilled: {} rows", inserted);
+        return inserted;
+    }
+
     /**
      * Получение входящих запросов пользователя
      */
     @Transactional(readOnly = true)
     public List<BookExchange> getIncomingRequests(String username) {
-        User user = userRepository.findByUsername(username)
+        User user = userService.findReferenceByUsername(username)
                 .orElseThrow(() -> BookSwapException.userNotFound(null));
 
         return exchangeRepository.findPendingExchangesForOwner(user.getId());
@@ -207,23 +416,27 @@ public class ExchangeService {
      */
     @Transactional(readOnly = true)
     public List<BookExchange> getOutgoingRequests(String username) {
-        User user = userRepository.findByUsername(username)
+        User user = userService.findReferenceByUsername(username)
                 .orElseThrow(() -> BookSwapException.userNotFound(null));
 
         return exchangeRepository.findByRequester(user);
     }
 
+    /**
+     * Предложенные обмены по кругу с участием пользователя
+     * Подбираются в памяти из открытых запросов книга на книгу, без обращения к таблице обменов
+     */
+    @Transactional(readOnly = true)
+    public List<SwapProposal> getSwapProposals(String username) {
+        return swapMatchingEngine.findProposals(requireUserId(username));
+    }
+
     /**
      * Валидация запроса на обмен
      */
     private void validateExchangeRequest(Book book, User requester) {
-        // Проверяем доступность книги
-        if (book.getExchangeStatus() != Book.ExchangeStatus.AVAILABLE) {
-            throw BookSwapException.bookNotAvailable(book.getId());
-        }
-
         // Проверяем, что пользователь не запрашивает свою книгу
-        if (book.getOwner().equals(requester)) {
+        if (book.getOwner().getId().equals(requester.getId())) {
             throw BookSwapException.invalidExchangeRequest();
         }
     }
@@ -1,26 +1,47 @@
 package com.bookswap.service;
 
+import com.bookswap.config.MetricsConfig;
+import com.bookswap.entity.BookInfoCacheEntry;
+import com.bookswap.exception.BookSwapException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 @Service
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class ExternalApiService {
     
     private static final Logger logger = LoggerFactory.getLogger(ExternalApiService.class);
     
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final BookInfoCache bookInfoCache;
     
     @Value("${external-api.books.base-url}")
     private String booksApiBaseUrl;
@@ -34,7 +55,24 @@ public class ExternalApiService {
     @Value("${external-api.currency.timeout}")
     private int currencyApiTimeout;
     
-    public ExternalApiService() {
+    @Value("${external-api.currency.refresh-interval-ms:600000}")
+    private long currencyRefreshIntervalMs;
+    
+    @Value("${external-api.currency.preload-bases:}")
+    private String currencyPreloadBases;
+    
+    // Таблицы курсов по базовой валюте; заменяются целиком при обновлении
+    private final Map<String, RateTable> rateTables = new ConcurrentHashMap<>();
+    private final Set<String> refreshingBases = ConcurrentHashMap.newKeySet();
+    private final ExecutorService currencyRefreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "currency-rates-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @Autowired
+    public ExternalApiService(BookInfoCache bookInfoCache) {
+        this.bookInfoCache = bookInfoCache;
         this.httpClient = new OkHttpClient.Builder()
                 .connectTimeout(10, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
@@ -44,93 +82,219 @@ public class ExternalApiService {
     }
     
     /**
-     * Поиск информации о книге через Google Books API
+     * Поиск информации о книге по ISBN
+     * Результат берётся из кэша; к Google Books API обращаемся только при промахе
      */
     public BookInfo searchBookInfo(String isbn) {
-        logger.info("Поиск информации о книге по ISBN: {}", isbn);
+        String normalizedIsbn = BookInfoCache.normalizeIsbn(isbn);
+        if (normalizedIsbn == null) {
+            logger.warn("Некорректный ISBN: {}", isbn);
+            return null;
+        }
+        
+        Optional<BookInfoCacheEntry> cached = bookInfoCache.lookup(normalizedIsbn);
+        if (cached.isPresent()) {
+            logger.debug("Информация о книге с ISBN {} взята из кэша", normalizedIsbn);
+            return Boolean.TRUE.equals(cached.get().getFound()) ? BookInfoCache.toBookInfo(cached.get()) : null;
+        }
         
         try {
-            String url = booksApiBaseUrl + "/volumes?q=isbn:" + isbn;
+            BookInfo bookInfo = fetchBookInfo(normalizedIsbn);
+            if (bookInfo != null) {
+                bookInfoCache.putFound(normalizedIsbn, bookInfo);
+            } else {
+                bookInfoCache.putNotFound(normalizedIsbn);
+            }
+            return bookInfo;
+        } catch (IOException e) {
+            // Ошибки не кэшируем: следующий запрос снова обратится к API
+            logger.error("Ошибка при обращении к Books API", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Статистика кэша поиска по ISBN
+     */
+    public Map<String, Object> getBookInfoCacheStats() {
+        return bookInfoCache.getStats();
+    }
+    
+    /**
+     * Запрос информации о книге к Google Books API
+     * Возвращает null, если книга не найдена; сбой запроса выбрасывается как IOException
+     */
+    private BookInfo fetchBookInfo(String isbn) throws IOException {
+        logger.info("Поиск информации о книге по ISBN: {}", isbn);
+    
+        String url = booksApiBaseUrl + "/volumes?q=isbn:" + isbn;
+        
+        Request request = new Request.Builder()
+                .url(url)
+                .get()
+                .addHeader("Accept", "application/json")
+                .build();
+        
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Books API ответил кодом " + response.code());
+            }
             
-            Request request = new Request.Builder()
-                    .url(url)
-                    .get()
-                    .addHeader("Accept", "application/json")
-                    .build();
+            String responseBody = response.body().string();
+            JsonNode jsonNode = objectMapper.readTree(responseBody);
             
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    logger.error("Ошибка при запросе к Books API: {}", response.code());
-                    return null;
-                }
+            if (jsonNode.has("items") && jsonNode.get("items").size() > 0) {
+                JsonNode bookItem = jsonNode.get("items").get(0);
+                JsonNode volumeInfo = bookItem.get("volumeInfo");
                 
-                String responseBody = response.body().string();
-                JsonNode jsonNode = objectMapper.readTree(responseBody);
+                BookInfo bookInfo = new BookInfo();
+                bookInfo.setTitle(getStringValue(volumeInfo, "title"));
+                bookInfo.setDescription(getStringValue(volumeInfo, "description"));
+                bookInfo.setPublisher(getStringValue(volumeInfo, "publisher"));
+                bookInfo.setPublishedDate(getStringValue(volumeInfo, "publishedDate"));
+                bookInfo.setPageCount(getIntValue(volumeInfo, "pageCount"));
+                bookInfo.setLanguage(getStringValue(volumeInfo, "language"));
                 
-                if (jsonNode.has("items") && jsonNode.get("items").size() > 0) {
-                    JsonNode bookItem = jsonNode.get("items").get(0);
-                    JsonNode volumeInfo = bookItem.get("volumeInfo");
-                    
-                    BookInfo bookInfo = new BookInfo();
-                    bookInfo.setTitle(getStringValue(volumeInfo, "title"));
-                    bookInfo.setDescription(getStringValue(volumeInfo, "description"));
-                    bookInfo.setPublisher(getStringValue(volumeInfo, "publisher"));
-                    bookInfo.setPublishedDate(getStringValue(volumeInfo, "publishedDate"));
-                    bookInfo.setPageCount(getIntValue(volumeInfo, "pageCount"));
-                    bookInfo.setLanguage(getStringValue(volumeInfo, "language"));
-                    
-                    // Авторы
-                    if (volumeInfo.has("authors")) {
-                        JsonNode authors = volumeInfo.get("authors");
-                        StringBuilder authorsStr = new StringBuilder();
-                        for (int i = 0; i < authors.size(); i++) {
-                            if (i > 0) authorsStr.append(", ");
-                            authorsStr.append(authors.get(i).asText());
-                        }
-                        bookInfo.setAuthors(authorsStr.toString());
-                    }
-                    
-                    // Категории (жанры)
-                    if (volumeInfo.has("categories")) {
-                        JsonNode categories = volumeInfo.get("categories");
-                        StringBuilder categoriesStr = new StringBuilder();
-                        for (int i = 0; i < categories.size(); i++) {
-                            if (i > 0) categoriesStr.append(", ");
-                            categoriesStr.append(categories.get(i).asText());
-                        }
-                        bookInfo.setCategories(categoriesStr.toString());
+                // Авторы
+                if (volumeInfo.has("authors")) {
+                    JsonNode authors = volumeInfo.get("authors");
+                    StringBuilder authorsStr = new StringBuilder();
+                    for (int i = 0; i < authors.size(); i++) {
+                        if (i > 0) authorsStr.append(", ");
+                        authorsStr.append(authors.get(i).asText());
                     }
-                    
-                    // Обложка
-                    if (volumeInfo.has("imageLinks")) {
-                        JsonNode imageLinks = volumeInfo.get("imageLinks");
-                        if (imageLinks.has("thumbnail")) {
-                            bookInfo.setCoverImageUrl(imageLinks.get("thumbnail").asText());
-                        }
+                    bookInfo.setAuthors(authorsStr.toString());
+                }
+                
+                // Категории (жанры)
+                if (volumeInfo.has("categories")) {
+                    JsonNode categories = volumeInfo.get("categories");
+                    StringBuilder categoriesStr = new StringBuilder();
+                    for (int i = 0; i < categories.size(); i++) {
+                        if (i > 0) categoriesStr.append(", ");
+                        categoriesStr.append(categories.get(i).asText());
                     }
-                    
-                    logger.info("Информация о книге успешно получена: {}", bookInfo.getTitle());
-                    return bookInfo;
+                    bookInfo.setCategories(categoriesStr.toString());
                 }
                 
-                logger.warn("Книга с ISBN {} не найдена", isbn);
-                return null;
+                // Обложка
+                if (volumeInfo.has("imageLinks")) {
+                    JsonNode imageLinks = volumeInfo.get("imageLinks");
+                    if (imageLinks.has("thumbnail")) {
+                        bookInfo.setCoverImageUrl(imageLinks.get("thumbnail").asText());
+                    }
+                }
                 
+                logger.info("Информация о книге успешно получена: {}", bookInfo.getTitle());
+                return bookInfo;
             }
-        } catch (IOException e) {
-            logger.error("Ошибка при обращении к Books API", e);
+            
+            logger.warn("Книга с ISBN {} не найдена", isbn);
             return null;
         }
     }
     
+    /**
+     * Курс валют из таблицы курсов в памяти
+     * Все пары одной базовой валюты обслуживаются одной загрузкой таблицы;
+     * устаревшая таблица отдаётся сразу, а обновляется в фоне
+     */
+    public CurrencyRate getCurrencyRateQuote(String fromCurrency, String toCurrency) {
+        String base = fromCurrency.toUpperCase();
+        String target = toCurrency.toUpperCase();
+        
+        if (base.equals(target)) {
+            return new CurrencyRate(base, target, BigDecimal.ONE, Instant.now());
+        }
+        
+        RateTable table = rateTables.get(base);
+        if (table == null) {
+            // Первое обращение к базовой валюте: загружаем синхронно, отдавать пока нечего
+            table = refreshRateTable(base);
+            if (table == null) {
+                throw BookSwapException.externalApiError("Currency", "курсы для " + base + " недоступны");
+            }
+        } else if (table.isOlderThan(currencyRefreshIntervalMs)) {
+            refreshRateTableAsync(base);
+        }
+        
+        BigDecimal rate = table.rates.get(target);
+        if (rate == null) {
+            throw new BookSwapException("CURRENCY_RATE_NOT_FOUND",
+                    "Курс валют " + base + " -> " + target + " не найден", HttpStatus.BAD_REQUEST);
+        }
+        return new CurrencyRate(base, target, rate, table.fetchedAt);
+    }
+    
     /**
      * Получение курса валют
      */
     public BigDecimal getCurrencyRate(String fromCurrency, String toCurrency) {
-        logger.info("Получение курса валют: {} -> {}", fromCurrency, toCurrency);
+        return getCurrencyRateQuote(fromCurrency, toCurrency).getRate();
+    }
+    
+    /**
+     * Конвертация цены из одной валюты в другую
+     */
+    public BigDecimal convertPrice(BigDecimal amount, String fromCurrency, String toCurrency) {
+        if (fromCurrency.equalsIgnoreCase(toCurrency)) {
+            return amount;
+        }
+        
+        BigDecimal rate = getCurrencyRate(fromCurrency, toCurrency);
+        return amount.multiply(rate);
+    }
+    
+    /**
+     * Плановое обновление таблиц курсов: предзагружаемые базовые валюты и все, к которым уже обращались
+     */
+    @Scheduled(fixedDelayString = "${external-api.currency.refresh-interval-ms:600000}")
+    public void refreshCurrencyRates() {
+        Set<String> bases = new HashSet<>(rateTables.keySet());
+        for (String base : currencyPreloadBases.split(",")) {
+            if (!base.isBlank()) {
+                bases.add(base.trim().toUpperCase());
+            }
+        }
+        
+        for (String base : bases) {
+            refreshRateTable(base);
+        }
+    }
+    
+    /**
+     * Возраст таблиц курсов по базовым валютам, в секундах
+     */
+    public Map<String, Long> getCurrencyRatesAge() {
+        Map<String, Long> ages = new HashMap<>();
+        rateTables.forEach((base, table) -> ages.put(base, table.getAge().getSeconds()));
+        return ages;
+    }
+    
+    private void refreshRateTableAsync(String base) {
+        if (refreshingBases.add(base)) {
+            try {
+                currencyRefreshExecutor.execute(() -> {
+                    try {
+                        refreshRateTable(base);
+                    } finally {
+                        refreshingBases.remove(base);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshingBases.remove(base);
+            }
+        }
+    }
+    
+    /**
+     * Загружает таблицу курсов базовой валюты; при ошибке сохраняется предыдущая таблица
+     */
+    private RateTable refreshRateTable(String base) {
+        logger.info("Обновление таблицы курсов валют для {}", base);
         
         try {
-            String url = currencyApiBaseUrl + "/" + fromCurrency.toUpperCase();
+            String url = currencyApiBaseUrl + "/" + base;
             
             Request request = new Request.Builder()
                     .url(url)
@@ -141,41 +305,35 @@ public class ExternalApiService {
             try (Response response = httpClient.newCall(request).execute()) {
                 if (!response.isSuccessful()) {
                     logger.error("Ошибка при запросе к Currency API: {}", response.code());
-                    return BigDecimal.ONE;
+                    return rateTables.get(base);
                 }
                 
                 String responseBody = response.body().string();
                 JsonNode jsonNode = objectMapper.readTree(responseBody);
                 
-                if (jsonNode.has("rates")) {
-                    JsonNode rates = jsonNode.get("rates");
-                    if (rates.has(toCurrency.toUpperCase())) {
-                        BigDecimal rate = new BigDecimal(rates.get(toCurrency.toUpperCase()).asText());
-                        logger.info("Курс валют получен: {} {} = 1 {}", rate, toCurrency, fromCurrency);
-                        return rate;
-                    }
+                if (!jsonNode.has("rates")) {
+                    logger.warn("Currency API не вернул курсы для {}", base);
+                    return rateTables.get(base);
                 }
                 
-                logger.warn("Курс валют {} -> {} не найден", fromCurrency, toCurrency);
-                return BigDecimal.ONE;
+                Map<String, BigDecimal> rates = new HashMap<>();
+                jsonNode.get("rates").fields().forEachRemaining(entry ->
+                        rates.put(entry.getKey().toUpperCase(), new BigDecimal(entry.getValue().asText())));
                 
+                RateTable table = new RateTable(rates, Instant.now());
+                rateTables.put(base, table);
+                logger.info("Таблица курсов валют для {} обновлена: {} валют", base, rates.size());
+                return table;
             }
-        } catch (IOException e) {
+        } catch (IOException | NumberFormatException e) {
             logger.error("Ошибка при обращении к Currency API", e);
-            return BigDecimal.ONE;
+            return rateTables.get(base);
         }
     }
     
-    /**
-     * Конвертация цены из одной валюты в другую
-     */
-    public BigDecimal convertPrice(BigDecimal amount, String fromCurrency, String toCurrency) {
-        if (fromCurrency.equalsIgnoreCase(toCurrency)) {
-            return amount;
-        }
-        
-        BigDecimal rate = getCurrencyRate(fromCurrency, toCurrency);
-        return amount.multiply(rate);
+    @PreDestroy
+    public void shutdown() {
+        currencyRefreshExecutor.shutdownNow();
     }
     
     // Вспомогательные методы
@@ -188,6 +346,62 @@ public class ExternalApiService {
         return node.has(fieldName) ? node.get(fieldName).asInt() : null;
     }
     
+    // Таблица курсов одной базовой валюты
+    private static final class RateTable {
+        private final Map<String, BigDecimal> rates;
+        private final Instant fetchedAt;
+        
+        private RateTable(Map<String, BigDecimal> rates, Instant fetchedAt) {
+            this.rates = Map.copyOf(rates);
+            this.fetchedAt = fetchedAt;
+        }
+        
+        private Duration getAge() {
+            return Duration.between(fetchedAt, Instant.now());
+        }
+        
+        private boolean isOlderThan(long millis) {
+            return getAge().toMillis() > millis;
+        }
+    }
+    
+    // DTO класс для курса валют с моментом получения данных
+    public static class CurrencyRate {
+        private final String fromCurrency;
+        private final String toCurrency;
+        private final BigDecimal rate;
+        private final Instant fetchedAt;
+        
+        public CurrencyRate(String fromCurrency, String toCurrency, BigDecimal rate, Instant fetchedAt) {
+            this.fromCurrency = fromCurrency;
+            this.toCurrency = toCurrency;
+            this.rate = rate;
+            this.fetchedAt = fetchedAt;
+        }
+        
+        public String getFromCurrency() { return fromCurrency; }
+        public String getToCurrency() { return toCurrency; }
+        public BigDecimal getRate() { return rate; }
+        public Instant getFetchedAt() { return fetchedAt; }
+        
+        /**
+         * Возраст курса: по нему вызывающий код может отличить устаревшие данные
+         */
+        public Duration getAge() {
+            return Duration.between(fetchedAt, Instant.now());
+        }
+        
+        @Override
+        public String toString() {
+            return "CurrencyRate{" +
+                    "fromCurrency='" + fromCurrency + '\'' +
+                    ", toCurrency='" + toCurrency + '\'' +
+                    ", rate=" + rate +
+                    ", fetchedAt=" + fetchedAt +
+                    '}';
+        }
+    }
+    
     // DTO класс для информации о книге
     public static class BookInfo {
         private String title;
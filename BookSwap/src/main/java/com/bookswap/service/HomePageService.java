@@ -0,0 +1,148 @@
+package com.bookswap.service;
+
+import com.bookswap.dto.BookCard;
+import com.bookswap.dto.HomePageSnapshot;
+import com.bookswap.entity.Book;
+import com.bookswap.event.BooksImportedEvent;
+import com.bookswap.event.CatalogChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сервис снимка главной страницы
+ * Секции главной страницы собираются в фоне по расписанию и после изменений каталога,
+ * запросы к главной странице обслуживаются из памяти без обращения к БД
+ */
+@Service
+public class HomePageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomePageService.class);
+
+    private static final int RECENT_BOOKS_LIMIT = 8;
+    private static final int POPULAR_BOOKS_LIMIT = 6;
+    private static final int AVAILABLE_BOOKS_LIMIT = 12;
+    private static final double POPULAR_MIN_RATING = 4.0;
+
+    private final BookService bookService;
+    private final BookReadService bookReadService;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Одна фоновая перестройка за раз; серия изменений схлопывается в одну перестройку
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "homepage-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+
+    private volatile HomePageSnapshot snapshot;
+
+    @Autowired
+    public HomePageService(BookService bookService,
+                           BookReadService bookReadService,
+                           PlatformTransactionManager transactionManager) {
+        this.bookService = bookService;
+        this.bookReadService = bookReadService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Текущий снимок главной страницы; при первом обращении строится синхронно
+     */
+    public HomePageSnapshot getSnapshot() {
+        HomePageSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = buildSnapshot();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        requestRefresh();
+    }
+
+    @Scheduled(fixedDelayString = "${homepage.snapshot.refresh-interval-ms:60000}",
+               initialDelayString = "${homepage.snapshot.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        requestRefresh();
+    }
+
+    @TransactionalEventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        logger.debug("Каталог изменён ({}), запрошено обновление главной страницы", event);
+        requestRefresh();
+    }
+
+    @TransactionalEventListener
+    public void onBooksImported(BooksImportedEvent event) {
+        logger.debug("Импортирована порция книг ({}), запрошено обновление главной страницы", event);
+        requestRefresh();
+    }
+
+    /**
+     * Ставит перестройку снимка в очередь, если она ещё не запланирована
+     */
+    public void requestRefresh() {
+        if (refreshPending.compareAndSet(false, true)) {
+            refreshExecutor.execute(this::refresh);
+        }
+    }
+
+    private void refresh() {
+        // Сбрасываем флаг до сборки: изменения во время сборки запланируют ещё одну
+        refreshPending.set(false);
+        try {
+            snapshot = buildSnapshot();
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при обновлении снимка главной страницы, используется предыдущий", e);
+        }
+    }
+
+    private HomePageSnapshot buildSnapshot() {
+        long started = System.currentTimeMillis();
+
+        HomePageSnapshot built = readOnlyTransaction.execute(status -> {
+            List<BookCard> recentBooks = bookReadService.findCards(
+                    PageRequest.of(0, RECENT_BOOKS_LIMIT, Sort.by("createdAt").descending())).getContent();
+            List<BookCard> popularBooks = bookReadService.findTopRatedCards(
+                    POPULAR_MIN_RATING, POPULAR_BOOKS_LIMIT);
+            List<BookCard> availableBooks = bookReadService.findAvailableCards(
+                    null, null, AVAILABLE_BOOKS_LIMIT).getContent();
+            long totalBooks = bookService.countBooksByStatus(Book.ExchangeStatus.AVAILABLE);
+
+            return new HomePageSnapshot(recentBooks, popularBooks, availableBooks, totalBooks, LocalDateTime.now());
+        });
+
+        logger.debug("Снимок главной страницы построен за {} мс", System.currentTimeMillis() - started);
+        return built;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
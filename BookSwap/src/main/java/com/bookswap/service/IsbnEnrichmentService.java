@@ -0,0 +1,282 @@
+package com.bookswap.service;
+
+import com.bookswap.event.BookListedEvent;
+import com.bookswap.event.BooksImportedEvent;
+import com.bookswap.event.CatalogChangedEvent;
+import com.bookswap.repository.BookRepository;
+import com.bookswap.search.BookSearchIndex;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновое дополнение книг данными из внешнего каталога по ISBN
+ * Размещение книги только ставит ISBN в очередь; воркеры с ограничением частоты
+ * запрашивают ExternalApiService, а найденные данные записываются в books пакетами JDBC.
+ * Заполняются только пустые поля: данные, введённые пользователем, не перезаписываются
+ */
+@Service
+public class IsbnEnrichmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IsbnEnrichmentService.class);
+
+    private static final String ENRICH_SQL =
+            "UPDATE books SET " +
+            "description = COALESCE(description, ?), " +
+            "publisher = COALESCE(publisher, ?), " +
+            "page_count = COALESCE(page_count, ?), " +
+            "publication_year = COALESCE(publication_year, ?), " +
+            "cover_image_url = COALESCE(cover_image_url, ?), " +
+            "updated_at = ? " +
+            "WHERE id = ?";
+
+    private final ExternalApiService externalApiService;
+    private final BookRepository bookRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final boolean enabled;
+    private final int workerCount;
+    private final int batchSize;
+    private final long minIntervalNanos;
+
+    // ISBN в очереди -> книги, ожидающие данных по нему; повторные ISBN не ставятся в очередь второй раз
+    private final Map<String, Set<Long>> pendingBooks = new ConcurrentHashMap<>();
+    private final BlockingQueue<String> isbnQueue;
+    private final BlockingQueue<Enrichment> results = new LinkedBlockingQueue<>();
+    private final ExecutorService workers;
+    private final Object rateLock = new Object();
+    private long nextRequestNanos = System.nanoTime();
+
+    private final AtomicInteger enrichedBooks = new AtomicInteger();
+
+    @Autowired
+    public IsbnEnrichmentService(ExternalApiService externalApiService,
+                                 BookRepository bookRepository,
+                                 BookSearchIndex bookSearchIndex,
+                                 ApplicationEventPublisher eventPublisher,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${isbn-enrichment.enabled:true}") boolean enabled,
+                                 @Value("${isbn-enrichment.workers:4}") int workerCount,
+                                 @Value("${isbn-enrichment.requests-per-second:5}") double requestsPerSecond,
+                                 @Value("${isbn-enrichment.batch-size:50}") int batchSize,
+                                 @Value("${isbn-enrichment.queue-capacity:10000}") int queueCapacity) {
+        this.externalApiService = externalApiService;
+        this.bookRepository = bookRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.workerCount = Math.max(1, workerCount);
+        this.batchSize = Math.max(1, batchSize);
+        this.minIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(requestsPerSecond, 0.001));
+        this.isbnQueue = new LinkedBlockingQueue<>(queueCapacity);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "isbn-enrichment-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWorkers() {
+        if (!enabled) {
+            logger.info("Дополнение книг по ISBN отключено");
+            return;
+        }
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::runWorker);
+        }
+        logger.info("Запущено воркеров дополнения книг по ISBN: {}", workerCount);
+    }
+
+    @TransactionalEventListener
+    public void onBookListed(BookListedEvent event) {
+        enqueue(event.getBookId(), event.getIsbn());
+    }
+
+    @TransactionalEventListener
+    public void onBooksImported(BooksImportedEvent event) {
+        event.getIsbns().forEach(this::enqueue);
+    }
+
+    /**
+     * Ставит книгу в очередь на дополнение; возвращается сразу
+     */
+    public void enqueue(Long bookId, String isbn) {
+        if (!enabled) {
+            return;
+        }
+
+        String normalizedIsbn = BookInfoCache.normalizeIsbn(isbn);
+        if (normalizedIsbn == null) {
+            logger.debug("Книга {} не поставлена в очередь дополнения: некорректный ISBN {}", bookId, isbn);
+            return;
+        }
+
+        boolean[] firstForIsbn = {false};
+        pendingBooks.compute(normalizedIsbn, (key, books) -> {
+            if (books == null) {
+                books = ConcurrentHashMap.newKeySet();
+                firstForIsbn[0] = true;
+            }
+            books.add(bookId);
+            return books;
+        });
+
+        if (firstForIsbn[0] && !isbnQueue.offer(normalizedIsbn)) {
+            pendingBooks.remove(normalizedIsbn);
+            logger.warn("Очередь дополнения по ISBN переполнена, ISBN {} пропущен", normalizedIsbn);
+        }
+    }
+
+    /**
+     * Текущее состояние конвейера: ISBN в очереди, готовые к записи результаты, дополненные книги
+     */
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "queuedIsbns", isbnQueue.size(),
+                "pendingWrites", results.size(),
+                "enrichedBooks", enrichedBooks.get(),
+                "workers", workerCount
+        );
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                String isbn = isbnQueue.take();
+                awaitRateLimit();
+
+                ExternalApiService.BookInfo bookInfo = null;
+                try {
+                    bookInfo = externalApiService.searchBookInfo(isbn);
+                } catch (RuntimeException e) {
+                    logger.warn("Ошибка при получении данных по ISBN {}: {}", isbn, e.getMessage());
+                }
+
+                // Книги, добавленные к ISBN во время запроса, тоже получают результат
+                Set<Long> bookIds = pendingBooks.remove(isbn);
+                if (bookInfo != null && bookIds != null) {
+                    for (Long bookId : bookIds) {
+                        results.add(new Enrichment(bookId, bookInfo));
+                    }
+                    if (results.size() >= batchSize) {
+                        flush();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Равномерно распределяет запросы к внешнему API: не чаще requests-per-second
+     */
+    private void awaitRateLimit() throws InterruptedException {
+        long waitNanos;
+        synchronized (rateLock) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextRequestNanos);
+            nextRequestNanos = slot + minIntervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Записывает накопленные результаты пакетами; также вызывается по расписанию,
+     * чтобы неполный пакет не ждал бесконечно
+     */
+    @Scheduled(fixedDelayString = "${isbn-enrichment.flush-interval-ms:2000}")
+    public synchronized void flush() {
+        List<Enrichment> batch = new ArrayList<>(batchSize);
+        while (results.drainTo(batch, batchSize) > 0) {
+            try {
+                writeBatch(batch);
+            } catch (DataAccessException e) {
+                logger.error("Ошибка при записи пакета дополнения книг ({} шт.)", batch.size(), e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Enrichment> batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(ENRICH_SQL, batch, batch.size(), (statement, enrichment) -> {
+                ExternalApiService.BookInfo info = enrichment.bookInfo;
+                statement.setString(1, info.getDescription());
+                statement.setString(2, truncate(info.getPublisher(), 100));
+                statement.setObject(3, info.getPageCount() != null && info.getPageCount() > 0 ? info.getPageCount() : null);
+                statement.setObject(4, info.getPublicationYear());
+                statement.setString(5, truncate(info.getCoverImageUrl(), 255));
+                statement.setTimestamp(6, now);
+                statement.setLong(7, enrichment.bookId);
+            });
+
+            // Поисковый индекс и снимок главной страницы обновляются после фиксации
+            List<Long> bookIds = batch.stream().map(enrichment -> enrichment.bookId).toList();
+            bookRepository.findAllById(bookIds).forEach(bookSearchIndex::indexAfterCommit);
+            bookIds.forEach(bookId -> eventPublisher.publishEvent(new CatalogChangedEvent(bookId)));
+        });
+
+        enrichedBooks.addAndGet(batch.size());
+        logger.debug("Записан пакет дополнения книг по ISBN: {} шт.", batch.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private static final class Enrichment {
+        private final Long bookId;
+        private final ExternalApiService.BookInfo bookInfo;
+
+        private Enrichment(Long bookId, ExternalApiService.BookInfo bookInfo) {
+            this.bookId = bookId;
+            this.bookInfo = bookInfo;
+        }
+    }
+}
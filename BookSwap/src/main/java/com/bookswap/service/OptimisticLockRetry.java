@@ -0,0 +1,72 @@
+package com.bookswap.service;
+
+import com.bookswap.exception.BookSwapException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Повтор операции при конфликте конкурентного доступа
+ * Повторяются конфликты версий (@Version), а также ожидание блокировки и взаимоблокировки: переходы
+ * обменов меняют несколько строк обменов и книг одной инструкцией, и встречные массовые переходы
+ * могут захватить их в разном порядке. Каждая попытка выполняется в собственной транзакции и заново
+ * читает данные; между попытками выдерживается растущая пауза со случайным разбросом.
+ * Внутри уже открытой транзакции повтор невозможен, и операция выполняется один раз
+ */
+@Component
+public class OptimisticLockRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticLockRetry.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    @Autowired
+    public OptimisticLockRetry(PlatformTransactionManager transactionManager,
+                               @Value("${exchange.optimistic-lock.max-attempts:3}") int maxAttempts,
+                               @Value("${exchange.optimistic-lock.backoff-ms:25}") long backoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(0, backoffMillis);
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    logger.warn("Конфликт при выполнении '{}' после {} попыток: {}", operation, attempt, e.getMessage());
+                    throw BookSwapException.concurrentModification();
+                }
+                logger.debug("Конфликт при выполнении '{}', попытка {} из {}", operation, attempt, maxAttempts);
+                pause(attempt);
+            }
+        }
+    }
+
+    private void pause(int attempt) {
+        long delay = backoffMillis * attempt + ThreadLocalRandom.current().nextLong(backoffMillis + 1);
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw BookSwapException.concurrentModification();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.bookswap.service;
+
+import com.bookswap.dto.CachedPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кэш учётных данных пользователей по имени пользователя
+ * Ограничен по размеру (LRU) и по времени жизни записи; отсутствующие пользователи не кэшируются.
+ * Изменения пользователя сбрасывают запись сразу и повторно после фиксации транзакции,
+ * чтобы параллельное чтение не вернуло в кэш данные до изменения
+ */
+@Component
+public class PrincipalCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // LinkedHashMap в порядке доступа: самая давно использованная запись вытесняется первой
+    private final LinkedHashMap<String, Entry> entries;
+
+    @Autowired
+    public PrincipalCache(@Value("${security.principal-cache.max-size:10000}") int maxSize,
+                          @Value("${security.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PrincipalCache.this.maxSize;
+            }
+        };
+    }
+
+    public Optional<CachedPrincipal> get(String username) {
+        synchronized (entries) {
+            Entry entry = entries.get(username);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (System.nanoTime() - entry.cachedAtNanos > ttlNanos) {
+                entries.remove(username);
+                return Optional.empty();
+            }
+            return Optional.of(entry.principal);
+        }
+    }
+
+    public void put(CachedPrincipal principal) {
+        synchronized (entries) {
+            entries.put(principal.getUsername(), new Entry(principal, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Сбрасывает записи пользователя; по идентификатору, так как имя пользователя может меняться
+     */
+    public void invalidate(Long userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(Long userId) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.principal.getId().equals(userId));
+        }
+    }
+
+    private static final class Entry {
+        private final CachedPrincipal principal;
+        private final long cachedAtNanos;
+
+        private Entry(CachedPrincipal principal, long cachedAtNanos) {
+            this.principal = principal;
+            this.cachedAtNanos = cachedAtNanos;
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package com.bookswap.service;
 
+import com.bookswap.config.MetricsConfig;
 import com.bookswap.entity.Book;
 import com.bookswap.entity.Review;
 import com.bookswap.entity.User;
+import com.bookswap.event.CatalogChangedEvent;
 import com.bookswap.exception.BookSwapException;
 import com.bookswap.repository.BookRepository;
 import com.bookswap.repository.ReviewRepository;
-import com.bookswap.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -25,21 +28,25 @@ import java.util.List;
  */
 @Service
 @Transactional
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class ReviewService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReviewService.class);
 
     private final ReviewRepository reviewRepository;
     private final BookRepository bookRepository;
-    private final UserRepository userRepository;
+    private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public ReviewService(ReviewRepository reviewRepository,
                         BookRepository bookRepository,
-                        UserRepository userRepository) {
+                        UserService userService,
+                        ApplicationEventPublisher eventPublisher) {
         this.reviewRepository = reviewRepository;
         this.bookRepository = bookRepository;
-        this.userRepository = userRepository;
+        this.userService = userService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -55,11 +62,11 @@ public class ReviewService {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> BookSwapException.bookNotFound(bookId));
 
-        User user = userRepository.findByUsername(username)
+        User user = userService.findReferenceByUsername(username)
                 .orElseThrow(() -> BookSwapException.userNotFound(null));
 
         // Проверяем, что пользователь не оставляет отзыв на свою книгу
-        if (book.getOwner().equals(user)) {
+        if (book.getOwner().getId().equals(user.getId())) {
             throw new BookSwapException("REVIEW_OWN_BOOK", 
                 "Cannot review your own book", 
                 org.springframework.http.HttpStatus.BAD_REQUEST);
@@ -73,6 +80,10 @@ public class ReviewService {
         review.setContent(comment);
 
         Review savedReview = reviewRepository.save(review);
+        if (Boolean.TRUE.equals(savedReview.getApproved())) {
+            bookRepository.adjustRatingAggregates(bookId, rating, 1);
+            eventPublisher.publishEvent(new CatalogChangedEvent(bookId));
+        }
         logger.info("Review created with ID: {}", savedReview.getId());
         return savedReview;
     }
@@ -86,7 +97,7 @@ public class ReviewService {
         // Валидация входных данных
         validateReviewData(rating, comment);
 
-        Review review = reviewRepository.findById(reviewId)
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
                 .orElseThrow(() -> new BookSwapException("REVIEW_NOT_FOUND", 
                     "Review not found", 
                     org.springframework.http.HttpStatus.NOT_FOUND));
@@ -97,10 +108,17 @@ public class ReviewService {
         }
 
         // Обновляем данные
+        int previousRating = review.getRating();
         review.setRating(rating);
         review.setContent(comment);
 
         Review savedReview = reviewRepository.save(review);
+
+        // Одобренный отзыв уже учтён в агрегатах книги - переносим только разницу оценок
+        if (Boolean.TRUE.equals(savedReview.getApproved()) && previousRating != rating) {
+            bookRepository.adjustRatingAggregates(savedReview.getBook().getId(), rating - previousRating, 0);
+            eventPublisher.publishEvent(new CatalogChangedEvent(savedReview.getBook().getId()));
+        }
         logger.info("Review {} updated", reviewId);
         return savedReview;
     }
@@ -111,7 +129,7 @@ public class ReviewService {
     public void deleteReview(Long reviewId, String username) {
         logger.info("Deleting review {} by user {}", reviewId, username);
 
-        Review review = reviewRepository.findById(reviewId)
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
                 .orElseThrow(() -> new BookSwapException("REVIEW_NOT_FOUND", 
                     "Review not found", 
                     org.springframework.http.HttpStatus.NOT_FOUND));
@@ -122,9 +140,59 @@ public class ReviewService {
         }
 
         reviewRepository.delete(review);
+        if (Boolean.TRUE.equals(review.getApproved())) {
+            bookRepository.adjustRatingAggregates(review.getBook().getId(), -review.getRating(), -1);
+            eventPublisher.publishEvent(new CatalogChangedEvent(review.getBook().getId()));
+        }
         logger.info("Review {} deleted", reviewId);
     }
 
+    /**
+     * Модерация отзыва: одобрение или снятие одобрения
+     * В агрегатах рейтинга книги учитываются только одобренные отзывы
+     */
+    public void moderateReview(Long reviewId, boolean approved) {
+        logger.info("Moderating review {}: approved={}", reviewId, approved);
+
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
+                .orElseThrow(() -> new BookSwapException("REVIEW_NOT_FOUND", 
+                    "Review not found", 
+                    org.springframework.http.HttpStatus.NOT_FOUND));
+
+        // Строка отзыва заблокирована, условный UPDATE лишь пропускает повторную модерацию
+        if (reviewRepository.updateApproval(reviewId, approved) == 0) {
+            logger.debug("Review {} already has approved={}", reviewId, approved);
+            return;
+        }
+
+        bookRepository.adjustRatingAggregates(review.getBook().getId(),
+                approved ? review.getRating() : -review.getRating(),
+                approved ? 1 : -1);
+        eventPublisher.publishEvent(new CatalogChangedEvent(review.getBook().getId()));
+        logger.info("Review {} moderation status changed", reviewId);
+    }
+
+    /**
+     * Средний рейтинг книги по одобренным отзывам (из денормализованных агрегатов)
+     */
+    @Transactional(readOnly = true)
+    public double getAverageRating(Long bookId) {
+        return bookRepository.findById(bookId)
+                .map(Book::getAverageRating)
+                .orElseThrow(() -> BookSwapException.bookNotFound(bookId));
+    }
+
+    /**
+     * Пересчёт агрегатов рейтинга всех книг из таблицы отзывов
+     * Существующие базы заполняются миграцией V5; пересчёт нужен после массовой загрузки отзывов в обход сервиса
+     */
+    public int recalculateRatingAggregates() {
+        logger.info("Recalculating rating aggregates for all books");
+        int updated = bookRepository.recalculateRatingAggregates();
+        logger.info("Rating aggregates recalculated for {} books", updated);
+        return updated;
+    }
+
     /**
      * Получение отзывов для книги
      */
@@ -141,7 +209,7 @@ public class ReviewService {
      */
     @Transactional(readOnly = true)
     public List<Review> getUserReviews(String username) {
-        User user = userRepository.findByUsername(username)
+        User user = userService.findReferenceByUsername(username)
                 .orElseThrow(() -> BookSwapException.userNotFound(null));
 
         return reviewRepository.findByUser(user);
@@ -1,7 +1,11 @@
 package com.bookswap.service;
 
+import com.bookswap.config.MetricsConfig;
+import com.bookswap.dto.CachedPrincipal;
 import com.bookswap.entity.User;
+import com.bookswap.repository.ExchangeInboxRepository;
 import com.bookswap.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,17 +24,23 @@ import java.util.Optional;
 
 @Service
 @Transactional
+@Timed(value = MetricsConfig.SERVICE_TIMER, histogram = true)
 public class UserService implements UserDetailsService {
     
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     
     private final UserRepository userRepository;
+    private final ExchangeInboxRepository inboxRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
     
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, ExchangeInboxRepository inboxRepository,
+                       PasswordEncoder passwordEncoder, PrincipalCache principalCache) {
         this.userRepository = userRepository;
+        this.inboxRepository = inboxRepository;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
     }
     
     // CRUD операции
@@ -63,6 +73,30 @@ public class UserService implements UserDetailsService {
         return userRepository.findByUsername(username);
     }
     
+    /**
+     * Учётные данные пользователя из кэша; при промахе загружаются из БД
+     */
+    @Transactional(readOnly = true)
+    public Optional<CachedPrincipal> findPrincipal(String username) {
+        Optional<CachedPrincipal> cached = principalCache.get(username);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        
+        Optional<CachedPrincipal> loaded = userRepository.findByUsername(username).map(CachedPrincipal::of);
+        loaded.ifPresent(principalCache::put);
+        return loaded;
+    }
+    
+    /**
+     * Ссылка на пользователя для связей сущностей без запроса к БД
+     * Поля ссылки загружаются только при обращении к ним внутри транзакции
+     */
+    @Transactional(readOnly = true)
+    public Optional<User> findReferenceByUsername(String username) {
+        return findPrincipal(username).map(principal -> userRepository.getReferenceById(principal.getId()));
+    }
+    
     @Transactional(readOnly = true)
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
@@ -86,6 +120,9 @@ public class UserService implements UserDetailsService {
         }
         
         User updatedUser = userRepository.save(user);
+        inboxRepository.updateCounterpartName(updatedUser.getId(),
+                updatedUser.getFirstName() + " " + updatedUser.getLastName());
+        principalCache.invalidate(updatedUser.getId());
         logger.info("Пользователь успешно обновлен");
         return updatedUser;
     }
@@ -98,6 +135,7 @@ public class UserService implements UserDetailsService {
         }
         
         userRepository.deleteById(id);
+        principalCache.invalidate(id);
         logger.info("Пользователь успешно удален");
     }
     
@@ -127,6 +165,7 @@ public class UserService implements UserDetailsService {
         
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        principalCache.invalidate(userId);
         
         logger.info("Пароль успешно изменен для пользователя: {}", user.getUsername());
         return true;
@@ -140,6 +179,7 @@ public class UserService implements UserDetailsService {
             User user = userOpt.get();
             user.setEnabled(true);
             userRepository.save(user);
+            principalCache.invalidate(userId);
             logger.info("Пользователь активирован: {}", user.getUsername());
         }
     }
@@ -152,6 +192,7 @@ public class UserService implements UserDetailsService {
             User user = userOpt.get();
             user.setEnabled(false);
             userRepository.save(user);
+            principalCache.invalidate(userId);
             logger.info("Пользователь деактивирован: {}", user.getUsername());
         }
     }
@@ -198,7 +239,8 @@ public class UserService implements UserDetailsService {
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         logger.debug("Загрузка пользователя по имени: {}", username);
         
-        return userRepository.findByUsername(username)
+        return findPrincipal(username)
+                .map(CachedPrincipal::toUserDetails)
                 .orElseThrow(() -> {
                     logger.error("Пользователь не найден: {}", username);
                     return new UsernameNotFoundException("Пользователь не найден: " + username);
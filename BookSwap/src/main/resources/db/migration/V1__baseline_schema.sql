@@ -0,0 +1,134 @@
+-- Исходная схема BookSwap: таблицы в том виде, в каком их создавал Hibernate (ddl-auto: update)
+-- до перехода на миграции. Существующие базы без истории миграций принимаются как версия 1
+-- (spring.flyway.baseline-version), поэтому всё, что добавлено позже, живёт в V2 и далее
+
+CREATE TABLE users (
+    id                         BIGSERIAL PRIMARY KEY,
+    username                   VARCHAR(50)  NOT NULL UNIQUE,
+    email                      VARCHAR(255) NOT NULL UNIQUE,
+    password                   VARCHAR(255) NOT NULL,
+    first_name                 VARCHAR(100) NOT NULL,
+    last_name                  VARCHAR(100) NOT NULL,
+    phone_number               VARCHAR(15),
+    city                       VARCHAR(100),
+    bio                        TEXT,
+    profile_image_url          VARCHAR(255),
+    role                       VARCHAR(255) NOT NULL CHECK (role IN ('USER', 'ADMIN', 'MODERATOR')),
+    is_enabled                 BOOLEAN      NOT NULL,
+    is_account_non_expired     BOOLEAN      NOT NULL,
+    is_account_non_locked      BOOLEAN      NOT NULL,
+    is_credentials_non_expired BOOLEAN      NOT NULL,
+    created_at                 TIMESTAMP(6) NOT NULL,
+    updated_at                 TIMESTAMP(6)
+);
+
+CREATE TABLE authors (
+    id          BIGSERIAL PRIMARY KEY,
+    first_name  VARCHAR(100) NOT NULL,
+    last_name   VARCHAR(100) NOT NULL,
+    middle_name VARCHAR(100),
+    biography   TEXT,
+    birth_date  DATE,
+    death_date  DATE,
+    nationality VARCHAR(100),
+    photo_url   VARCHAR(255),
+    created_at  TIMESTAMP(6) NOT NULL,
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE genres (
+    id          BIGSERIAL PRIMARY KEY,
+    name        VARCHAR(100) NOT NULL UNIQUE,
+    description TEXT,
+    created_at  TIMESTAMP(6) NOT NULL,
+    updated_at  TIMESTAMP(6)
+);
+
+CREATE TABLE book_conditions (
+    id                 BIGSERIAL PRIMARY KEY,
+    rating             INTEGER      NOT NULL CHECK (rating >= 1 AND rating <= 5),
+    description        TEXT,
+    has_damage         BOOLEAN      NOT NULL,
+    damage_description TEXT,
+    has_notes          BOOLEAN      NOT NULL,
+    has_highlighting   BOOLEAN      NOT NULL,
+    is_complete        BOOLEAN      NOT NULL,
+    cover_condition    VARCHAR(255) CHECK (cover_condition IN ('EXCELLENT', 'GOOD', 'FAIR', 'POOR')),
+    pages_condition    VARCHAR(255) CHECK (pages_condition IN ('EXCELLENT', 'GOOD', 'FAIR', 'POOR')),
+    created_at         TIMESTAMP(6) NOT NULL,
+    updated_at         TIMESTAMP(6)
+);
+
+CREATE TABLE books (
+    id               BIGSERIAL PRIMARY KEY,
+    title            VARCHAR(255)     NOT NULL,
+    isbn             VARCHAR(20) UNIQUE,
+    description      TEXT,
+    publication_year INTEGER,
+    publisher        VARCHAR(100),
+    page_count       INTEGER,
+    language         VARCHAR(50),
+    cover_image_url  VARCHAR(255),
+    estimated_price  NUMERIC(10, 2),
+    exchange_status  VARCHAR(255)     NOT NULL
+        CHECK (exchange_status IN ('AVAILABLE', 'RESERVED', 'EXCHANGED', 'NOT_AVAILABLE')),
+    owner_id         BIGINT           NOT NULL,
+    condition_id     BIGINT UNIQUE,
+    created_at       TIMESTAMP(6)     NOT NULL,
+    updated_at       TIMESTAMP(6),
+    CONSTRAINT fk_books_owner FOREIGN KEY (owner_id) REFERENCES users (id),
+    CONSTRAINT fk_books_condition FOREIGN KEY (condition_id) REFERENCES book_conditions (id)
+);
+
+CREATE TABLE book_authors (
+    book_id   BIGINT NOT NULL,
+    author_id BIGINT NOT NULL,
+    PRIMARY KEY (author_id, book_id),
+    CONSTRAINT fk_book_authors_book FOREIGN KEY (book_id) REFERENCES books (id),
+    CONSTRAINT fk_book_authors_author FOREIGN KEY (author_id) REFERENCES authors (id)
+);
+
+CREATE TABLE book_genres (
+    book_id  BIGINT NOT NULL,
+    genre_id BIGINT NOT NULL,
+    PRIMARY KEY (book_id, genre_id),
+    CONSTRAINT fk_book_genres_book FOREIGN KEY (book_id) REFERENCES books (id),
+    CONSTRAINT fk_book_genres_genre FOREIGN KEY (genre_id) REFERENCES genres (id)
+);
+
+CREATE TABLE reviews (
+    id          BIGSERIAL PRIMARY KEY,
+    rating      INTEGER      NOT NULL CHECK (rating >= 1 AND rating <= 5),
+    title       VARCHAR(100),
+    content     TEXT,
+    is_approved BOOLEAN      NOT NULL,
+    book_id     BIGINT       NOT NULL,
+    user_id     BIGINT       NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL,
+    updated_at  TIMESTAMP(6),
+    CONSTRAINT fk_reviews_book FOREIGN KEY (book_id) REFERENCES books (id),
+    CONSTRAINT fk_reviews_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE book_exchanges (
+    id               BIGSERIAL PRIMARY KEY,
+    book_id          BIGINT       NOT NULL,
+    owner_id         BIGINT       NOT NULL,
+    requester_id     BIGINT       NOT NULL,
+    status           VARCHAR(255) NOT NULL
+        CHECK (status IN ('PENDING', 'ACCEPTED', 'REJECTED', 'COMPLETED', 'CANCELLED')),
+    exchange_type    VARCHAR(255) NOT NULL
+        CHECK (exchange_type IN ('BOOK_FOR_BOOK', 'BOOK_FOR_MONEY', 'FREE_GIFT')),
+    message          TEXT,
+    offered_price    NUMERIC(10, 2),
+    owner_response   TEXT,
+    exchange_date    TIMESTAMP(6),
+    meeting_location VARCHAR(500),
+    meeting_date     TIMESTAMP(6),
+    is_completed     BOOLEAN      NOT NULL,
+    created_at       TIMESTAMP(6) NOT NULL,
+    updated_at       TIMESTAMP(6),
+    CONSTRAINT fk_book_exchanges_book FOREIGN KEY (book_id) REFERENCES books (id),
+    CONSTRAINT fk_book_exchanges_owner FOREIGN KEY (owner_id) REFERENCES users (id),
+    CONSTRAINT fk_book_exchanges_requester FOREIGN KEY (requester_id) REFERENCES users (id)
+);
@@ -0,0 +1,52 @@
+-- Колонки и таблицы, появившиеся после исходной схемы V1
+-- База, созданная через ddl-auto: update на промежуточной версии приложения, могла уже получить
+-- часть из них, поэтому каждое изменение выполняется только при отсутствии объекта
+
+-- books: агрегаты одобренных отзывов, которые поддерживает ReviewService
+ALTER TABLE books ADD COLUMN IF NOT EXISTS rating_sum     BIGINT           DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN IF NOT EXISTS rating_count   INTEGER          DEFAULT 0 NOT NULL;
+ALTER TABLE books ADD COLUMN IF NOT EXISTS average_rating DOUBLE PRECISION DEFAULT 0 NOT NULL;
+
+-- book_exchanges: версия для оптимистичной блокировки
+ALTER TABLE book_exchanges ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- Кэш метаданных книг по ISBN (ExternalApiService)
+CREATE TABLE IF NOT EXISTS book_info_cache (
+    isbn            VARCHAR(13) PRIMARY KEY,
+    found           BOOLEAN      NOT NULL,
+    title           VARCHAR(500),
+    authors         VARCHAR(1000),
+    description     TEXT,
+    publisher       VARCHAR(255),
+    published_date  VARCHAR(20),
+    page_count      INTEGER,
+    language        VARCHAR(20),
+    categories      VARCHAR(500),
+    cover_image_url VARCHAR(1000),
+    fetched_at      TIMESTAMP(6) NOT NULL,
+    expires_at      TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_book_info_cache_expires ON book_info_cache (expires_at);
+
+-- Проекция "моих обменов": по строке на участника обмена
+-- Первичный ключ начинается с exchange_id: по нему обновляются обе строки обмена
+CREATE TABLE IF NOT EXISTS exchange_inbox (
+    user_id          BIGINT       NOT NULL,
+    exchange_id      BIGINT       NOT NULL,
+    role             VARCHAR(20)  NOT NULL CHECK (role IN ('OWNER', 'REQUESTER')),
+    book_id          BIGINT       NOT NULL,
+    book_title       VARCHAR(255) NOT NULL,
+    counterpart_id   BIGINT       NOT NULL,
+    counterpart_name VARCHAR(255) NOT NULL,
+    status           VARCHAR(20)  NOT NULL
+        CHECK (status IN ('PENDING', 'ACCEPTED', 'REJECTED', 'COMPLETED', 'CANCELLED')),
+    exchange_type    VARCHAR(20)  NOT NULL
+        CHECK (exchange_type IN ('BOOK_FOR_BOOK', 'BOOK_FOR_MONEY', 'FREE_GIFT')),
+    created_at       TIMESTAMP(6) NOT NULL,
+    updated_at       TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (exchange_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_exchange_inbox_user_updated
+    ON exchange_inbox (user_id, updated_at DESC, exchange_id DESC);
@@ -0,0 +1,67 @@
+-- Индексы под запросы репозиториев
+-- Создаются CONCURRENTLY, чтобы миграция не блокировала запись в заполненные таблицы;
+-- поэтому скрипт выполняется вне транзакции (V3__query_indexes.sql.conf)
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- books: книги владельца (findByOwner, findActiveUsersWithBooks, SIZE(ownedBooks))
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_books_owner ON books (owner_id);
+
+-- books: книги по статусу в порядке добавления (keyset-пагинация, выборки по статусу)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_books_status_created ON books (exchange_status, created_at, id);
+
+-- books: keyset-лента доступных книг; частичный индекс меньше idx_books_status_created и не содержит
+-- зарезервированных и обменянных книг
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_books_available_created
+    ON books (created_at DESC, id DESC) WHERE exchange_status = 'AVAILABLE';
+
+-- books: самые популярные книги (findTopRated, findTopRatedCards) только среди книг с отзывами
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_books_top_rated
+    ON books (average_rating DESC, rating_count DESC, id DESC) WHERE rating_count > 0;
+DROP INDEX CONCURRENTLY IF EXISTS idx_books_average_rating;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_books_language ON books (language);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_books_publication_year ON books (publication_year);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_books_estimated_price ON books (estimated_price);
+
+-- books: подстрочный поиск по названию без учёта регистра (searchBooks, findByTitleContainingIgnoreCase)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_books_title_trgm ON books USING gin (upper(title) gin_trgm_ops);
+
+-- Связующие таблицы: первичные ключи покрывают только первую колонку
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_authors_book ON book_authors (book_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_genres_genre ON book_genres (genre_id);
+
+-- authors: поиск по фамилии (searchBooks, findByLastNameContainingIgnoreCase)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_authors_last_name_trgm
+    ON authors USING gin (upper(last_name) gin_trgm_ops);
+-- authors: кэшируемый поиск по имени и фамилии при сохранении книги
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_authors_name ON authors (last_name, first_name);
+
+-- users: поиск по имени (findByFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_first_name_trgm
+    ON users USING gin (upper(first_name) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_last_name_trgm
+    ON users USING gin (upper(last_name) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_created_at ON users (created_at);
+
+-- book_exchanges: обмены по статусу и возрасту (отмена просроченных, ExchangeExpiryService)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_exchanges_status_created ON book_exchanges (status, created_at);
+-- book_exchanges: входящие запросы и переходы владельца (findPendingExchangesForOwner, *ForOwner)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_exchanges_owner_status ON book_exchanges (owner_id, status);
+-- book_exchanges: исходящие запросы (findByRequester)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_exchanges_requester ON book_exchanges (requester_id, status);
+-- book_exchanges: запросы на книгу (rejectOtherPending, releaseWithoutOpenExchanges, findChangedForBooks, отмена просроченных)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_exchanges_book_status ON book_exchanges (book_id, status);
+-- book_exchanges: загрузка открытых запросов книга на книгу в граф подбора обменов
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_exchanges_open_swaps
+    ON book_exchanges (id) WHERE status = 'PENDING' AND exchange_type = 'BOOK_FOR_BOOK';
+
+-- reviews: одобренные отзывы книги (findByBookAndApprovedTrue, пересчёт агрегатов рейтинга)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_reviews_book_approved ON reviews (book_id, is_approved);
+-- reviews: отзывы пользователя и проверка повторного отзыва (findByUser, findByUserAndBook)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_reviews_user_book ON reviews (user_id, book_id);
+-- reviews: очередь модерации (findByApprovedFalse)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_reviews_pending ON reviews (created_at) WHERE is_approved = false;
+
+-- exchange_inbox: поиск строк обмена покрывается первичным ключом (exchange_id, user_id)
+DROP INDEX CONCURRENTLY IF EXISTS idx_exchange_inbox_exchange;
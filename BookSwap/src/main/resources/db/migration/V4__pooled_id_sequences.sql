@@ -0,0 +1,25 @@
+-- Идентификаторы сущностей выдаются последовательностями с шагом 50 (allocationSize в @SequenceGenerator):
+-- Hibernate резервирует блок значений одним nextval и может отправлять INSERT пакетами.
+-- Базы, созданные через ddl-auto до перехода на Flyway, хранят ID в identity-столбцах; они
+-- переводятся на обычную последовательность <таблица>_id_seq, как у BIGSERIAL из V1.
+-- Значение по умолчанию у столбца остаётся, поэтому вставки из SQL без ID продолжают работать
+
+DO $$
+DECLARE
+    entity_table TEXT;
+    sequence_name TEXT;
+BEGIN
+    FOREACH entity_table IN ARRAY ARRAY['users', 'authors', 'genres', 'book_conditions', 'books',
+                                        'reviews', 'book_exchanges']
+    LOOP
+        sequence_name := entity_table || '_id_seq';
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', entity_table);
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I AS BIGINT OWNED BY %I.id', sequence_name, entity_table);
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id SET DEFAULT nextval(%L)', entity_table, sequence_name);
+        EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', sequence_name);
+        -- pooled-lo: полученное значение - начало блока, поэтому следующий nextval должен вернуть MAX(id) + 1
+        EXECUTE format('SELECT setval(%L, COALESCE((SELECT MAX(id) FROM %I), 0) + 1, false)',
+                       sequence_name, entity_table);
+    END LOOP;
+END
+$$;
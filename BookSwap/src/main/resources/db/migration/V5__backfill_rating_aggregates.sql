@@ -0,0 +1,13 @@
+-- Первичное заполнение агрегатов рейтинга по уже существующим одобренным отзывам
+-- Дальше агрегаты поддерживает ReviewService при создании, изменении, удалении и модерации отзывов;
+-- книги без одобренных отзывов сохраняют нули по умолчанию из V2
+
+UPDATE books b
+SET rating_sum     = r.rating_sum,
+    rating_count   = r.rating_count,
+    average_rating = r.average_rating
+FROM (SELECT book_id, SUM(rating) AS rating_sum, COUNT(*) AS rating_count, AVG(rating) AS average_rating
+      FROM reviews
+      WHERE is_approved = true
+      GROUP BY book_id) r
+WHERE r.book_id = b.id;
@@ -0,0 +1,18 @@
+-- Первичное заполнение проекции "моих обменов" (exchange_inbox) по уже существующим обменам:
+-- по строке для владельца и для запросившего. Новые обмены и смены статуса поддерживает ExchangeService.
+-- Строки, которые уже есть, не меняются
+
+INSERT INTO exchange_inbox (user_id, exchange_id, role, book_id, book_title,
+                            counterpart_id, counterpart_name, status, exchange_type, created_at, updated_at)
+SELECT e.owner_id, e.id, 'OWNER', b.id, b.title, r.id, r.first_name || ' ' || r.last_name,
+       e.status, e.exchange_type, e.created_at, COALESCE(e.updated_at, e.created_at)
+FROM book_exchanges e
+         JOIN books b ON b.id = e.book_id
+         JOIN users r ON r.id = e.requester_id
+UNION ALL
+SELECT e.requester_id, e.id, 'REQUESTER', b.id, b.title, o.id, o.first_name || ' ' || o.last_name,
+       e.status, e.exchange_type, e.created_at, COALESCE(e.updated_at, e.created_at)
+FROM book_exchanges e
+         JOIN books b ON b.id = e.book_id
+         JOIN users o ON o.id = e.owner_id
+ON CONFLICT (user_id, exchange_id) DO NOTHING;
@@ -0,0 +1,9 @@
+-- Момент одобрения обмена: срок ответа для ACCEPTED отсчитывается от него, а не от создания запроса
+-- Для уже одобренных и завершённых обменов момент одобрения неизвестен; ближайшая оценка -
+-- время последнего изменения, для ACCEPTED это и есть одобрение
+
+ALTER TABLE book_exchanges ADD COLUMN IF NOT EXISTS accepted_at TIMESTAMP(6);
+
+UPDATE book_exchanges
+SET accepted_at = COALESCE(updated_at, created_at)
+WHERE status IN ('ACCEPTED', 'COMPLETED') AND accepted_at IS NULL;
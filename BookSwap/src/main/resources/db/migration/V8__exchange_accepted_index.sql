@@ -0,0 +1,4 @@
+-- book_exchanges: одобренные обмены по моменту одобрения (отмена просроченных, ExchangeExpiryService)
+-- Создаётся CONCURRENTLY, поэтому скрипт выполняется вне транзакции (V8__exchange_accepted_index.sql.conf)
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_book_exchanges_status_accepted ON book_exchanges (status, accepted_at);
@@ -0,0 +1,6 @@
+-- Назначение idx_book_exchanges_book_status в самой схеме. Комментарий к индексу в V3 ссылается на
+-- удалённый findChangedForBooks, но V3 уже применён: правка файла изменила бы его контрольную сумму
+-- и остановила бы миграцию существующих баз
+
+COMMENT ON INDEX idx_book_exchanges_book_status IS
+    'Запросы на книгу: rejectOtherPending, releaseWithoutOpenExchanges, отмена просроченных (ExchangeExpiryService)';
@@ -0,0 +1,119 @@
+package com.bookswap;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Основа интеграционных тестов: приложение без веб-сервера над встроенным PostgreSQL
+ * База запускается один раз на JVM и получает схему миграциями Flyway; контекст приложения
+ * кэшируется между тестовыми классами. Тесты создают собственных пользователей и книги
+ * с уникальными именами и не зависят от данных других тестов
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.jpa.show-sql=false",
+        "spring.devtools.restart.enabled=false",
+        "logging.file.name=target/test.log",
+        "logging.level.com.bookswap=INFO",
+        "logging.level.org.springframework.security=INFO",
+        "logging.level.org.hibernate.SQL=INFO",
+        "spring.jpa.properties.hibernate.generate_statistics=false",
+        // Тесты не должны обращаться к внешним API
+        "isbn-enrichment.enabled=false",
+        "external-api.currency.preload-bases=",
+        // Фоновые задания не должны менять данные тестов
+        "exchange.expiry.enabled=false"
+})
+public abstract class PostgresIntegrationTest {
+
+    private static final EmbeddedPostgres POSTGRES = startPostgres();
+    private static final AtomicInteger NAMES = new AtomicInteger();
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    // Каталог базы временный
+                }
+            }));
+            return postgres;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Уникальное имя пользователя с заданным префиксом
+     */
+    protected static String uniqueName(String prefix) {
+        return prefix + "_" + NAMES.incrementAndGet();
+    }
+
+    protected long createUser(String username) {
+        return jdbcTemplate.queryForObject("INSERT INTO users (username, email, password, first_name, last_name, role, " +
+                "is_enabled, is_account_non_expired, is_account_non_locked, is_credentials_non_expired, created_at) " +
+                "VALUES (?, ?, 'password', 'Тест', 'Пользователь', 'USER', true, true, true, true, now()) RETURNING id",
+                Long.class, username, username + "@bookswap.test");
+    }
+
+    protected long createBook(long ownerId, String title) {
+        return jdbcTemplate.queryForObject("INSERT INTO books (title, language, exchange_status, owner_id, created_at) " +
+                "VALUES (?, 'Русский', 'AVAILABLE', ?, now()) RETURNING id", Long.class, title, ownerId);
+    }
+
+    /**
+     * Запускает задачи одновременно и возвращает их непустые результаты
+     */
+    protected static <T> List<T> race(ExecutorService executor, List<Callable<T>> tasks) throws Exception {
+        CountDownLatch ready = new CountDownLatch(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(() -> {
+                ready.countDown();
+                start.await();
+                return task.call();
+            }));
+        }
+        assertTrue(ready.await(10, TimeUnit.SECONDS));
+        start.countDown();
+
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            T result = future.get(30, TimeUnit.SECONDS);
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,121 @@
+package com.bookswap.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Открытая адресация с удалением сдвигом: записи кластера, в том числе перешедшего через конец
+ * таблицы, остаются достижимыми после удаления и повторной вставки
+ */
+class LongIntHashMapTest {
+
+    // Ёмкость таблицы для малого ожидаемого размера; порог расширения - 9 записей
+    private static final int CAPACITY = 16;
+    private static final int MASK = CAPACITY - 1;
+
+    @Test
+    void putGetReplaceRemove() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        assertEquals(LongIntHashMap.MISSING, map.get(42));
+
+        map.put(42, 1);
+        map.put(-7, 2);
+        map.put(42, 3);
+        assertEquals(2, map.size());
+        assertEquals(3, map.get(42));
+        assertEquals(2, map.get(-7));
+
+        assertEquals(3, map.remove(42));
+        assertEquals(LongIntHashMap.MISSING, map.remove(42));
+        assertEquals(LongIntHashMap.MISSING, map.get(42));
+        assertEquals(1, map.size());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(LongIntHashMap.MISSING, map.get(-7));
+        map.put(-7, 5);
+        assertEquals(5, map.get(-7));
+    }
+
+    @Test
+    void deleteAndReinsertAcrossWrappedCluster() {
+        // Три ключа с исходной позицией в последнем слоте и один с нулевой: кластер 15, 0, 1, 2
+        List<Long> lastSlot = keysWithHome(MASK, 3);
+        long firstSlot = keysWithHome(0, 1).get(0);
+        List<Long> cluster = new ArrayList<>(lastSlot);
+        cluster.add(firstSlot);
+
+        for (long removed : cluster) {
+            LongIntHashMap map = new LongIntHashMap(1);
+            for (int i = 0; i < cluster.size(); i++) {
+                map.put(cluster.get(i), i);
+            }
+
+            // Удаление сдвигает хвост кластера назад через границу таблицы
+            assertEquals(cluster.indexOf(removed), map.remove(removed));
+            assertEquals(LongIntHashMap.MISSING, map.get(removed));
+            for (int i = 0; i < cluster.size(); i++) {
+                if (cluster.get(i) != removed) {
+                    assertEquals(i, map.get(cluster.get(i)), "ключ " + cluster.get(i) + " после удаления " + removed);
+                }
+            }
+
+            map.put(removed, 100);
+            assertEquals(cluster.size(), map.size());
+            assertEquals(100, map.get(removed));
+            for (int i = 0; i < cluster.size(); i++) {
+                if (cluster.get(i) != removed) {
+                    assertEquals(i, map.get(cluster.get(i)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        // Узкий набор ключей с двумя исходными позициями по краям таблицы даёт длинные кластеры
+        List<Long> keys = new ArrayList<>(keysWithHome(MASK, 6));
+        keys.addAll(keysWithHome(0, 6));
+        for (long key = 1; key <= 40; key++) {
+            keys.add(key);
+        }
+
+        Random random = new Random(16);
+        LongIntHashMap map = new LongIntHashMap(1);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            long key = keys.get(random.nextInt(keys.size()));
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                map.put(key, step);
+                expected.put(key, step);
+            } else if (operation == 1) {
+                assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.remove(key));
+                expected.remove(key);
+            } else {
+                assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.get(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (long key : keys) {
+            assertEquals(expected.getOrDefault(key, LongIntHashMap.MISSING), map.get(key));
+        }
+    }
+
+    private static List<Long> keysWithHome(int slot, int count) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1_000; keys.size() < count; key++) {
+            if ((LongIntHashMap.hash(key) & MASK) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
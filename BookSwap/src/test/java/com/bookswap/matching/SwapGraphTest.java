@@ -0,0 +1,186 @@
+package com.bookswap.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Поиск циклов обмена через ребро: циклы из 2 и k участников, ограничения длины цикла,
+ * числа посещений и числа циклов, удаление рёбер и переиспользование их слотов
+ */
+class SwapGraphTest {
+
+    private static final int MAX_LENGTH = 5;
+    private static final int MAX_VISITS = 10_000;
+    private static final int MAX_CYCLES = 100;
+
+    @Test
+    void twoWayCycle() {
+        SwapGraph graph = new SwapGraph(4, 4);
+        graph.addEdge(1, 101, 2, 1);
+        int closing = graph.addEdge(2, 201, 1, 2);
+
+        List<long[]> cycles = exchangeCycles(graph, closing, MAX_LENGTH, MAX_VISITS, MAX_CYCLES);
+        assertEquals(1, cycles.size());
+        assertCycle(new long[] {2, 1}, cycles.get(0));
+
+        int edge = graph.edgeOf(1);
+        assertEquals(101, graph.bookId(edge));
+        assertEquals(2, graph.ownerId(edge));
+        assertEquals(1, graph.requesterId(edge));
+    }
+
+    @Test
+    void kWayCycleBoundedByLength() {
+        for (int k = 3; k <= 6; k++) {
+            SwapGraph graph = new SwapGraph(4, 4);
+            // Участник i хочет книгу участника i + 1, последний - книгу первого
+            for (int i = 1; i < k; i++) {
+                graph.addEdge(i, 100 + i, i + 1, i);
+            }
+            int closing = graph.addEdge(k, 100 + k, 1, k);
+
+            List<long[]> cycles = exchangeCycles(graph, closing, k, MAX_VISITS, MAX_CYCLES);
+            assertEquals(1, cycles.size(), "цикл из " + k);
+            assertEquals(k, cycles.get(0).length);
+            assertEquals(k, cycles.get(0)[0]);
+            assertEquals(k, new HashSet<>(toList(cycles.get(0))).size());
+
+            assertTrue(exchangeCycles(graph, closing, k - 1, MAX_VISITS, MAX_CYCLES).isEmpty(),
+                    "цикл из " + k + " длиннее ограничения");
+        }
+    }
+
+    @Test
+    void findsEveryCycleThroughEdge() {
+        SwapGraph graph = new SwapGraph(4, 4);
+        // 1 -> 2 -> 1 и 1 -> 2 -> 3 -> 1
+        graph.addEdge(1, 101, 2, 1);
+        graph.addEdge(2, 201, 1, 2);
+        graph.addEdge(3, 202, 3, 2);
+        graph.addEdge(4, 301, 1, 3);
+
+        List<long[]> cycles = exchangeCycles(graph, graph.edgeOf(1), MAX_LENGTH, MAX_VISITS, MAX_CYCLES);
+        Set<List<Long>> found = new HashSet<>();
+        for (long[] cycle : cycles) {
+            found.add(toList(cycle));
+        }
+        assertEquals(Set.of(List.of(1L, 2L), List.of(1L, 3L, 4L)), found);
+    }
+
+    @Test
+    void maxCyclesLimitsResult() {
+        SwapGraph graph = new SwapGraph(4, 4);
+        // Пять книг второго участника, которые хочет первый, и одна книга первого, которую хочет второй
+        for (int i = 1; i <= 5; i++) {
+            graph.addEdge(i, 200 + i, 2, 1);
+        }
+        int closing = graph.addEdge(10, 101, 1, 2);
+
+        assertEquals(5, exchangeCycles(graph, closing, MAX_LENGTH, MAX_VISITS, MAX_CYCLES).size());
+        assertEquals(3, exchangeCycles(graph, closing, MAX_LENGTH, MAX_VISITS, 3).size());
+    }
+
+    @Test
+    void maxVisitsStopsSearch() {
+        SwapGraph graph = new SwapGraph(4, 4);
+        int closing = graph.addEdge(1, 101, 2, 1);
+        graph.addEdge(2, 201, 1, 2);
+        // Тупиковые рёбра второго участника добавлены позже и перебираются раньше обратного ребра
+        for (int i = 0; i < 10; i++) {
+            graph.addEdge(100 + i, 1_000 + i, 10 + i, 2);
+        }
+
+        assertTrue(exchangeCycles(graph, closing, MAX_LENGTH, 10, MAX_CYCLES).isEmpty());
+        assertEquals(1, exchangeCycles(graph, closing, MAX_LENGTH, 11, MAX_CYCLES).size());
+    }
+
+    @Test
+    void removedEdgesLeaveCyclesAndSlotsAreReused() {
+        SwapGraph graph = new SwapGraph(4, 4);
+        // У первого участника три исходящих ребра; удаляется среднее в списке
+        graph.addEdge(1, 201, 2, 1);
+        int middle = graph.addEdge(2, 301, 3, 1);
+        graph.addEdge(3, 401, 4, 1);
+        graph.addEdge(4, 101, 1, 2);
+        graph.addEdge(5, 102, 1, 3);
+        graph.addEdge(6, 103, 1, 4);
+        assertEquals(-1, graph.addEdge(2, 301, 3, 1));
+        assertEquals(6, graph.edgeCount());
+
+        assertTrue(graph.removeEdge(2));
+        assertFalse(graph.removeEdge(2));
+        assertEquals(-1, graph.edgeOf(2));
+        assertEquals(5, graph.edgeCount());
+        assertTrue(exchangeCycles(graph, graph.edgeOf(5), MAX_LENGTH, MAX_VISITS, MAX_CYCLES).isEmpty());
+        assertEquals(1, exchangeCycles(graph, graph.edgeOf(4), MAX_LENGTH, MAX_VISITS, MAX_CYCLES).size());
+        assertEquals(1, exchangeCycles(graph, graph.edgeOf(6), MAX_LENGTH, MAX_VISITS, MAX_CYCLES).size());
+
+        // Новый обмен занимает освободившийся слот и снова замыкает цикл
+        int reused = graph.addEdge(7, 302, 3, 1);
+        assertEquals(middle, reused);
+        assertEquals(7, graph.exchangeId(reused));
+        assertEquals(302, graph.bookId(reused));
+        List<long[]> cycles = exchangeCycles(graph, graph.edgeOf(5), MAX_LENGTH, MAX_VISITS, MAX_CYCLES);
+        assertEquals(1, cycles.size());
+        assertCycle(new long[] {5, 7}, cycles.get(0));
+
+        // Удаление головы списка и повторное добавление: свободные слоты выдаются в обратном порядке
+        int third = graph.edgeOf(3);
+        assertTrue(graph.removeEdge(7));
+        assertTrue(graph.removeEdge(3));
+        assertTrue(exchangeCycles(graph, graph.edgeOf(6), MAX_LENGTH, MAX_VISITS, MAX_CYCLES).isEmpty());
+        assertEquals(third, graph.addEdge(3, 401, 4, 1));
+        assertEquals(middle, graph.addEdge(7, 302, 3, 1));
+        assertEquals(1, exchangeCycles(graph, graph.edgeOf(6), MAX_LENGTH, MAX_VISITS, MAX_CYCLES).size());
+        assertEquals(1, exchangeCycles(graph, graph.edgeOf(5), MAX_LENGTH, MAX_VISITS, MAX_CYCLES).size());
+        assertEquals(6, graph.edgeCount());
+        assertEquals(4, graph.nodeCount());
+    }
+
+    @Test
+    void growsBeyondExpectedSize() {
+        SwapGraph graph = new SwapGraph(1, 1);
+        int participants = 40;
+        for (int i = 1; i < participants; i++) {
+            graph.addEdge(i, 100 + i, i + 1, i);
+        }
+        int closing = graph.addEdge(participants, 100 + participants, 1, participants);
+
+        assertEquals(participants, graph.nodeCount());
+        assertEquals(participants, graph.edgeCount());
+        assertEquals(1, exchangeCycles(graph, closing, participants, MAX_VISITS, MAX_CYCLES).size());
+    }
+
+    private static List<long[]> exchangeCycles(SwapGraph graph, int edge, int maxLength, int maxVisits,
+                                               int maxCycles) {
+        List<long[]> cycles = new ArrayList<>();
+        for (int[] cycle : graph.cyclesThrough(edge, maxLength, maxVisits, maxCycles)) {
+            long[] exchanges = new long[cycle.length];
+            for (int i = 0; i < cycle.length; i++) {
+                exchanges[i] = graph.exchangeId(cycle[i]);
+            }
+            cycles.add(exchanges);
+        }
+        return cycles;
+    }
+
+    private static void assertCycle(long[] expected, long[] actual) {
+        assertEquals(toList(expected), toList(actual));
+    }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<>();
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
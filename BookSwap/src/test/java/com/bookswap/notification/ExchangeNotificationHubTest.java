@@ -0,0 +1,137 @@
+package com.bookswap.notification;
+
+import com.bookswap.dto.ExchangeNotification;
+import com.bookswap.entity.BookExchange;
+import com.bookswap.event.ExchangeChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Возобновление потока по Last-Event-ID, пока публикуются новые уведомления:
+ * каждое пропущенное и каждое новое уведомление приходит ровно один раз и по порядку
+ */
+class ExchangeNotificationHubTest {
+
+    private static final long OWNER_ID = 1L;
+    private static final long REQUESTER_ID = 2L;
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Test
+    void publishDuringResumeDeliversEachNotificationOnceInOrder() throws Exception {
+        ExchangeNotificationHub hub = new RecordingHub();
+        try {
+            RecordingEmitter live = (RecordingEmitter) hub.subscribe(OWNER_ID, null);
+            publish(hub, 0, 10);
+            String resumeId = live.awaitIds(10).get(4);
+            long resumeSequence = Long.parseLong(resumeId.substring(resumeId.indexOf('-') + 1));
+
+            // Публикация держит блокировку рассылки, пока подписка ждёт её посреди возобновления
+            AtomicReference<SseEmitter> resumed = new AtomicReference<>();
+            Thread subscriber = new Thread(() -> resumed.set(hub.subscribe(OWNER_ID, resumeId)));
+            synchronized (hub) {
+                subscriber.start();
+                awaitBlocked(subscriber);
+                publish(hub, 10, 10);
+            }
+            subscriber.join(TIMEOUT_MS);
+
+            List<Long> expected = new ArrayList<>();
+            for (long sequence : live.awaitSequences(20)) {
+                if (sequence > resumeSequence) {
+                    expected.add(sequence);
+                }
+            }
+            assertEquals(expected, ((RecordingEmitter) resumed.get()).awaitSequences(expected.size()));
+        } finally {
+            hub.shutdown();
+        }
+    }
+
+    private static void publish(ExchangeNotificationHub hub, int from, int count) {
+        for (long exchangeId = from + 1; exchangeId <= from + count; exchangeId++) {
+            hub.onExchangeChanged(new ExchangeChangedEvent(exchangeId, exchangeId, OWNER_ID, REQUESTER_ID,
+                    BookExchange.ExchangeType.BOOK_FOR_BOOK, BookExchange.ExchangeStatus.PENDING));
+        }
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+        while (thread.getState() != Thread.State.BLOCKED) {
+            assertTrue(System.nanoTime() < deadline, "subscriber state " + thread.getState());
+            Thread.sleep(1);
+        }
+    }
+
+    private static final class RecordingHub extends ExchangeNotificationHub {
+
+        private RecordingHub() {
+            super(TIMEOUT_MS, 100, 4, 1000, 1);
+        }
+
+        @Override
+        SseEmitter createEmitter() {
+            return new RecordingEmitter();
+        }
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private static final Pattern ID = Pattern.compile("^id:(\\S+)$", Pattern.MULTILINE);
+        // Время, за которое успело бы прийти лишнее уведомление
+        private static final long SETTLE_MS = 100;
+
+        private final List<Long> sequences = new ArrayList<>();
+        private final List<String> ids = new ArrayList<>();
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) {
+            StringBuilder text = new StringBuilder();
+            for (DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof ExchangeNotification notification) {
+                    sequences.add(notification.getSequence());
+                } else {
+                    text.append(part.getData());
+                }
+            }
+            Matcher id = ID.matcher(text);
+            if (id.find()) {
+                ids.add(id.group(1));
+            }
+            notifyAll();
+        }
+
+        private synchronized List<String> awaitIds(int count) throws InterruptedException {
+            awaitCount(count);
+            return new ArrayList<>(ids);
+        }
+
+        private synchronized List<Long> awaitSequences(int count) throws InterruptedException {
+            awaitCount(count);
+            long settled = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SETTLE_MS);
+            for (long remaining = SETTLE_MS; remaining > 0;
+                 remaining = TimeUnit.NANOSECONDS.toMillis(settled - System.nanoTime())) {
+                wait(remaining);
+            }
+            return new ArrayList<>(sequences);
+        }
+
+        private void awaitCount(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MS);
+            while (sequences.size() < count) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                assertTrue(remaining > 0, "received " + sequences.size() + " of " + count);
+                wait(remaining);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.bookswap.search;
+
+import com.bookswap.entity.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Поиск по индексу: ранжирование по полям, точное совпадение выше префиксного
+ * и ограничение раскрытия префикса MAX_PREFIX_EXPANSIONS с признаком неполного результата
+ */
+class BookSearchIndexTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void createIndex() {
+        index = new BookSearchIndex(null, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void ranksTitleAndExactMatchesFirst() {
+        index.put(document(1, "Мастер и Маргарита", "Михаил Булгаков"));
+        index.put(document(2, "Собачье сердце", "Михаил Булгаков"));
+        index.put(document(3, "Мастерская переплёта", "Иван Петров"));
+
+        SearchHits hits = index.searchText("мастер", null, 0, 10);
+        assertEquals(List.of(1L, 3L), hits.getBookIds());
+        assertFalse(hits.isPrefixTruncated());
+
+        assertEquals(List.of(2L), index.searchText("булгаков сердце", null, 0, 10).getBookIds());
+        assertEquals(List.of(2L), index.searchByCriteria("сердце", "булгаков", null, null, 0, 10).getBookIds());
+    }
+
+    @Test
+    void prefixExpansionIsCappedAndReported() {
+        int terms = BookSearchIndex.MAX_PREFIX_EXPANSIONS + 6;
+        List<SearchDocument> documents = new ArrayList<>();
+        for (int i = 0; i < terms; i++) {
+            documents.add(document(i + 1, String.format("ztok%03d", i), "Автор"));
+        }
+        index.putAll(documents);
+
+        SearchHits capped = index.searchText("ztok", null, 0, terms);
+        assertTrue(capped.isPrefixTruncated());
+        assertEquals(BookSearchIndex.MAX_PREFIX_EXPANSIONS, capped.getTotalHits());
+        // Раскрываются первые по алфавиту термины
+        assertTrue(capped.getBookIds().contains(1L));
+        assertFalse(capped.getBookIds().contains((long) terms));
+
+        SearchHits narrow = index.searchText("ztok06", null, 0, terms);
+        assertFalse(narrow.isPrefixTruncated());
+        assertEquals(10, narrow.getTotalHits());
+
+        SearchHits exact = index.searchText(String.format("ztok%03d", terms - 1), null, 0, terms);
+        assertFalse(exact.isPrefixTruncated());
+        assertEquals(List.of((long) terms), exact.getBookIds());
+
+        assertEquals(1L, index.getStats().get("truncatedPrefixSearches"));
+    }
+
+    @Test
+    void prefixExpansionWithinCapIsComplete() {
+        List<SearchDocument> documents = new ArrayList<>();
+        for (int i = 0; i < BookSearchIndex.MAX_PREFIX_EXPANSIONS; i++) {
+            documents.add(document(i + 1, String.format("ztok%03d", i), "Автор"));
+        }
+        index.putAll(documents);
+
+        SearchHits hits = index.searchText("ztok", null, 0, 100);
+        assertFalse(hits.isPrefixTruncated());
+        assertEquals(BookSearchIndex.MAX_PREFIX_EXPANSIONS, hits.getTotalHits());
+        assertEquals(0L, index.getStats().get("truncatedPrefixSearches"));
+    }
+
+    private static SearchDocument document(long bookId, String title, String author) {
+        return new SearchDocument(bookId, title, null, List.of(author), List.of(),
+                Book.ExchangeStatus.AVAILABLE, CREATED_AT);
+    }
+}
@@ -0,0 +1,61 @@
+package com.bookswap.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Разбиение на термины и лёгкий стемминг: формы одного слова дают один термин
+ */
+class SearchTokenizerTest {
+
+    @Test
+    void splitsOnNonLettersAndNormalizesCase() {
+        assertEquals(List.of("войн", "мир"), SearchTokenizer.tokenize("ВОЙНА и МИР!"));
+        assertEquals(List.of("1984", "оруэлл"), SearchTokenizer.tokenize("«1984» — Оруэлл"));
+        assertEquals(List.of("елк"), SearchTokenizer.tokenize("Ёлка"));
+        assertEquals(List.of("7", "wonder"), SearchTokenizer.tokenize("7 a wonders"));
+        assertTrue(SearchTokenizer.tokenize("  ,.;  ").isEmpty());
+        assertTrue(SearchTokenizer.tokenize(null).isEmpty());
+    }
+
+    @Test
+    void apostropheSplitsPossessive() {
+        assertEquals(List.of("brien", "book"), SearchTokenizer.tokenize("O'Brien's Books"));
+        assertEquals(SearchTokenizer.tokenize("Tolkien"), SearchTokenizer.tokenize("Tolkien's"));
+    }
+
+    @Test
+    void russianFormsShareStem() {
+        assertSameStem("книга", "книги", "книгу", "книгой", "книгами");
+        assertSameStem("приключение", "приключения", "приключениями");
+        assertSameStem("русский", "русская", "русского", "русскими");
+        assertEquals("книг", SearchTokenizer.stem("книгами"));
+    }
+
+    @Test
+    void englishFormsShareStem() {
+        assertSameStem("book", "books");
+        assertSameStem("read", "reading");
+        assertSameStem("publish", "published", "publishes");
+        assertSameStem("story", "stories");
+        assertEquals("story", SearchTokenizer.stem("stories"));
+    }
+
+    @Test
+    void shortWordsKeepEnding() {
+        assertEquals("was", SearchTokenizer.stem("was"));
+        assertEquals("это", SearchTokenizer.stem("это"));
+        assertEquals("bed", SearchTokenizer.stem("bed"));
+    }
+
+    private static void assertSameStem(String word, String... forms) {
+        String stem = SearchTokenizer.stem(word);
+        for (String form : forms) {
+            assertEquals(stem, SearchTokenizer.stem(form), form);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.bookswap.service;
+
+import com.bookswap.PostgresIntegrationTest;
+import com.bookswap.entity.BookExchange;
+import com.bookswap.exception.BookSwapException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Резервирование книги линеаризуемо: из одновременных запросов обмена на одну книгу успешен ровно один,
+ * по книге остаётся ровно один открытый обмен, и статус книги ему соответствует. Одновременные
+ * одобрения и затем отклонения выигравшего запроса владельцем выполняются ровно по одному разу
+ */
+class ExchangeReservationConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 10;
+
+    private static final String OPEN_EXCHANGES_SQL =
+            "SELECT COUNT(*) FROM book_exchanges WHERE book_id = ? AND status IN ('PENDING', 'ACCEPTED')";
+
+    @Autowired
+    private ExchangeService exchangeService;
+
+    @Test
+    void concurrentRequestsReserveBookOnce() throws Exception {
+        String owner = uniqueName("owner");
+        long bookId = createBook(createUser(owner), "Гонка за книгой");
+        List<String> requesters = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            requesters.add(uniqueName("requester"));
+            createUser(requesters.get(i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                List<Callable<BookExchange>> requests = new ArrayList<>();
+                for (String requester : requesters) {
+                    requests.add(() -> requestOrNull(bookId, requester));
+                }
+                List<BookExchange> granted = race(executor, requests);
+
+                assertEquals(1, granted.size(), "успешных запросов в раунде " + round);
+                assertEquals(1, openExchanges(bookId));
+                assertEquals("PENDING", exchangeStatus(granted.get(0).getId()));
+                assertEquals("RESERVED", bookStatus(bookId));
+
+                // Одновременные одобрения, затем отклонения одного запроса: каждый переход выполняется один раз
+                Long exchangeId = granted.get(0).getId();
+                List<Callable<Boolean>> approvals = new ArrayList<>();
+                List<Callable<Boolean>> rejections = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    approvals.add(() -> transitionOrNull(() -> exchangeService.approveExchange(exchangeId, owner)));
+                    rejections.add(() -> transitionOrNull(() -> {
+                        exchangeService.rejectExchange(exchangeId, owner, null);
+                        return null;
+                    }));
+                }
+
+                assertEquals(1, race(executor, approvals).size(), "одобрений в раунде " + round);
+                assertEquals("ACCEPTED", exchangeStatus(exchangeId));
+                assertEquals(1, openExchanges(bookId));
+                assertEquals("RESERVED", bookStatus(bookId));
+
+                assertEquals(1, race(executor, rejections).size(), "отклонений в раунде " + round);
+                assertEquals("REJECTED", exchangeStatus(exchangeId));
+                assertEquals(0, openExchanges(bookId));
+                assertEquals("AVAILABLE", bookStatus(bookId));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BookExchange requestOrNull(long bookId, String requester) {
+        try {
+            return exchangeService.createExchangeRequest(bookId, requester);
+        } catch (BookSwapException e) {
+            if (!"BOOK_NOT_AVAILABLE".equals(e.getErrorCode())) {
+                throw e;
+            }
+            return null;
+        }
+    }
+
+    private static Boolean transitionOrNull(Callable<?> transition) throws Exception {
+        try {
+            transition.call();
+            return Boolean.TRUE;
+        } catch (BookSwapException e) {
+            if (!"INVALID_EXCHANGE_STATUS".equals(e.getErrorCode())) {
+                throw e;
+            }
+            return null;
+        }
+    }
+
+    private int openExchanges(long bookId) {
+        return jdbcTemplate.queryForObject(OPEN_EXCHANGES_SQL, Integer.class, bookId);
+    }
+
+    private String exchangeStatus(long exchangeId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM book_exchanges WHERE id = ?", String.class, exchangeId);
+    }
+
+    private String bookStatus(long bookId) {
+        return jdbcTemplate.queryForObject("SELECT exchange_status FROM books WHERE id = ?", String.class, bookId);
+    }
+}
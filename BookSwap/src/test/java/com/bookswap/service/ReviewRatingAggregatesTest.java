@@ -0,0 +1,143 @@
+package com.bookswap.service;
+
+import com.bookswap.PostgresIntegrationTest;
+import com.bookswap.exception.BookSwapException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Агрегаты рейтинга книги (rating_sum, rating_count, average_rating) совпадают с одобренными отзывами
+ * после последовательных и одновременных изменений оценки, модерации и удаления отзывов
+ */
+class ReviewRatingAggregatesTest extends PostgresIntegrationTest {
+
+    private static final int REVIEWS = 4;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Test
+    void sequentialChangesKeepAggregates() {
+        long bookId = createBook(createUser(uniqueName("owner")), "Рейтинг по шагам");
+        String first = uniqueName("reader");
+        String second = uniqueName("reader");
+        createUser(first);
+        createUser(second);
+
+        Long firstReview = reviewService.createReview(bookId, first, 4, "Хорошо").getId();
+        assertAggregates(bookId, 0, 0);
+
+        reviewService.moderateReview(firstReview, true);
+        assertAggregates(bookId, 4, 1);
+        reviewService.moderateReview(firstReview, true);
+        assertAggregates(bookId, 4, 1);
+
+        Long secondReview = reviewService.createReview(bookId, second, 2, "Так себе").getId();
+        reviewService.moderateReview(secondReview, true);
+        assertAggregates(bookId, 6, 2);
+
+        reviewService.updateReview(firstReview, first, 5, "Отлично");
+        assertAggregates(bookId, 7, 2);
+
+        reviewService.moderateReview(secondReview, false);
+        assertAggregates(bookId, 5, 1);
+        reviewService.updateReview(secondReview, second, 1, "Плохо");
+        assertAggregates(bookId, 5, 1);
+        reviewService.deleteReview(secondReview, second);
+        assertAggregates(bookId, 5, 1);
+
+        reviewService.deleteReview(firstReview, first);
+        assertAggregates(bookId, 0, 0);
+    }
+
+    @Test
+    void concurrentChangesKeepAggregates() throws Exception {
+        long bookId = createBook(createUser(uniqueName("owner")), "Рейтинг под нагрузкой");
+        List<String> authors = new ArrayList<>();
+        List<Long> reviewIds = new ArrayList<>();
+        for (int i = 0; i < REVIEWS; i++) {
+            String author = uniqueName("reader");
+            createUser(author);
+            Long reviewId = reviewService.createReview(bookId, author, 3, "Отзыв " + i).getId();
+            reviewService.moderateReview(reviewId, true);
+            authors.add(author);
+            reviewIds.add(reviewId);
+        }
+        assertConsistent(bookId);
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            // Одновременные изменения оценки и модерации одних и тех же отзывов
+            for (int round = 0; round < ROUNDS; round++) {
+                List<Callable<Boolean>> changes = new ArrayList<>();
+                for (int i = 0; i < REVIEWS; i++) {
+                    String author = authors.get(i);
+                    Long reviewId = reviewIds.get(i);
+                    for (int rating : new int[] {1, 2, 4, 5}) {
+                        changes.add(() -> applied(() -> reviewService.updateReview(reviewId, author, rating, "Оценка " + rating)));
+                    }
+                    changes.add(() -> applied(() -> reviewService.moderateReview(reviewId, false)));
+                    changes.add(() -> applied(() -> reviewService.moderateReview(reviewId, true)));
+                }
+                race(executor, changes);
+                assertConsistent(bookId);
+            }
+
+            // Удаление против модерации и изменения оценки того же отзыва
+            List<Callable<Boolean>> removals = new ArrayList<>();
+            for (int i = 0; i < REVIEWS; i++) {
+                String author = authors.get(i);
+                Long reviewId = reviewIds.get(i);
+                removals.add(() -> applied(() -> reviewService.deleteReview(reviewId, author)));
+                removals.add(() -> applied(() -> reviewService.moderateReview(reviewId, false)));
+                removals.add(() -> applied(() -> reviewService.moderateReview(reviewId, true)));
+                removals.add(() -> applied(() -> reviewService.updateReview(reviewId, author, 5, "Последняя оценка")));
+            }
+            race(executor, removals);
+            assertConsistent(bookId);
+            assertAggregates(bookId, 0, 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Выполняет изменение отзыва; изменение уже удалённого отзыва не применяется
+     */
+    private static Boolean applied(Runnable change) {
+        try {
+            change.run();
+            return Boolean.TRUE;
+        } catch (BookSwapException e) {
+            if (!"REVIEW_NOT_FOUND".equals(e.getErrorCode())) {
+                throw e;
+            }
+            return null;
+        }
+    }
+
+    private void assertConsistent(long bookId) {
+        long[] expected = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(rating), 0), COUNT(*) FROM reviews WHERE book_id = ? AND is_approved = true",
+                (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2)}, bookId);
+        assertAggregates(bookId, expected[0], expected[1]);
+    }
+
+    private void assertAggregates(long bookId, long ratingSum, long ratingCount) {
+        jdbcTemplate.query("SELECT rating_sum, rating_count, average_rating FROM books WHERE id = ?", rs -> {
+            assertEquals(ratingSum, rs.getLong("rating_sum"), "rating_sum");
+            assertEquals(ratingCount, rs.getLong("rating_count"), "rating_count");
+            assertEquals(ratingCount > 0 ? (double) ratingSum / ratingCount : 0.0,
+                    rs.getDouble("average_rating"), 1e-9, "average_rating");
+        }, bookId);
+    }
+}